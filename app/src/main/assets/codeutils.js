@@ -120,3 +120,204 @@ window.scrollToElement = function(elemName) {
          window.scrollToHighlight();
     }
 }
+
+window.updateElement = function(id, afterId, base64Html) {
+    var html = Base64.decode(base64Html);
+    var elem = document.getElementById(id);
+    if (elem) {
+        if (html) {
+            elem.outerHTML = html;
+        } else {
+            elem.parentNode.removeChild(elem);
+        }
+    } else if (html && afterId) {
+        var anchor = document.getElementById(afterId);
+        if (anchor) {
+            anchor.insertAdjacentHTML('afterend', html);
+        }
+    }
+};
+
+window.setupChunkedContent = function(layout, lang, highlightFrom, highlightTo) {
+    var container = document.getElementById('content');
+    var chunks = [];
+    for (var i = 0; i < layout.length; i++) {
+        var firstLine = layout[i][0], continued = layout[i][2];
+        var pre = document.createElement('pre');
+        pre.className = 'prettyprint linenums';
+        // line numbers are drawn from a CSS counter; the first line of a chunk continuing
+        // a line doesn't increment it
+        pre.style.counterReset = 'linenumber ' + (continued ? firstLine : firstLine - 1);
+        container.appendChild(pre);
+        chunks.push({
+            elem: pre,
+            firstLine: firstLine,
+            lineCount: layout[i][1],
+            continued: continued,
+            loaded: false
+        });
+    }
+    if (highlightFrom > 0 && highlightTo < 0) {
+        highlightTo = highlightFrom;
+    }
+
+    var state = {
+        chunks: chunks,
+        lang: lang,
+        highlightFrom: highlightFrom,
+        highlightTo: highlightTo,
+        updatePending: false
+    };
+    window.chunkedContent = state;
+    if (chunks.length == 0) {
+        return;
+    }
+
+    var first = highlightFrom > 0 ? findChunk(chunks, highlightFrom) : 0;
+    var last = highlightFrom > 0 ? findChunk(chunks, highlightTo) : 0;
+    last = Math.min(last, first + 2);
+    for (var i = first; i <= last; i++) {
+        loadChunk(state, i, false);
+    }
+
+    // until they're loaded, size the other chunks by the lines rendered so far
+    var renderedHeight = 0, renderedLines = 0;
+    for (var i = first; i <= last; i++) {
+        renderedHeight += chunks[i].elem.offsetHeight;
+        renderedLines += chunks[i].lineCount;
+    }
+    var lineHeight = renderedHeight / renderedLines;
+    for (var i = 0; i < chunks.length; i++) {
+        if (!chunks[i].loaded) {
+            chunks[i].elem.style.height = Math.round(chunks[i].lineCount * lineHeight) + 'px';
+        }
+    }
+
+    if (highlightFrom > 0) {
+        var lines = getChunkedLineElements(state, highlightFrom, highlightTo);
+        if (lines.length > 0) {
+            var firstRect = lines[0].getBoundingClientRect();
+            var lastRect = lines[lines.length - 1].getBoundingClientRect();
+            window.highlightTop = firstRect.top + window.pageYOffset;
+            window.highlightBottom = lastRect.bottom + window.pageYOffset;
+            window.scrollToHighlight();
+        }
+    }
+
+    updateVisibleChunks(state);
+    var listener = function() {
+        if (!state.updatePending) {
+            state.updatePending = true;
+            setTimeout(function() { updateVisibleChunks(state); }, 50);
+        }
+    };
+    window.addEventListener('scroll', listener);
+    window.addEventListener('resize', listener);
+};
+
+function loadChunk(state, index, keepPosition) {
+    var chunk = state.chunks[index];
+    var html = NativeClient.getChunk(index);
+    if (html == null) {
+        return;
+    }
+
+    var oldHeight = chunk.elem.offsetHeight;
+    var isAbove = chunk.elem.getBoundingClientRect().top < 0;
+    chunk.elem.innerHTML = PR.prettyPrintOne(html, state.lang, chunk.firstLine);
+    chunk.elem.style.height = '';
+    chunk.loaded = true;
+
+    var lines = chunk.elem.getElementsByTagName('li');
+    function listener(target, line, event) {
+        if (event.target === target) {
+            NativeClient.onLineTouched(line);
+        }
+    }
+    if (chunk.continued && lines.length > 0) {
+        lines[0].className += ' continued';
+    }
+    for (var i = 0; i < lines.length; i++) {
+        var line = chunk.firstLine + i;
+        if (line >= state.highlightFrom && line <= state.highlightTo) {
+            lines[i].className += ' highlighted';
+        }
+        lines[i].addEventListener('click', listener.bind(null, lines[i], line));
+    }
+
+    // don't let the content move if the chunk's real height differs from the estimated one
+    if (keepPosition && isAbove) {
+        window.scrollBy(0, chunk.elem.offsetHeight - oldHeight);
+    }
+}
+
+// returns the index of the first chunk containing (a part of) the given line
+function findChunk(chunks, line) {
+    var low = 0, high = chunks.length - 1;
+    while (low < high) {
+        var mid = (low + high) >> 1;
+        if (chunks[mid].firstLine + chunks[mid].lineCount - 1 < line) {
+            low = mid + 1;
+        } else {
+            high = mid;
+        }
+    }
+    return low;
+}
+
+function unloadChunk(chunk) {
+    chunk.elem.style.height = chunk.elem.offsetHeight + 'px';
+    chunk.elem.innerHTML = '';
+    chunk.loaded = false;
+}
+
+function updateVisibleChunks(state) {
+    state.updatePending = false;
+
+    // chunks are ordered by position, so find the first visible one by bisection
+    var chunks = state.chunks;
+    var low = 0, high = chunks.length - 1;
+    while (low < high) {
+        var mid = (low + high) >> 1;
+        if (chunks[mid].elem.getBoundingClientRect().bottom < 0) {
+            low = mid + 1;
+        } else {
+            high = mid;
+        }
+    }
+    var first = low, last = low;
+    while (last + 1 < chunks.length
+            && chunks[last + 1].elem.getBoundingClientRect().top < window.innerHeight) {
+        last++;
+    }
+
+    // prepare the chunks next to the visible ones as well, and drop those far away
+    for (var i = Math.max(0, first - 1); i <= Math.min(chunks.length - 1, last + 1); i++) {
+        if (!chunks[i].loaded) {
+            loadChunk(state, i, true);
+        }
+    }
+    for (var i = 0; i < chunks.length; i++) {
+        if (chunks[i].loaded && (i < first - 3 || i > last + 3)) {
+            unloadChunk(chunks[i]);
+        }
+    }
+}
+
+function getChunkedLineElements(state, from, to) {
+    var result = [];
+    for (var i = 0; i < state.chunks.length; i++) {
+        var chunk = state.chunks[i];
+        if (!chunk.loaded) {
+            continue;
+        }
+        var lines = chunk.elem.getElementsByTagName('li');
+        for (var j = 0; j < lines.length; j++) {
+            var line = chunk.firstLine + j;
+            if (line >= from && line <= to) {
+                result.push(lines[j]);
+            }
+        }
+    }
+    return result;
+}
@@ -0,0 +1,45 @@
+var previewConverter = new showdown.Converter();
+previewConverter.setFlavor('github');
+
+// Renders the given base64 encoded markdown into the content element, replacing only
+// the top level blocks that changed. Returns the time taken in milliseconds.
+function updatePreview(base64Text) {
+    var start = Date.now();
+    var source = document.createElement('div');
+    source.innerHTML = previewConverter.makeHtml(Base64.decode(base64Text));
+    patchChildren(document.getElementById('content'), source);
+    return Date.now() - start;
+}
+
+function patchChildren(target, source) {
+    var oldNodes = target.childNodes;
+    var newNodes = source.childNodes;
+    var oldCount = oldNodes.length;
+    var newCount = newNodes.length;
+
+    // typing usually changes a single block, so skip the unchanged ones at both ends
+    var prefix = 0;
+    while (prefix < oldCount && prefix < newCount
+            && oldNodes[prefix].isEqualNode(newNodes[prefix])) {
+        prefix++;
+    }
+    var suffix = 0;
+    while (suffix < oldCount - prefix && suffix < newCount - prefix
+            && oldNodes[oldCount - 1 - suffix].isEqualNode(newNodes[newCount - 1 - suffix])) {
+        suffix++;
+    }
+
+    for (var i = oldCount - suffix - 1; i >= prefix; i--) {
+        target.removeChild(oldNodes[i]);
+    }
+
+    // collect first, as moving nodes out of the source changes its child list
+    var inserted = [];
+    for (var j = prefix; j < newCount - suffix; j++) {
+        inserted.push(newNodes[j]);
+    }
+    var reference = prefix < target.childNodes.length ? target.childNodes[prefix] : null;
+    for (var k = 0; k < inserted.length; k++) {
+        target.insertBefore(inserted[k], reference);
+    }
+}
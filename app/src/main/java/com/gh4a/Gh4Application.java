@@ -24,11 +24,14 @@ import android.os.Build;
 import android.util.LongSparseArray;
 
 import com.evernote.android.job.JobManager;
+import com.gh4a.db.TimelineCache;
 import com.gh4a.fragment.SettingsFragment;
 import com.gh4a.job.Gh4JobCreator;
 import com.gh4a.job.NotificationsJob;
+import com.gh4a.utils.AppSchedulers;
 import com.gh4a.utils.CrashReportingHelper;
 import com.gh4a.utils.DebuggingHelper;
+import com.gh4a.utils.DecodedImageCache;
 import com.meisolsson.githubsdk.model.User;
 
 import net.danlew.android.joda.JodaTimeAndroid;
@@ -153,6 +156,12 @@ public class Gh4Application extends Application implements OnSharedPreferenceCha
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        DecodedImageCache.onTrimMemory(level);
+    }
+
     public PrettyTime getPrettyTimeInstance() {
         return mPt;
     }
@@ -234,6 +243,8 @@ public class Gh4Application extends Application implements OnSharedPreferenceCha
                 .remove(KEY_PREFIX_USER_ID + login)
                 .apply();
 
+        // cached timelines may contain data the next account isn't allowed to see
+        AppSchedulers.disk().scheduleDirect(() -> TimelineCache.clear(this));
         NotificationsJob.cancelJob();
     }
 
@@ -4,8 +4,10 @@ import android.content.Context;
 import android.os.Build;
 import android.util.Log;
 
+import com.gh4a.utils.ApiMetrics;
 import com.gh4a.utils.CrashReportingHelper;
 import com.gh4a.utils.Optional;
+import com.gh4a.utils.RateLimitTracker;
 import com.meisolsson.githubsdk.core.GitHubPaginationInterceptor;
 import com.meisolsson.githubsdk.core.ServiceGenerator;
 import com.meisolsson.githubsdk.core.StringResponseConverterFactory;
@@ -126,6 +128,30 @@ public class ServiceFactory {
                 .build();
     };
 
+    // Holds back requests while the rate limit budget for their priority is used up. If a
+    // request is rejected anyway (e.g. because the budget was used up by another client),
+    // it's retried once, which is held back until the limit was reset like any other request.
+    private final static Interceptor RATE_LIMIT_INTERCEPTOR = chain -> {
+        Response response = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (response != null) {
+                response.close();
+            }
+            RateLimitTracker.awaitBudget(chain.call());
+            try {
+                response = chain.proceed(chain.request());
+            } finally {
+                RateLimitTracker.onRequestFinished(
+                        response != null ? response.networkResponse() : null);
+            }
+            if (response.networkResponse() == null
+                    || !RateLimitTracker.isRateLimited(response.networkResponse())) {
+                break;
+            }
+        }
+        return response;
+    };
+
     private final static Retrofit.Builder RETROFIT_BUILDER = new Retrofit.Builder()
             .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
             .addConverterFactory(new StringResponseConverterFactory())
@@ -162,6 +188,7 @@ public class ServiceFactory {
     private static <S> S createService(Class<S> serviceClass, final boolean bypassCache,
             final String acceptHeader, final String token, final Integer pageSize) {
         OkHttpClient.Builder clientBuilder = sApiHttpClient.newBuilder()
+                .addInterceptor(RATE_LIMIT_INTERCEPTOR)
                 .addInterceptor(PAGINATION_INTRCEPTOR)
                 .addNetworkInterceptor(ETAG_WORKAROUND_INTERCEPTOR)
                 .addNetworkInterceptor(CACHE_MAX_AGE_INTERCEPTOR)
@@ -252,9 +279,11 @@ public class ServiceFactory {
     static void initClient(Context context) {
         sApiHttpClient = enableTls12IfNeeded(new OkHttpClient.Builder())
                 .cache(new Cache(new File(context.getCacheDir(), "api-http"), 20 * 1024 * 1024))
+                .eventListenerFactory(ApiMetrics.EVENT_LISTENER_FACTORY)
                 .build();
         sImageHttpClient = new OkHttpClient.Builder()
                 .cache(new Cache(new File(context.getCacheDir(), "image-http"), 20 * 1024 * 1024))
+                .eventListenerFactory(ApiMetrics.EVENT_LISTENER_FACTORY)
                 .build();
     }
 
@@ -23,6 +23,8 @@ import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.widget.ReactionBar;
+import com.meisolsson.githubsdk.model.Commit;
+import com.meisolsson.githubsdk.model.GitHubFile;
 import com.meisolsson.githubsdk.model.PositionalCommentBase;
 import com.meisolsson.githubsdk.model.Reaction;
 import com.meisolsson.githubsdk.model.Reactions;
@@ -30,6 +32,7 @@ import com.meisolsson.githubsdk.model.git.GitComment;
 import com.meisolsson.githubsdk.model.request.ReactionRequest;
 import com.meisolsson.githubsdk.service.reactions.ReactionService;
 import com.meisolsson.githubsdk.service.repositories.RepositoryCommentService;
+import com.meisolsson.githubsdk.service.repositories.RepositoryCommitService;
 
 import java.util.List;
 
@@ -100,6 +103,15 @@ public class CommitDiffViewerActivity extends DiffViewerActivity<GitComment> {
                 .compose(RxUtils.filter(c -> c.position() != null));
     }
 
+    @Override
+    protected Single<List<GitHubFile>> createFileListSingle(boolean bypassCache) {
+        RepositoryCommitService service =
+                ServiceFactory.get(RepositoryCommitService.class, bypassCache);
+        return service.getCommit(mRepoOwner, mRepoName, mSha)
+                .map(ApiHelpers::throwOnFailure)
+                .map(Commit::files);
+    }
+
     @Override
     public Single<List<Reaction>> loadReactionDetails(ReactionBar.Item item, boolean bypassCache) {
         final CommitCommentWrapper comment = (CommitCommentWrapper) item;
@@ -0,0 +1,132 @@
+package com.gh4a.activities;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.gh4a.BaseActivity;
+import com.gh4a.Gh4Application;
+import com.gh4a.R;
+import com.gh4a.resolver.UrlLoadTask;
+import com.gh4a.utils.ApiMetrics;
+import com.gh4a.utils.AppSchedulers;
+import com.gh4a.utils.AvatarHandler;
+import com.gh4a.utils.DecodedImageCache;
+import com.gh4a.utils.RateLimitTracker;
+import com.gh4a.utils.RequestCoalescer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+
+/**
+ * Hidden screen showing the performance statistics collected while the app is running,
+ * reachable by long pressing the copyright notice in the about dialog.
+ */
+public class DiagnosticsActivity extends BaseActivity {
+    public static Intent makeIntent(Context context) {
+        return new Intent(context, DiagnosticsActivity.class);
+    }
+
+    private TextView mTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.diagnostics);
+        mTextView = findViewById(R.id.diagnostics);
+        updateReport();
+    }
+
+    @Nullable
+    @Override
+    protected String getActionBarTitle() {
+        return getString(R.string.diagnostics);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.diagnostics_menu, menu);
+        return super.onCreateOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.save:
+                saveReport();
+                return true;
+            case R.id.reset:
+                ApiMetrics.reset();
+                AppSchedulers.resetStatistics();
+                RequestCoalescer.resetCounters();
+                updateReport();
+                return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public void onRefresh() {
+        updateReport();
+        super.onRefresh();
+    }
+
+    private void updateReport() {
+        mTextView.setText(buildReport());
+    }
+
+    private static String buildReport() {
+        return "== API calls\n" + ApiMetrics.getReport()
+                + "\n== Rate limit\n" + RateLimitTracker.getStatistics()
+                + "\n"
+                + "\n== Schedulers\n" + AppSchedulers.getStatistics()
+                + "\n\n== Request coalescing\n" + RequestCoalescer.getHitCount() + " hits, "
+                        + RequestCoalescer.getMissCount() + " misses"
+                + "\n\n== Avatars\n" + AvatarHandler.getStatistics()
+                + "\n\n== Decoded images\n" + DecodedImageCache.getStatistics()
+                + "\n\n== Link resolution\n" + UrlLoadTask.getResolutionStatistics()
+                + "\n";
+    }
+
+    private void saveReport() {
+        final String report = buildReport();
+        File dir = getExternalFilesDir(null);
+        if (dir == null) {
+            dir = getFilesDir();
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        final File file = new File(dir, "diagnostics-" + timestamp + ".txt");
+
+        registerTemporarySubscription(Single.fromCallable(() -> {
+                    try (Writer writer =
+                            new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+                        writer.write(report);
+                    }
+                    return file.getAbsolutePath();
+                })
+                .subscribeOn(AppSchedulers.disk())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(path -> {
+                    Toast.makeText(this, getString(R.string.diagnostics_saved, path),
+                            Toast.LENGTH_LONG).show();
+                }, error -> {
+                    Log.w(Gh4Application.LOG_TAG, "Could not save diagnostics", error);
+                    Toast.makeText(this, R.string.diagnostics_save_failed,
+                            Toast.LENGTH_LONG).show();
+                }));
+    }
+}
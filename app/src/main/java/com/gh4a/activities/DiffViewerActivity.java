@@ -21,34 +21,49 @@ import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.util.LongSparseArray;
 import android.support.v7.app.AlertDialog;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.PopupMenu;
+import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.util.SparseArray;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
+import com.gh4a.adapter.DiffLineAdapter;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.BlobStore;
+import com.gh4a.utils.DiffLineIndex;
 import com.gh4a.utils.FileUtils;
+import com.gh4a.utils.HttpImageGetter;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.utils.StringUtils;
+import com.gh4a.utils.UiUtils;
 import com.gh4a.widget.ReactionBar;
+import com.meisolsson.githubsdk.model.GitHubFile;
 import com.meisolsson.githubsdk.model.PositionalCommentBase;
 import com.meisolsson.githubsdk.model.Reactions;
+import com.pluscubed.recyclerfastscroll.RecyclerFastScroller;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import io.reactivex.Single;
 import retrofit2.Response;
 
 public abstract class DiffViewerActivity<C extends PositionalCommentBase> extends WebViewerActivity
-        implements ReactionBar.Callback, ReactionBar.ReactionDetailsCache.Listener {
+        implements ReactionBar.Callback, ReactionBar.ReactionDetailsCache.Listener,
+        DiffLineAdapter.Callback {
     protected static <C extends PositionalCommentBase> Intent fillInIntent(Intent baseIntent,
             String repoOwner, String repoName, String commitSha, String path, String diff,
             List<C> comments, int initialLine, int highlightStartLine, int highlightEndLine,
@@ -57,8 +72,10 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
                 .putExtra("repo", repoName)
                 .putExtra("sha", commitSha)
                 .putExtra("path", path)
-                .putExtra("diff", diff)
-                .putExtra("comments", comments != null ? new ArrayList<>(comments) : null)
+                // both may be too large to be passed via binder
+                .putExtra("diff_key", BlobStore.put(diff))
+                .putExtra("comments_key",
+                        comments != null ? BlobStore.put(new ArrayList<>(comments)) : null)
                 .putExtra("initial_line", initialLine)
                 .putExtra("highlight_start", highlightStartLine)
                 .putExtra("highlight_end", highlightEndLine)
@@ -66,8 +83,6 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
                 .putExtra("initial_comment", initialComment);
     }
 
-    private static final String COMMENT_ADD_URI_FORMAT =
-            "comment://add?position=%d&l=%d&r=%d&isRightLine=%b";
     private static final String COMMENT_EDIT_URI_FORMAT =
             "comment://edit?position=%d&l=%d&r=%d&isRightLine=%b&id=%d";
 
@@ -108,6 +123,10 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
     protected static final int REQUEST_EDIT = 0;
 
     private static final int ID_LOADER_COMMENTS = 0;
+    private static final int ID_LOADER_DIFF = 1;
+
+    // diffs with more lines are shown natively instead of being rendered as HTML
+    private static final int NATIVE_RENDERING_MIN_LINES = 2000;
 
     protected String mRepoOwner;
     protected String mRepoName;
@@ -132,8 +151,13 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
         }
     }
 
-    private String mDiff;
-    private String[] mDiffLines;
+    private String mDiffKey;
+    private String mCommentsKey;
+    private DiffLineIndex mDiffLines;
+    private RecyclerView mDiffList;
+    private DiffLineAdapter mDiffAdapter;
+    private HttpImageGetter mImageGetter;
+    private boolean mInitialPositionApplied;
     private final SparseArray<List<PositionalCommentBase>> mCommitCommentsByPos = new SparseArray<>();
     private final LongSparseArray<CommitCommentWrapper> mCommitComments = new LongSparseArray<>();
 
@@ -144,7 +168,7 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        loadComments(true, false);
+        loadDiff(false);
     }
 
     @Nullable
@@ -162,6 +186,13 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
     @Override
     protected void onDestroy() {
         mReactionDetailsCache.destroy();
+        if (mImageGetter != null) {
+            mImageGetter.destroy();
+        }
+        if (isFinishing()) {
+            BlobStore.remove(mDiffKey);
+            BlobStore.remove(mCommentsKey);
+        }
         super.onDestroy();
     }
 
@@ -172,7 +203,14 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
         mRepoName = extras.getString("repo");
         mPath = extras.getString("path");
         mSha = extras.getString("sha");
-        mDiff = extras.getString("diff");
+        mDiffKey = extras.getString("diff_key");
+        mCommentsKey = extras.getString("comments_key");
+        if (mCommentsKey != null && BlobStore.get(mCommentsKey) == null) {
+            // the comments are gone if our process was killed meanwhile, in which case
+            // they're loaded from remote and thus can be refreshed as well
+            getIntent().removeExtra("comments_key");
+            mCommentsKey = null;
+        }
         mInitialLine = extras.getInt("initial_line", -1);
         mHighlightStartLine = extras.getInt("highlight_start", -1);
         mHighlightEndLine = extras.getInt("highlight_end", -1);
@@ -184,13 +222,41 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
     @Override
     protected boolean canSwipeToRefresh() {
         // no need for pull-to-refresh if everything was passed in the intent extras
-        return !getIntent().hasExtra("comments");
+        return mCommentsKey == null;
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (mImageGetter != null) {
+            mImageGetter.resume();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (mImageGetter != null) {
+            mImageGetter.pause();
+        }
+    }
+
+    @Override
+    public boolean canChildScrollUp() {
+        if (mDiffList != null) {
+            return UiUtils.canViewScrollUp(mDiffList);
+        }
+        return super.canChildScrollUp();
     }
 
     @Override
     public void onRefresh() {
         setContentShown(false);
-        loadComments(true, true);
+        if (mDiffLines != null) {
+            loadComments(true, true);
+        } else {
+            loadDiff(true);
+        }
         super.onRefresh();
     }
 
@@ -210,7 +276,17 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
     public void onReactionsUpdated(ReactionBar.Item item, Reactions reactions) {
         CommitCommentWrapper comment = (CommitCommentWrapper) item;
         comment.comment = onUpdateReactions(comment.comment, reactions);
-        onDataReady();
+
+        int position = comment.comment.position();
+        List<PositionalCommentBase> comments = mCommitCommentsByPos.get(position);
+        if (comments != null) {
+            for (int i = 0; i < comments.size(); i++) {
+                if (comments.get(i).id() == comment.comment.id()) {
+                    comments.set(i, comment.comment);
+                }
+            }
+        }
+        updateLineComments(Collections.singleton(position));
     }
 
     @Override
@@ -226,6 +302,7 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
         content.append("</title>");
         writeCssInclude(content, "text", cssTheme);
         writeScriptInclude(content, "codeutils");
+        writeScriptInclude(content, "base64");
         content.append("</head><body");
 
         int highlightInsertPos = content.length();
@@ -235,38 +312,21 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
         }
         content.append("<pre>");
 
-        mDiffLines = mDiff != null ? mDiff.split("\n") : new String[0];
-
-        int highlightStartLine = -1, highlightEndLine = -1;
-        int leftDiffPosition = -1, rightDiffPosition = -1;
+        int highlightStartLine = findHighlightLine(mHighlightStartLine);
+        int highlightEndLine = findHighlightLine(mHighlightEndLine);
 
-        for (int i = 0; i < mDiffLines.length; i++) {
-            String line = mDiffLines[i];
+        for (int i = 0; i < mDiffLines.getLineCount(); i++) {
+            String line = mDiffLines.getLine(i);
+            int lineType = mDiffLines.getLineType(i);
+            int leftDiffPosition = mDiffLines.getLeftLine(i);
+            int rightDiffPosition = mDiffLines.getRightLine(i);
             String cssClass = null;
-            if (line.startsWith("@@")) {
-                int[] lineNumbers = StringUtils.extractDiffHunkLineNumbers(line);
-                if (lineNumbers != null) {
-                    leftDiffPosition = lineNumbers[0];
-                    rightDiffPosition = lineNumbers[1];
-                }
+            if (lineType == DiffLineIndex.TYPE_HUNK_HEADER) {
                 cssClass = "change";
-            } else if (line.startsWith("+")) {
-                ++rightDiffPosition;
+            } else if (lineType == DiffLineIndex.TYPE_ADD) {
                 cssClass = "add";
-            } else if (line.startsWith("-")) {
-                ++leftDiffPosition;
+            } else if (lineType == DiffLineIndex.TYPE_REMOVE) {
                 cssClass = "remove";
-            } else {
-                ++leftDiffPosition;
-                ++rightDiffPosition;
-            }
-
-            int pos = mHighlightIsRight ? rightDiffPosition : leftDiffPosition;
-            if (pos != -1 && pos == mHighlightStartLine && highlightStartLine == -1) {
-                highlightStartLine = i;
-            }
-            if (pos != -1 && pos == mHighlightEndLine && highlightEndLine == -1) {
-                highlightEndLine = i;
             }
 
             content.append("<div id=\"line").append(i).append("\"");
@@ -274,49 +334,17 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
                 content.append("class=\"").append(cssClass).append("\"");
             }
             if (authorized) {
-                String uri = String.format(Locale.US, COMMENT_ADD_URI_FORMAT,
-                        i, leftDiffPosition, rightDiffPosition, line.startsWith("+"));
-                content.append(" onclick=\"javascript:location.href='");
-                content.append(uri).append("'\"");
+                content.append(" onclick=\"javascript:location.href='comment://add?position=")
+                        .append(i).append("&l=").append(leftDiffPosition)
+                        .append("&r=").append(rightDiffPosition)
+                        .append("&isRightLine=").append(lineType == DiffLineIndex.TYPE_ADD)
+                        .append("'\"");
             }
             content.append(">").append(TextUtils.htmlEncode(line)).append("</div>");
 
             List<PositionalCommentBase> comments = mCommitCommentsByPos.get(i);
             if (comments != null) {
-                for (PositionalCommentBase comment : comments) {
-                    long id = comment.id();
-                    mCommitComments.put(id, new CommitCommentWrapper(comment));
-                    content.append("<div ").append("id=\"comment").append(id).append("\"");
-                    content.append(" class=\"comment");
-                    if (mInitialComment != null && mInitialComment.matches(id, null)) {
-                        content.append(" highlighted");
-                    }
-                    content.append("\"");
-                    if (authorized) {
-                        String uri = String.format(Locale.US, COMMENT_EDIT_URI_FORMAT,
-                                i, leftDiffPosition, rightDiffPosition, line.startsWith("+"), id);
-                        content.append(" onclick=\"javascript:location.href='");
-                        content.append(uri).append("'\"");
-                    }
-                    content.append("><div class=\"change\">");
-                    content.append(getString(R.string.commit_comment_header,
-                            "<b>" + ApiHelpers.getUserLogin(this, comment.user()) + "</b>",
-                            StringUtils.formatRelativeTime(DiffViewerActivity.this, comment.createdAt(), true)));
-                    content.append("</div>").append(comment.bodyHtml());
-
-                    Reactions reactions = comment.reactions();
-                    if (reactions.totalCount() > 0) {
-                        content.append("<div>");
-                        appendReactionSpan(content, reactions.plusOne(), REACTION_PLUS_ONE_PATH);
-                        appendReactionSpan(content, reactions.minusOne(), REACTION_MINUS_ONE_PATH);
-                        appendReactionSpan(content, reactions.confused(), REACTION_CONFUSED_PATH);
-                        appendReactionSpan(content, reactions.heart(), REACTION_HEART_PATH);
-                        appendReactionSpan(content, reactions.laugh(), REACTION_LAUGH_PATH);
-                        appendReactionSpan(content, reactions.hooray(), REACTION_HOORAY_PATH);
-                        content.append("</div>");
-                    }
-                    content.append("</div>");
-                }
+                appendLineComments(content, i, comments, authorized);
             }
         }
 
@@ -336,6 +364,148 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
         return content.toString();
     }
 
+    // the comments of a line are grouped, so they can be replaced without a full reload
+    private void appendLineComments(StringBuilder content, int position,
+            List<PositionalCommentBase> comments, boolean authorized) {
+        int leftDiffPosition = mDiffLines.getLeftLine(position);
+        int rightDiffPosition = mDiffLines.getRightLine(position);
+        boolean isRightLine = mDiffLines.getLineType(position) == DiffLineIndex.TYPE_ADD;
+
+        content.append("<div id=\"comments").append(position).append("\">");
+        for (PositionalCommentBase comment : comments) {
+            long id = comment.id();
+            content.append("<div ").append("id=\"comment").append(id).append("\"");
+            content.append(" class=\"comment");
+            if (mInitialComment != null && mInitialComment.matches(id, null)) {
+                content.append(" highlighted");
+            }
+            content.append("\"");
+            if (authorized) {
+                String uri = String.format(Locale.US, COMMENT_EDIT_URI_FORMAT,
+                        position, leftDiffPosition, rightDiffPosition, isRightLine, id);
+                content.append(" onclick=\"javascript:location.href='");
+                content.append(uri).append("'\"");
+            }
+            content.append("><div class=\"change\">");
+            content.append(getString(R.string.commit_comment_header,
+                    "<b>" + ApiHelpers.getUserLogin(this, comment.user()) + "</b>",
+                    StringUtils.formatRelativeTime(DiffViewerActivity.this, comment.createdAt(), true)));
+            content.append("</div>").append(comment.bodyHtml());
+
+            Reactions reactions = comment.reactions();
+            if (reactions.totalCount() > 0) {
+                content.append("<div>");
+                appendReactionSpan(content, reactions.plusOne(), REACTION_PLUS_ONE_PATH);
+                appendReactionSpan(content, reactions.minusOne(), REACTION_MINUS_ONE_PATH);
+                appendReactionSpan(content, reactions.confused(), REACTION_CONFUSED_PATH);
+                appendReactionSpan(content, reactions.heart(), REACTION_HEART_PATH);
+                appendReactionSpan(content, reactions.laugh(), REACTION_LAUGH_PATH);
+                appendReactionSpan(content, reactions.hooray(), REACTION_HOORAY_PATH);
+                content.append("</div>");
+            }
+            content.append("</div>");
+        }
+        content.append("</div>");
+    }
+
+    /**
+     * Shows the current comments of the given diff positions. If the document is already
+     * displayed, only the comments of those positions are replaced in it.
+     */
+    private void updateLineComments(Collection<Integer> positions) {
+        if (!canUpdateElements()) {
+            onDataReady();
+            return;
+        }
+
+        boolean authorized = Gh4Application.get().isAuthorized();
+        for (int position : positions) {
+            StringBuilder content = new StringBuilder();
+            List<PositionalCommentBase> comments = mCommitCommentsByPos.get(position);
+            if (comments != null) {
+                appendLineComments(content, position, comments, authorized);
+            }
+            updateElement("comments" + position, "line" + position, content.toString());
+        }
+    }
+
+    private int findHighlightLine(int lineNumber) {
+        return lineNumber != -1 ? mDiffLines.findLine(lineNumber, mHighlightIsRight) : -1;
+    }
+
+    @Override
+    protected void onDataReady() {
+        if (mDiffLines.getLineCount() < NATIVE_RENDERING_MIN_LINES) {
+            super.onDataReady();
+            return;
+        }
+
+        if (mDiffAdapter == null) {
+            View view = inflateNativeContent(R.layout.diff_line_list);
+            mImageGetter = new HttpImageGetter(this);
+            mDiffAdapter = new DiffLineAdapter(this, mDiffLines, mImageGetter, this);
+            mDiffAdapter.setHighlightRange(findHighlightLine(mHighlightStartLine),
+                    findHighlightLine(mHighlightEndLine));
+
+            mDiffList = view.findViewById(R.id.diff_list);
+            mDiffList.setLayoutManager(new LinearLayoutManager(this));
+            mDiffList.setAdapter(mDiffAdapter);
+            // rows consume the touch events, so a plain touch listener wouldn't see them
+            mDiffList.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+                @Override
+                public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+                    onTouch(rv, e);
+                    return false;
+                }
+            });
+
+            RecyclerFastScroller fastScroller = view.findViewById(R.id.fast_scroller);
+            fastScroller.attachRecyclerView(mDiffList);
+        }
+
+        mDiffAdapter.setComments(mCommitCommentsByPos,
+                mInitialComment != null ? mInitialComment.commentId : 0);
+        onNativeContentReady((View) mDiffList.getParent());
+
+        if (!mInitialPositionApplied) {
+            int position = -1;
+            if (mInitialLine > 0) {
+                position = mDiffAdapter.getPositionForLine(mInitialLine);
+            } else if (mInitialComment != null) {
+                position = mDiffAdapter.getPositionForComment(mInitialComment.commentId);
+            } else if (findHighlightLine(mHighlightStartLine) != -1) {
+                position = mDiffAdapter.getPositionForLine(findHighlightLine(mHighlightStartLine));
+            }
+            if (position >= 0) {
+                ((LinearLayoutManager) mDiffList.getLayoutManager())
+                        .scrollToPositionWithOffset(position, 0);
+            }
+            mInitialPositionApplied = true;
+        }
+    }
+
+    @Override
+    public void onLineClicked(int line) {
+        if (Gh4Application.get().isAuthorized()) {
+            showCommentActionPopup(0L, line);
+        }
+    }
+
+    @Override
+    public void onCommentClicked(int line, PositionalCommentBase comment) {
+        if (Gh4Application.get().isAuthorized()) {
+            showCommentActionPopup(comment.id(), line);
+        }
+    }
+
+    private void showCommentActionPopup(long id, int line) {
+        CommentActionPopup p = new CommentActionPopup(id, line, mDiffLines.getLine(line),
+                mDiffLines.getLeftLine(line), mDiffLines.getRightLine(line),
+                mLastTouchDown.x, mLastTouchDown.y,
+                mDiffLines.getLineType(line) == DiffLineIndex.TYPE_ADD);
+        p.show();
+    }
+
     private void appendReactionSpan(StringBuilder content, int count, String iconPathContents) {
         if (count == 0) {
             return;
@@ -384,6 +554,7 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
 
     private void addCommentsToMap(List<C> comments) {
         mCommitCommentsByPos.clear();
+        mCommitComments.clear();
         for (PositionalCommentBase comment : comments) {
             if (!TextUtils.equals(comment.path(), mPath)) {
                 continue;
@@ -395,7 +566,26 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
                 mCommitCommentsByPos.put(position, commentsByPos);
             }
             commentsByPos.add(comment);
+            mCommitComments.put(comment.id(), new CommitCommentWrapper(comment));
+        }
+    }
+
+    private Set<Integer> findChangedPositions(
+            SparseArray<List<PositionalCommentBase>> previousCommentsByPos) {
+        Set<Integer> positions = new HashSet<>();
+        for (int i = 0; i < previousCommentsByPos.size(); i++) {
+            int position = previousCommentsByPos.keyAt(i);
+            if (!previousCommentsByPos.valueAt(i).equals(mCommitCommentsByPos.get(position))) {
+                positions.add(position);
+            }
         }
+        for (int i = 0; i < mCommitCommentsByPos.size(); i++) {
+            int position = mCommitCommentsByPos.keyAt(i);
+            if (previousCommentsByPos.get(position) == null) {
+                positions.add(position);
+            }
+        }
+        return positions;
     }
 
     @Override
@@ -409,7 +599,7 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
         int leftLine = Integer.parseInt(uri.getQueryParameter("l"));
         int rightLine = Integer.parseInt(uri.getQueryParameter("r"));
         boolean isRightLine = Boolean.parseBoolean(uri.getQueryParameter("isRightLine"));
-        String lineText = mDiffLines[line];
+        String lineText = mDiffLines.getLine(line);
         String idParam = uri.getQueryParameter("id");
         long id = idParam != null ? Long.parseLong(idParam) : 0L;
 
@@ -420,17 +610,24 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
 
     private void refresh() {
         // Make sure we load the comments from remote, as we now know they've changed
-        getIntent().removeExtra("comments");
+        getIntent().removeExtra("comments_key");
+        BlobStore.remove(mCommentsKey);
+        mCommentsKey = null;
 
         // Make sure our callers are aware of the change
         setResult(RESULT_OK);
 
-        mCommitComments.clear();
+        // if the document is displayed, only the changed comments are replaced in it
+        // once loaded, so keep showing it meanwhile
+        boolean canUpdate = canUpdateElements();
         loadComments(false, true);
-        setContentShown(false);
+        if (!canUpdate) {
+            setContentShown(false);
+        }
     }
 
     protected abstract Single<List<C>> createCommentSingle(boolean bypassCache);
+    protected abstract Single<List<GitHubFile>> createFileListSingle(boolean bypassCache);
     protected abstract void openCommentDialog(long id, long replyToId, String line,
             int position, int leftLine, int rightLine, PositionalCommentBase commitComment);
     protected abstract Single<Response<Void>> doDeleteComment(long id);
@@ -452,16 +649,33 @@ public abstract class DiffViewerActivity<C extends PositionalCommentBase> extend
                         error -> handleActionFailure("Comment deletion failed", error));
     }
 
+    private void loadDiff(boolean force) {
+        // the diff is gone if our process was killed meanwhile, so load it again then
+        BlobStore.loadString(mDiffKey)
+                .flatMap(diffOpt -> diffOpt.orSingle(() -> createFileListSingle(force)
+                        .compose(RxUtils.filterAndMapToFirst(
+                                f -> TextUtils.equals(f.filename(), mPath)))
+                        .map(fileOpt -> fileOpt.isPresent() && fileOpt.get().patch() != null
+                                ? fileOpt.get().patch() : "")))
+                .map(diffOpt -> new DiffLineIndex(diffOpt.get()))
+                .compose(makeLoaderSingle(ID_LOADER_DIFF, force))
+                .subscribe(result -> {
+                    mDiffLines = result;
+                    loadComments(true, false);
+                }, this::handleLoadFailure);
+    }
+
     private void loadComments(boolean useIntentExtraIfPresent, boolean force) {
-        List<C> intentComments = useIntentExtraIfPresent
-                ? getIntent().getParcelableArrayListExtra("comments") : null;
+        List<C> intentComments = useIntentExtraIfPresent ? BlobStore.get(mCommentsKey) : null;
         Single<List<C>> commentSingle = intentComments != null
                 ? Single.just(intentComments)
                 : createCommentSingle(force).compose(makeLoaderSingle(ID_LOADER_COMMENTS, force));
 
         commentSingle.subscribe(result -> {
+            SparseArray<List<PositionalCommentBase>> previousCommentsByPos =
+                    mCommitCommentsByPos.clone();
             addCommentsToMap(result);
-            onDataReady();
+            updateLineComments(findChangedPositions(previousCommentsByPos));
         }, this::handleLoadFailure);
     }
 
@@ -0,0 +1,54 @@
+package com.gh4a.activities;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
+
+import com.gh4a.R;
+import com.gh4a.fragment.FileFinderFragment;
+
+public class FileFinderActivity extends FragmentContainerActivity {
+    public static Intent makeIntent(Context context, String repoOwner, String repoName,
+            String ref) {
+        return new Intent(context, FileFinderActivity.class)
+                .putExtra("owner", repoOwner)
+                .putExtra("repo", repoName)
+                .putExtra("ref", ref);
+    }
+
+    private String mRepoOwner;
+    private String mRepoName;
+    private String mRef;
+
+    @Nullable
+    @Override
+    protected String getActionBarTitle() {
+        return getString(R.string.find_file);
+    }
+
+    @Nullable
+    @Override
+    protected String getActionBarSubtitle() {
+        return mRepoOwner + "/" + mRepoName;
+    }
+
+    @Override
+    protected void onInitExtras(Bundle extras) {
+        super.onInitExtras(extras);
+        mRepoOwner = extras.getString("owner");
+        mRepoName = extras.getString("repo");
+        mRef = extras.getString("ref");
+    }
+
+    @Override
+    protected Fragment onCreateFragment() {
+        return FileFinderFragment.newInstance(mRepoOwner, mRepoName, mRef);
+    }
+
+    @Override
+    protected Intent navigateUp() {
+        return RepositoryActivity.makeIntent(this, mRepoOwner, mRepoName, mRef);
+    }
+}
@@ -25,29 +25,42 @@ import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.print.PrintHelper;
 import android.support.v7.widget.PopupMenu;
+import android.text.TextUtils;
 import android.util.Base64;
+import android.util.Log;
+import android.util.Pair;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 
 import com.gh4a.ApiRequestException;
+import com.gh4a.Gh4Application;
 import com.gh4a.R;
 import com.gh4a.ServiceFactory;
+import com.gh4a.model.RawContentService;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.AppSchedulers;
 import com.gh4a.utils.FileUtils;
 import com.gh4a.utils.IntentUtils;
+import com.gh4a.utils.LargeImageFile;
+import com.gh4a.utils.LargeTextFile;
 import com.gh4a.utils.Optional;
 import com.gh4a.utils.StringUtils;
+import com.gh4a.utils.UiUtils;
+import com.gh4a.widget.TiledImageView;
 import com.meisolsson.githubsdk.model.ClientErrorResponse;
 import com.meisolsson.githubsdk.model.Content;
 import com.meisolsson.githubsdk.model.TextMatch;
 import com.meisolsson.githubsdk.service.repositories.RepositoryContentService;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 
 import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import okio.Buffer;
 
 public class FileViewerActivity extends WebViewerActivity
         implements PopupMenu.OnMenuItemClickListener {
@@ -87,10 +100,19 @@ public class FileViewerActivity extends WebViewerActivity
     private int mHighlightEnd;
     private TextMatch mTextMatch;
     private Content mContent;
+    private LargeTextFile mLargeFile;
+    private LargeImageFile mImage;
+    private TiledImageView mImageView;
     private int mLastTouchedLine = 0;
     private boolean mViewRawText;
 
     private static final int ID_LOADER_FILE = 0;
+    private static final int ID_LOADER_LARGE_FILE = 1;
+    // files larger than that are rendered in chunks, as rendering them at once is too slow
+    private static final int LARGE_FILE_MIN_SIZE = 256 * 1024;
+    private static final int ID_LOADER_IMAGE = 2;
+    private static final int IMAGE_PREVIEW_MAX_SIZE = 1024;
+    private static final int IMAGE_PRINT_MAX_SIZE = 2048;
     private static final int MENU_ITEM_HISTORY = 10;
     private static final String RAW_URL_FORMAT = "https://raw.githubusercontent.com/%s/%s/%s/%s";
 
@@ -101,6 +123,8 @@ public class FileViewerActivity extends WebViewerActivity
         String filename = FileUtils.getFileName(mPath);
         if (FileUtils.isBinaryFormat(filename) && !FileUtils.isImage(filename)) {
             openUnsuitableFileAndFinish();
+        } else if (LargeImageFile.isSupported(filename)) {
+            loadImage(false);
         } else {
             loadFile(false);
         }
@@ -135,15 +159,45 @@ public class FileViewerActivity extends WebViewerActivity
         return true;
     }
 
+    @Override
+    public boolean canChildScrollUp() {
+        if (mImageView != null) {
+            return UiUtils.canViewScrollUp(mImageView);
+        }
+        return super.canChildScrollUp();
+    }
+
     @Override
     public void onRefresh() {
         setContentShown(false);
-        loadFile(true);
+        if (LargeImageFile.isSupported(FileUtils.getFileName(mPath))) {
+            loadImage(true);
+        } else {
+            loadFile(true);
+        }
         super.onRefresh();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (isFinishing()) {
+            if (mLargeFile != null) {
+                mLargeFile.delete();
+            }
+            if (mImage != null) {
+                mImage.release();
+            }
+        }
+        super.onDestroy();
+    }
+
     @Override
     protected String generateHtml(String cssTheme, boolean addTitleHeader) {
+        if (mLargeFile != null) {
+            return generateChunkedCodeHtml(mPath, mLargeFile,
+                    mHighlightStart, mHighlightEnd, cssTheme);
+        }
+
         String base64Data = mContent.content();
         if (base64Data != null && FileUtils.isImage(mPath)) {
             String title = addTitleHeader ? getDocumentTitle() : null;
@@ -161,6 +215,20 @@ public class FileViewerActivity extends WebViewerActivity
         }
     }
 
+    @Override
+    protected String getContentChunk(int chunk) {
+        LargeTextFile file = mLargeFile;
+        if (file == null) {
+            return null;
+        }
+        try {
+            return TextUtils.htmlEncode(file.readChunk(chunk));
+        } catch (IOException e) {
+            Log.d(Gh4Application.LOG_TAG, "Could not read chunk " + chunk + " of " + mPath, e);
+            return null;
+        }
+    }
+
     private void findMatchingLines(String data) {
         if (mTextMatch == null) {
             return;
@@ -184,17 +252,39 @@ public class FileViewerActivity extends WebViewerActivity
         if (!FileUtils.isImage(mPath)) {
             return false;
         }
+        if (mImage != null) {
+            // decoding the whole image takes too long for the main thread; there's no
+            // document to print instead if it fails, as the image is shown natively
+            final LargeImageFile image = mImage;
+            registerTemporarySubscription(Single.fromCallable(
+                            () -> Optional.ofWithNull(image.decodeSampled(IMAGE_PRINT_MAX_SIZE)))
+                    .subscribeOn(AppSchedulers.disk())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(result -> {
+                        if (result.isPresent() && !isFinishing()) {
+                            printBitmap(result.get());
+                        }
+                    }, error -> Log.w(Gh4Application.LOG_TAG, "Could not decode " + mPath, error)));
+            return true;
+        }
+
         String base64Data = mContent != null ? mContent.content() : null;
         if (base64Data == null) {
             return false;
         }
         byte[] decodedData = Base64.decode(base64Data, Base64.DEFAULT);
         Bitmap bitmap = BitmapFactory.decodeByteArray(decodedData, 0, decodedData.length);
+        if (bitmap == null) {
+            return false;
+        }
+        printBitmap(bitmap);
+        return true;
+    }
 
+    private void printBitmap(Bitmap bitmap) {
         PrintHelper printHelper = new PrintHelper(this);
         printHelper.setScaleMode(PrintHelper.SCALE_MODE_FIT);
         printHelper.printBitmap(getDocumentTitle(), bitmap);
-        return true;
     }
 
     @Override
@@ -202,10 +292,14 @@ public class FileViewerActivity extends WebViewerActivity
         MenuInflater inflater = getMenuInflater();
         inflater.inflate(R.menu.file_viewer_menu, menu);
 
-        boolean isMarkdown = FileUtils.isMarkdown(mPath);
+        boolean isMarkdown = FileUtils.isMarkdown(mPath) && mLargeFile == null;
         if (FileUtils.isImage(mPath) || (isMarkdown && !mViewRawText)) {
             menu.removeItem(R.id.wrap);
         }
+        if (mLargeFile != null) {
+            // only finds text in the chunks which are currently rendered
+            menu.removeItem(R.id.search);
+        }
         if (isMarkdown) {
             MenuItem viewRawItem = menu.findItem(R.id.view_raw);
             viewRawItem.setChecked(mViewRawText);
@@ -215,7 +309,12 @@ public class FileViewerActivity extends WebViewerActivity
         menu.add(0, MENU_ITEM_HISTORY, Menu.NONE, R.string.history)
                 .setShowAsActionFlags(MenuItem.SHOW_AS_ACTION_NEVER);
 
-        return super.onCreateOptionsMenu(menu);
+        boolean result = super.onCreateOptionsMenu(menu);
+        if (mLargeFile != null) {
+            // the whole file would need to be rendered for that
+            menu.removeItem(R.id.print);
+        }
+        return result;
     }
 
     @Override
@@ -281,7 +380,8 @@ public class FileViewerActivity extends WebViewerActivity
 
     @Override
     protected boolean shouldWrapLines() {
-        boolean displayingMarkdown = FileUtils.isMarkdown(mPath) && !mViewRawText;
+        boolean displayingMarkdown = FileUtils.isMarkdown(mPath) && !mViewRawText
+                && mLargeFile == null;
         return !displayingMarkdown && super.shouldWrapLines();
     }
 
@@ -330,7 +430,6 @@ public class FileViewerActivity extends WebViewerActivity
                         if (errors != null) {
                             for (ClientErrorResponse.FieldError fe : errors) {
                                 if (fe.reason() == ClientErrorResponse.FieldError.Reason.TooLarge) {
-                                    openUnsuitableFileAndFinish();
                                     return Single.just(Optional.absent());
                                 }
                             }
@@ -340,14 +439,116 @@ public class FileViewerActivity extends WebViewerActivity
                 })
                 .compose(makeLoaderSingle(ID_LOADER_FILE, force))
                 .subscribe(result -> {
-                    if (result.isPresent()) {
+                    if (!result.isPresent()) {
+                        // too large for the contents API
+                        if (FileUtils.isImage(mPath)) {
+                            openUnsuitableFileAndFinish();
+                        } else {
+                            loadLargeFile(null, force);
+                        }
+                    } else if (isLargeTextFile(result.get())) {
+                        loadLargeFile(result.get(), force);
+                    } else {
+                        if (mLargeFile != null) {
+                            mLargeFile.delete();
+                            mLargeFile = null;
+                        }
                         mContent = result.get();
                         onDataReady();
                         setContentEmpty(false);
-                    } else {
-                        setContentEmpty(true);
-                        setContentShown(true);
                     }
                 }, this::handleLoadFailure);
     }
+
+    private boolean isLargeTextFile(Content content) {
+        if (FileUtils.isImage(mPath)) {
+            return false;
+        }
+        if (content.content() == null) {
+            // the contents API omits the content of large files
+            return content.size() > 0;
+        }
+        return (!FileUtils.isMarkdown(mPath) || mViewRawText)
+                && content.size() > LARGE_FILE_MIN_SIZE;
+    }
+
+    /**
+     * @param content Contents of the file if already loaded, or null to download them
+     */
+    private void loadLargeFile(Content content, boolean force) {
+        final Single<LargeTextFile> fileSingle;
+        if (content != null && content.content() != null) {
+            fileSingle = Single.fromCallable(() -> {
+                Buffer buffer = new Buffer().write(Base64.decode(content.content(), Base64.DEFAULT));
+                return LargeTextFile.create(buffer);
+            });
+        } else {
+            RawContentService service = ServiceFactory.get(RawContentService.class, force);
+            fileSingle = service.getRawContents(mRepoOwner, mRepoName, mPath, mRef)
+                    .map(ApiHelpers::throwOnFailure)
+                    .map(body -> {
+                        try {
+                            return LargeTextFile.create(body.source());
+                        } finally {
+                            body.close();
+                        }
+                    });
+        }
+
+        final TextMatch textMatch = mTextMatch;
+        fileSingle
+                .map(file -> {
+                    int[] matchingLines = textMatch != null
+                            ? file.findMatchingLines(textMatch.fragment()) : null;
+                    return Pair.create(file, Optional.ofWithNull(matchingLines));
+                })
+                .compose(makeLoaderSingle(ID_LOADER_LARGE_FILE, force))
+                .subscribe(result -> {
+                    if (mLargeFile != null && mLargeFile != result.first) {
+                        mLargeFile.delete();
+                    }
+                    mContent = null;
+                    mLargeFile = result.first;
+                    if (result.second.isPresent()) {
+                        mHighlightStart = result.second.get()[0];
+                        mHighlightEnd = result.second.get()[1];
+                    }
+                    onDataReady();
+                    setContentEmpty(false);
+                    supportInvalidateOptionsMenu();
+                }, this::handleLoadFailure);
+    }
+
+    private void loadImage(boolean force) {
+        RawContentService service = ServiceFactory.get(RawContentService.class, force);
+        service.getRawContents(mRepoOwner, mRepoName, mPath, mRef)
+                .map(ApiHelpers::throwOnFailure)
+                .map(body -> {
+                    try {
+                        return Optional.ofWithNull(
+                                LargeImageFile.create(body.source(), IMAGE_PREVIEW_MAX_SIZE));
+                    } finally {
+                        body.close();
+                    }
+                })
+                .compose(makeLoaderSingle(ID_LOADER_IMAGE, force))
+                .subscribe(result -> {
+                    if (mImage != null && mImage != result.orNull()) {
+                        mImage.release();
+                        mImage = null;
+                    }
+                    if (!result.isPresent()) {
+                        // not an image we can decode, e.g. a Git LFS pointer file
+                        loadFile(force);
+                        return;
+                    }
+                    mImage = result.get();
+                    if (mImageView == null) {
+                        mImageView = (TiledImageView)
+                                inflateNativeContent(R.layout.tiled_image_viewer);
+                    }
+                    mImageView.setImage(mImage);
+                    onNativeContentReady(mImageView);
+                }, this::handleLoadFailure);
+    }
 }
@@ -234,7 +234,7 @@ public class PullRequestActivity extends BaseFragmentPagerActivity implements
         } else if (requestCode == REQUEST_CREATE_REVIEW) {
             if (resultCode == Activity.RESULT_OK) {
                 if (mPullRequestFragment != null) {
-                    mPullRequestFragment.reloadEvents(false);
+                    mPullRequestFragment.reloadEvents();
                 }
                 loadPendingReview(true);
             }
@@ -329,7 +329,7 @@ public class PullRequestActivity extends BaseFragmentPagerActivity implements
     @Override
     public void onCommentsUpdated() {
         if (mPullRequestFragment != null) {
-            mPullRequestFragment.reloadEvents(true);
+            mPullRequestFragment.reloadEvents();
         }
     }
 
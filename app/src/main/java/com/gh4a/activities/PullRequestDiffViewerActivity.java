@@ -22,8 +22,10 @@ import android.os.Bundle;
 import com.gh4a.ServiceFactory;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.IntentUtils;
+import com.gh4a.utils.RequestCoalescer;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.widget.ReactionBar;
+import com.meisolsson.githubsdk.model.GitHubFile;
 import com.meisolsson.githubsdk.model.PositionalCommentBase;
 import com.meisolsson.githubsdk.model.Reaction;
 import com.meisolsson.githubsdk.model.Reactions;
@@ -31,6 +33,7 @@ import com.meisolsson.githubsdk.model.ReviewComment;
 import com.meisolsson.githubsdk.model.request.ReactionRequest;
 import com.meisolsson.githubsdk.service.reactions.ReactionService;
 import com.meisolsson.githubsdk.service.pull_request.PullRequestReviewCommentService;
+import com.meisolsson.githubsdk.service.pull_request.PullRequestService;
 
 import java.util.List;
 
@@ -77,6 +80,16 @@ public class PullRequestDiffViewerActivity extends DiffViewerActivity<ReviewComm
                 .compose(RxUtils.filter(c -> c.position() != null));
     }
 
+    @Override
+    protected Single<List<GitHubFile>> createFileListSingle(boolean bypassCache) {
+        final PullRequestService service = ServiceFactory.get(PullRequestService.class, bypassCache);
+        return ApiHelpers.PageIterator
+                .toSingle(page -> service.getPullRequestFiles(
+                        mRepoOwner, mRepoName, mPullRequestNumber, page),
+                        RequestCoalescer.makeKey("getPullRequestFiles", bypassCache,
+                                mRepoOwner, mRepoName, mPullRequestNumber));
+    }
+
     @Override
     protected String createUrl(String lineId, long replyId) {
         String link = "https://github.com/" + mRepoOwner + "/" + mRepoName + "/pull/"
@@ -309,6 +309,7 @@ public class RepositoryActivity extends BaseFragmentPagerActivity implements
             menu.removeItem(R.id.ref);
             menu.removeItem(R.id.bookmark);
             menu.removeItem(R.id.zip_download);
+            menu.removeItem(R.id.find_file);
         } else {
             MenuItem bookmarkAction = menu.findItem(R.id.bookmark);
             if (bookmarkAction != null) {
@@ -354,6 +355,10 @@ public class RepositoryActivity extends BaseFragmentPagerActivity implements
                 startActivity(SearchActivity.makeIntent(this,
                         initialSearch, SearchActivity.SEARCH_TYPE_CODE));
                 return true;
+            case R.id.find_file:
+                startActivity(FileFinderActivity.makeIntent(this,
+                        mRepoOwner, mRepoName, getCurrentRef()));
+                return true;
             case R.id.bookmark:
                 String bookmarkUrl = getBookmarkUrl();
                 if (BookmarksProvider.hasBookmarked(this, bookmarkUrl)) {
@@ -22,22 +22,25 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
-import android.content.res.AssetManager;
 import android.graphics.Point;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.print.PrintAttributes;
 import android.print.PrintDocumentAdapter;
 import android.print.PrintManager;
+import android.support.annotation.LayoutRes;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.ContextThemeWrapper;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.webkit.JavascriptInterface;
 import android.webkit.WebResourceRequest;
 import android.webkit.WebSettings;
@@ -45,15 +48,18 @@ import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
 import com.gh4a.BaseActivity;
+import com.gh4a.BuildConfig;
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
 import com.gh4a.fragment.SettingsFragment;
 import com.gh4a.utils.FileUtils;
+import com.gh4a.utils.LargeTextFile;
+import com.gh4a.utils.StringUtils;
 import com.gh4a.utils.UiUtils;
 import com.gh4a.widget.SwipeRefreshLayout;
 
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
 
 public abstract class WebViewerActivity extends BaseActivity implements
         SwipeRefreshLayout.ChildScrollDelegate, View.OnTouchListener {
@@ -62,18 +68,57 @@ public abstract class WebViewerActivity extends BaseActivity implements
 
     private WebView mWebView;
     private WebView mPrintWebView;
+    private View mNativeContentView;
     private boolean mStarted;
     private boolean mHasData;
     private boolean mRequiresJsInterface;
     private boolean mPageFinished;
     private boolean mRenderingDone;
+    private long mDataReadyTime;
+    private int mHtmlLength;
     private final Handler mHandler = new Handler();
 
     public static final String DARK_CSS_THEME = "dark";
     public static final String LIGHT_CSS_THEME = "light";
     public static final String PRINT_CSS_THEME = "print";
 
-    private static final ArrayList<String> sLanguagePlugins = new ArrayList<>();
+    private static final HashMap<String, String> sLanguagePluginsByExtension = new HashMap<>();
+
+    static {
+        addLanguagePlugin("apollo", "apollo", "agc", "aea");
+        addLanguagePlugin("basic", "basic", "cbm");
+        addLanguagePlugin("clj", "clj");
+        // markup may embed style sheets
+        addLanguagePlugin("css", "css", "htm", "html", "mxml", "xhtml", "xml", "xsl");
+        addLanguagePlugin("dart", "dart");
+        addLanguagePlugin("erlang", "erlang", "erl");
+        addLanguagePlugin("go", "go");
+        addLanguagePlugin("hs", "hs");
+        addLanguagePlugin("lasso", "lasso", "ls", "lassoscript");
+        addLanguagePlugin("lisp", "cl", "el", "lisp", "lsp", "scm", "ss", "rkt");
+        addLanguagePlugin("llvm", "llvm", "ll");
+        addLanguagePlugin("logtalk", "logtalk", "lgt");
+        addLanguagePlugin("lua", "lua");
+        addLanguagePlugin("matlab", "matlab");
+        addLanguagePlugin("ml", "fs", "ml");
+        addLanguagePlugin("mumps", "mumps");
+        addLanguagePlugin("n", "n", "nemerle");
+        addLanguagePlugin("pascal", "pascal");
+        addLanguagePlugin("proto", "proto");
+        addLanguagePlugin("r", "r", "s", "R", "S", "Splus");
+        addLanguagePlugin("rd", "Rd", "rd");
+        addLanguagePlugin("rust", "rust");
+        addLanguagePlugin("scala", "scala");
+        addLanguagePlugin("sql", "sql");
+        addLanguagePlugin("swift", "swift");
+        addLanguagePlugin("tcl", "tcl");
+        addLanguagePlugin("tex", "latex", "tex");
+        addLanguagePlugin("vb", "vb", "vbs");
+        addLanguagePlugin("vhdl", "vhdl", "vhd");
+        addLanguagePlugin("wiki", "wiki");
+        addLanguagePlugin("xq", "xq", "xquery");
+        addLanguagePlugin("yaml", "yaml", "yml");
+    }
 
     private final int[] ZOOM_SIZES = new int[] {
         50, 75, 100, 150, 200
@@ -184,6 +229,11 @@ public abstract class WebViewerActivity extends BaseActivity implements
         if (!mHasData) {
             menu.removeItem(R.id.browser);
         }
+        if (mNativeContentView != null) {
+            // both only work on the web view
+            menu.removeItem(R.id.search);
+            menu.removeItem(R.id.wrap);
+        }
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && mHasData) {
             getMenuInflater().inflate(R.menu.print_menu, menu);
             if (mPrintWebView != null) {
@@ -301,7 +351,18 @@ public abstract class WebViewerActivity extends BaseActivity implements
         if (mPageFinished && (mRenderingDone || !mRequiresJsInterface)) {
             applyLineWrapping(shouldWrapLines());
             setContentShown(true);
+            logRenderingTime();
+        }
+    }
+
+    private void logRenderingTime() {
+        if (BuildConfig.DEBUG && mDataReadyTime != 0) {
+            Log.d(Gh4Application.LOG_TAG, String.format(Locale.US,
+                    "%s: rendering %d characters of HTML took %d ms",
+                    getClass().getSimpleName(), mHtmlLength,
+                    SystemClock.uptimeMillis() - mDataReadyTime));
         }
+        mDataReadyTime = 0;
     }
 
     protected boolean shouldWrapLines() {
@@ -346,30 +407,59 @@ public abstract class WebViewerActivity extends BaseActivity implements
             mWebView.addJavascriptInterface(new DisplayJavascriptInterface(), "NativeClient");
         }
         mWebView.loadDataWithBaseURL("file:///android_asset/", html, null, "utf-8", null);
+        mDataReadyTime = SystemClock.uptimeMillis();
+        mHtmlLength = html.length();
         mHasData = true;
         supportInvalidateOptionsMenu();
     }
 
-    private void loadLanguagePluginListIfNeeded() {
-        if (!sLanguagePlugins.isEmpty()) {
-            return;
+    /**
+     * Whether the displayed document is fully loaded, so parts of it can be replaced with
+     * {@link #updateElement(String, String, String)} instead of regenerating it.
+     */
+    protected boolean canUpdateElements() {
+        return mHasData && mPageFinished && mNativeContentView == null;
+    }
+
+    /**
+     * Replaces the element with the given ID in the displayed document, or removes it if
+     * the given HTML is empty. If there's no such element, the HTML is inserted after the
+     * element with the ID afterId. The document needs to include the codeutils and base64
+     * scripts.
+     */
+    protected void updateElement(String id, String afterId, String html) {
+        String script = "updateElement('" + id + "', "
+                + (afterId != null ? "'" + afterId + "'" : "null") + ", '"
+                + StringUtils.toBase64(html) + "')";
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            mWebView.evaluateJavascript(script, null);
+        } else {
+            mWebView.loadUrl("javascript:" + script);
         }
+    }
 
-        AssetManager am = getAssets();
-        try {
-            String[] files = am.list("");
-            for (String f : files) {
-                if (f.startsWith("lang-")) {
-                    int pos = f.lastIndexOf('.');
-                    if (pos > 0 && TextUtils.equals(f.substring(pos + 1), "js")) {
-                        sLanguagePlugins.add(f.substring(0, pos));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            // retry next time
-            sLanguagePlugins.clear();
+    /**
+     * Inflates a view to be shown instead of the web view, for content that is too large
+     * to be rendered as HTML in reasonable time. Once it's filled, it's shown by calling
+     * {@link #onNativeContentReady(View)} instead of {@link #onDataReady()}.
+     */
+    protected View inflateNativeContent(@LayoutRes int layoutResId) {
+        ViewGroup container = (ViewGroup) mWebView.getParent();
+        View view = getLayoutInflater().inflate(layoutResId, container, false);
+        container.addView(view, container.indexOfChild(mWebView) + 1);
+        view.setVisibility(View.GONE);
+        return view;
+    }
+
+    protected void onNativeContentReady(View view) {
+        if (mNativeContentView == null) {
+            mWebView.setVisibility(View.GONE);
+            view.setVisibility(View.VISIBLE);
+            mNativeContentView = view;
         }
+        mHasData = true;
+        setContentShown(true);
+        supportInvalidateOptionsMenu();
     }
 
     protected String generateMarkdownHtml(String base64Data,
@@ -430,11 +520,7 @@ public abstract class WebViewerActivity extends BaseActivity implements
         writeScriptInclude(content, "codeutils");
 
         writeCssInclude(content, "prettify", cssTheme);
-        writeScriptInclude(content, "prettify");
-        loadLanguagePluginListIfNeeded();
-        for (String plugin : sLanguagePlugins) {
-            writeScriptInclude(content, plugin);
-        }
+        writeLanguageScriptIncludes(content, ext);
         content.append("</head>");
         content.append("<body onload='prettyPrint(function() { highlightLines(");
         content.append(highlightStart).append(",").append(highlightEnd).append("); ");
@@ -453,6 +539,72 @@ public abstract class WebViewerActivity extends BaseActivity implements
         return content.toString();
     }
 
+    /**
+     * Like {@link #generateCodeHtml(String, String, int, int, String, boolean)}, but only
+     * renders the chunks of the file which are visible, requesting their contents from
+     * {@link #getContentChunk(int)} on demand. As each chunk is highlighted separately,
+     * constructs spanning multiple chunks may not be highlighted correctly, and lines
+     * split across chunks are shown as multiple lines sharing the same number.
+     */
+    protected String generateChunkedCodeHtml(String fileName, LargeTextFile file,
+            int highlightStart, int highlightEnd, String cssTheme) {
+        String ext = FileUtils.getFileExtension(fileName);
+        StringBuilder content = new StringBuilder();
+        content.append("<html><head>");
+        writeScriptInclude(content, "codeutils");
+        writeCssInclude(content, "prettify", cssTheme);
+        writeLanguageScriptIncludes(content, ext);
+        content.append("<style type='text/css'>pre.prettyprint { margin: 0 } ");
+        content.append("ol.linenums li.continued { counter-increment: none } ");
+        content.append("ol.linenums li.continued:before { content: '' }</style>");
+        // [first line, line count, whether the first line continues the previous chunk]
+        content.append("<script type='text/javascript'>var chunkLayout = [");
+        for (int i = 0; i < file.getChunkCount(); i++) {
+            if (i > 0) {
+                content.append(",");
+            }
+            content.append("[").append(file.getChunkFirstLine(i) + 1);
+            content.append(",").append(file.getChunkLineCount(i));
+            content.append(",").append(file.isChunkContinuingLine(i)).append("]");
+        }
+        content.append("];</script>");
+        content.append("</head>");
+        content.append("<body onload='setupChunkedContent(chunkLayout,\"");
+        content.append(ext.replaceAll("\\W", "")).append("\",");
+        content.append(highlightStart).append(",").append(highlightEnd).append("); ");
+        content.append("NativeClient.onRenderingDone();'");
+        content.append(" onresize='scrollToHighlight();'>");
+        content.append("<div id='content'></div></body></html>");
+
+        mRequiresJsInterface = true;
+        return content.toString();
+    }
+
+    /**
+     * Provides the HTML encoded contents of a chunk of a document generated by
+     * {@link #generateChunkedCodeHtml(String, LargeTextFile, int, int, String)}.
+     * Called on a background thread.
+     */
+    protected String getContentChunk(int chunk) {
+        return null;
+    }
+
+    private void writeLanguageScriptIncludes(StringBuilder content, String ext) {
+        writeScriptInclude(content, "prettify");
+        // the map contains all extensions the plugins register, so no plugin could handle
+        // other extensions and prettify falls back to its default highlighting for them
+        String plugin = sLanguagePluginsByExtension.get(ext);
+        if (plugin != null) {
+            writeScriptInclude(content, plugin);
+        }
+    }
+
+    private static void addLanguagePlugin(String plugin, String... extensions) {
+        for (String extension : extensions) {
+            sLanguagePluginsByExtension.put(extension, "lang-" + plugin);
+        }
+    }
+
     protected static String wrapUnthemedHtml(String html, String cssTheme, String title) {
         String style = TextUtils.equals(cssTheme, DARK_CSS_THEME)
                 ? "<style type=\"text/css\">" +
@@ -493,6 +645,11 @@ public abstract class WebViewerActivity extends BaseActivity implements
             mHandler.post(() -> WebViewerActivity.this.onLineTouched(line, mLastTouchDown.x, mLastTouchDown.y));
         }
 
+        @JavascriptInterface
+        public String getChunk(int chunk) {
+            return getContentChunk(chunk);
+        }
+
         @JavascriptInterface
         public void onRenderingDone() {
             mHandler.post(() -> {
@@ -97,6 +97,11 @@ public class CommitAdapter extends RootAdapter<Commit, CommitAdapter.ViewHolder>
         }
     }
 
+    @Override
+    protected Object getItemKey(Commit commit) {
+        return commit.sha();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -48,11 +48,13 @@ import com.meisolsson.githubsdk.model.git.GitComment;
 import com.meisolsson.githubsdk.model.request.ReactionRequest;
 import com.meisolsson.githubsdk.service.reactions.ReactionService;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 public class CommitNoteAdapter extends RootAdapter<GitComment, CommitNoteAdapter.ViewHolder>
@@ -131,13 +133,30 @@ public class CommitNoteAdapter extends RootAdapter<GitComment, CommitNoteAdapter
         return users;
     }
 
-    @Override
-    public void clear() {
-        super.clear();
+    public void clearCaches() {
         mImageGetter.clearHtmlCache();
         mReactionDetailsCache.clear();
     }
 
+    @Override
+    public Completable prepareItems(Collection<GitComment> items) {
+        encodeInBackground(items);
+        return super.prepareItems(items);
+    }
+
+    @Override
+    public void setItems(Collection<GitComment> items) {
+        encodeInBackground(items);
+        super.setItems(items);
+    }
+
+    // does nothing for items whose HTML is already cached or being encoded
+    private void encodeInBackground(Collection<GitComment> items) {
+        for (GitComment item : items) {
+            mImageGetter.encodeInBackground(mContext, item.id(), item.bodyHtml());
+        }
+    }
+
     @Override
     public void onClick(View v) {
         if (v.getId() == R.id.iv_gravatar) {
@@ -233,6 +252,11 @@ public class CommitNoteAdapter extends RootAdapter<GitComment, CommitNoteAdapter
         notifyItemChanged(holder.getAdapterPosition());
     }
 
+    @Override
+    protected Object getItemKey(GitComment comment) {
+        return comment.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder implements
             View.OnClickListener, PopupMenu.OnMenuItemClickListener, ReactionBar.Item {
         private interface Callback {
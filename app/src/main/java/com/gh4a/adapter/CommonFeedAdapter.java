@@ -91,6 +91,11 @@ public class CommonFeedAdapter extends RootAdapter<Feed, CommonFeedAdapter.ViewH
         }
     }
 
+    @Override
+    protected Object getItemKey(Feed feed) {
+        return feed.getId();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -51,6 +51,11 @@ public class ContributorAdapter extends RootAdapter<User, ContributorAdapter.Vie
         }
     }
 
+    @Override
+    protected Object getItemKey(User user) {
+        return user.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
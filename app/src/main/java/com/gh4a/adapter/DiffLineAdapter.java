@@ -0,0 +1,272 @@
+package com.gh4a.adapter;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Typeface;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.widget.RecyclerView;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.gh4a.R;
+import com.gh4a.fragment.SettingsFragment;
+import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.DiffLineIndex;
+import com.gh4a.utils.HttpImageGetter;
+import com.gh4a.utils.StringUtils;
+import com.gh4a.utils.UiUtils;
+import com.gh4a.widget.ReactionBar;
+import com.meisolsson.githubsdk.model.PositionalCommentBase;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shows a diff line by line, followed by the comments made on each line. Only the lines
+ * which are actually displayed are extracted from the diff, so it's suitable for diffs
+ * which are too large to be rendered as a whole.
+ */
+public class DiffLineAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    public interface Callback {
+        void onLineClicked(int line);
+        void onCommentClicked(int line, PositionalCommentBase comment);
+    }
+
+    private static final float[] TEXT_SIZE_MULTIPLIERS = new float[] {
+            0.5F, 0.75F, 1F, 1.5F, 2F
+    };
+
+    private static final int VIEW_TYPE_LINE = 0;
+    private static final int VIEW_TYPE_COMMENT = 1;
+
+    private final Context mContext;
+    private final LayoutInflater mInflater;
+    private final DiffLineIndex mLines;
+    private final HttpImageGetter mImageGetter;
+    private final Callback mCallback;
+
+    private final int mAddedLineBackgroundColor;
+    private final int mRemovedLineBackgroundColor;
+    private final int mHunkHeaderBackgroundColor;
+    private final int mHighlightBackgroundColor;
+    private final int mSecondaryTextColor;
+    private final float mTextSizeMultiplier;
+
+    // diff line and comment for each comment, ordered by line
+    private int[] mCommentLines = new int[0];
+    private PositionalCommentBase[] mComments = new PositionalCommentBase[0];
+    // adapter position of each comment, strictly increasing
+    private int[] mCommentPositions = new int[0];
+    private long mHighlightedCommentId;
+    private int mHighlightStartLine = -1;
+    private int mHighlightEndLine = -1;
+
+    public DiffLineAdapter(Context context, DiffLineIndex lines, HttpImageGetter imageGetter,
+            Callback callback) {
+        mContext = context;
+        mInflater = LayoutInflater.from(context);
+        mLines = lines;
+        mImageGetter = imageGetter;
+        mCallback = callback;
+
+        mAddedLineBackgroundColor = UiUtils.resolveColor(context, R.attr.colorDiffAddBackground);
+        mRemovedLineBackgroundColor =
+                UiUtils.resolveColor(context, R.attr.colorDiffRemoveBackground);
+        mHunkHeaderBackgroundColor =
+                ContextCompat.getColor(context, R.color.diff_default_line_number_background);
+        mHighlightBackgroundColor =
+                UiUtils.resolveColor(context, R.attr.colorDiffHighlightBackground);
+        mSecondaryTextColor = UiUtils.resolveColor(context, android.R.attr.textColorSecondary);
+
+        SharedPreferences prefs = context.getSharedPreferences(SettingsFragment.PREF_NAME,
+                Context.MODE_PRIVATE);
+        int textSizeSetting = prefs.getInt(SettingsFragment.KEY_TEXT_SIZE, 2);
+        mTextSizeMultiplier = textSizeSetting >= 0 && textSizeSetting < TEXT_SIZE_MULTIPLIERS.length
+                ? TEXT_SIZE_MULTIPLIERS[textSizeSetting] : 1F;
+    }
+
+    /**
+     * @param commentsByLine Comments to show below each diff line
+     * @param highlightedCommentId ID of the comment to highlight, or 0
+     */
+    public void setComments(SparseArray<List<PositionalCommentBase>> commentsByLine,
+            long highlightedCommentId) {
+        int count = 0;
+        for (int i = 0; i < commentsByLine.size(); i++) {
+            int line = commentsByLine.keyAt(i);
+            if (line >= 0 && line < mLines.getLineCount()) {
+                count += commentsByLine.valueAt(i).size();
+            }
+        }
+
+        mCommentLines = new int[count];
+        mComments = new PositionalCommentBase[count];
+        mCommentPositions = new int[count];
+        int index = 0;
+        // keys of a SparseArray are sorted in ascending order
+        for (int i = 0; i < commentsByLine.size(); i++) {
+            int line = commentsByLine.keyAt(i);
+            if (line < 0 || line >= mLines.getLineCount()) {
+                continue;
+            }
+            for (PositionalCommentBase comment : commentsByLine.valueAt(i)) {
+                mCommentLines[index] = line;
+                mComments[index] = comment;
+                mCommentPositions[index] = line + index + 1;
+                index++;
+            }
+        }
+        mHighlightedCommentId = highlightedCommentId;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Highlights the given range of diff lines, both inclusive.
+     */
+    public void setHighlightRange(int startLine, int endLine) {
+        mHighlightStartLine = startLine;
+        mHighlightEndLine = endLine;
+        notifyDataSetChanged();
+    }
+
+    public int getPositionForLine(int line) {
+        // comments are shown after their line, so only count those of preceding lines
+        int index = Arrays.binarySearch(mCommentLines, line);
+        if (index < 0) {
+            return line - index - 1;
+        }
+        while (index > 0 && mCommentLines[index - 1] == line) {
+            index--;
+        }
+        return line + index;
+    }
+
+    public int getPositionForComment(long id) {
+        for (int i = 0; i < mComments.length; i++) {
+            if (mComments[i].id() == id) {
+                return mCommentPositions[i];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mLines.getLineCount() + mComments.length;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return Arrays.binarySearch(mCommentPositions, position) >= 0
+                ? VIEW_TYPE_COMMENT : VIEW_TYPE_LINE;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_COMMENT) {
+            return new CommentViewHolder(mInflater.inflate(R.layout.row_diff_comment, parent, false));
+        }
+        return new LineViewHolder(mInflater.inflate(R.layout.row_diff_line, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        int commentIndex = Arrays.binarySearch(mCommentPositions, position);
+        if (commentIndex >= 0) {
+            ((CommentViewHolder) holder).bind(mCommentLines[commentIndex], mComments[commentIndex]);
+        } else {
+            // the insertion point is the number of comments preceding the line
+            ((LineViewHolder) holder).bind(position + commentIndex + 1);
+        }
+    }
+
+    private class LineViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        private final TextView mTextView;
+        private final float mInitialTextSize;
+        private int mLine;
+
+        public LineViewHolder(View view) {
+            super(view);
+            mTextView = (TextView) view;
+            mTextView.setOnClickListener(this);
+            mInitialTextSize = mTextView.getTextSize();
+            mTextView.setTextSize(TypedValue.COMPLEX_UNIT_PX,
+                    mInitialTextSize * mTextSizeMultiplier);
+        }
+
+        public void bind(int line) {
+            mLine = line;
+            mTextView.setText(mLines.getLine(line));
+
+            int lineType = mLines.getLineType(line);
+            int backgroundColor = 0;
+            if (line >= mHighlightStartLine && line <= mHighlightEndLine) {
+                backgroundColor = mHighlightBackgroundColor;
+            } else if (lineType == DiffLineIndex.TYPE_ADD) {
+                backgroundColor = mAddedLineBackgroundColor;
+            } else if (lineType == DiffLineIndex.TYPE_REMOVE) {
+                backgroundColor = mRemovedLineBackgroundColor;
+            } else if (lineType == DiffLineIndex.TYPE_HUNK_HEADER) {
+                backgroundColor = mHunkHeaderBackgroundColor;
+            }
+            mTextView.setBackgroundColor(backgroundColor);
+        }
+
+        @Override
+        public void onClick(View view) {
+            mCallback.onLineClicked(mLine);
+        }
+    }
+
+    private class CommentViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener {
+        private final TextView mHeaderView;
+        private final TextView mBodyView;
+        private final ReactionBar mReactionBar;
+        private int mLine;
+        private PositionalCommentBase mComment;
+
+        public CommentViewHolder(View view) {
+            super(view);
+            view.setOnClickListener(this);
+            mHeaderView = view.findViewById(R.id.tv_header);
+            mBodyView = view.findViewById(R.id.tv_desc);
+            mReactionBar = view.findViewById(R.id.reactions);
+            mReactionBar.setCallback(null, null);
+        }
+
+        public void bind(int line, PositionalCommentBase comment) {
+            mLine = line;
+            mComment = comment;
+
+            String login = ApiHelpers.getUserLogin(mContext, comment.user());
+            String header = mContext.getString(R.string.commit_comment_header, login,
+                    StringUtils.formatRelativeTime(mContext, comment.createdAt(), true));
+            SpannableStringBuilder builder = new SpannableStringBuilder(header);
+            int loginStart = header.indexOf(login);
+            if (loginStart >= 0) {
+                builder.setSpan(new StyleSpan(Typeface.BOLD), loginStart,
+                        loginStart + login.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+            mHeaderView.setText(builder);
+            mHeaderView.setTextColor(mSecondaryTextColor);
+
+            mImageGetter.bind(mBodyView, comment.bodyHtml(), comment.id());
+            mReactionBar.setReactions(comment.reactions());
+            itemView.setBackgroundColor(comment.id() == mHighlightedCommentId
+                    ? mHighlightBackgroundColor : 0);
+        }
+
+        @Override
+        public void onClick(View view) {
+            mCallback.onCommentClicked(mLine, mComment);
+        }
+    }
+}
@@ -520,6 +520,11 @@ public class EventAdapter extends RootAdapter<GitHubEvent, EventAdapter.EventVie
         return mContext.getString(R.string.deleted);
     }
 
+    @Override
+    protected Object getItemKey(GitHubEvent event) {
+        return event.id();
+    }
+
     /**
      * The Class ViewHolder.
      */
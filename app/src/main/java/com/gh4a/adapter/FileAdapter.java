@@ -81,6 +81,11 @@ public class FileAdapter extends RootAdapter<Content, FileAdapter.ViewHolder> {
         return UiUtils.resolveDrawable(mContext, iconId);
     }
 
+    @Override
+    protected Object getItemKey(Content content) {
+        return content.path();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -0,0 +1,44 @@
+package com.gh4a.adapter;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.gh4a.R;
+import com.gh4a.utils.FileUtils;
+import com.gh4a.utils.UiUtils;
+
+public class FilePathAdapter extends RootAdapter<String, FilePathAdapter.ViewHolder> {
+    public FilePathAdapter(Context context) {
+        super(context);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(LayoutInflater inflater, ViewGroup parent, int viewType) {
+        View v = inflater.inflate(R.layout.row_file_manager, parent, false);
+        return new ViewHolder(v);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, String path) {
+        int iconId = FileUtils.isImage(path) ? R.attr.contentPictureIcon : R.attr.fileIcon;
+        holder.icon.setBackgroundResource(UiUtils.resolveDrawable(mContext, iconId));
+        holder.path.setText(path);
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        private ViewHolder(View view) {
+            super(view);
+            icon = view.findViewById(R.id.iv_icon);
+            path = view.findViewById(R.id.tv_text);
+            view.findViewById(R.id.tv_size).setVisibility(View.GONE);
+        }
+
+        private final ImageView icon;
+        private final TextView path;
+    }
+}
@@ -64,6 +64,11 @@ public class GistAdapter extends RootAdapter<Gist, GistAdapter.ViewHolder> {
         holder.tvPrivate.setVisibility(gist.isPublic() ? View.GONE : View.VISIBLE);
     }
 
+    @Override
+    protected Object getItemKey(Gist gist) {
+        return gist.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -85,6 +85,11 @@ public class IssueAdapter extends RootAdapter<Issue, IssueAdapter.ViewHolder> {
         }
     }
 
+    @Override
+    protected Object getItemKey(Issue issue) {
+        return issue.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
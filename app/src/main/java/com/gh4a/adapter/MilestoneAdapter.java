@@ -72,6 +72,11 @@ public class MilestoneAdapter extends RootAdapter<Milestone, MilestoneAdapter.Vi
         }
     }
 
+    @Override
+    protected Object getItemKey(Milestone milestone) {
+        return milestone.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
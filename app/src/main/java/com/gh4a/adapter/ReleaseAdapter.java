@@ -45,6 +45,11 @@ public class ReleaseAdapter extends RootAdapter<Release, ReleaseAdapter.ViewHold
         return mContext.getString(R.string.release_type_final);
     }
 
+    @Override
+    protected Object getItemKey(Release release) {
+        return release.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
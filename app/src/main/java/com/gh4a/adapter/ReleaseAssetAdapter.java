@@ -39,6 +39,11 @@ public class ReleaseAssetAdapter extends RootAdapter<ReleaseAsset, ReleaseAssetA
         holder.tvDownloads.setText(String.valueOf(asset.downloadCount()));
     }
 
+    @Override
+    protected Object getItemKey(ReleaseAsset asset) {
+        return asset.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -72,6 +72,11 @@ public class RepositoryAdapter extends RootAdapter<Repository, RepositoryAdapter
         return name.contains(lcFilter);
     }
 
+    @Override
+    protected Object getItemKey(Repository repository) {
+        return repository.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener,
             View.OnTouchListener {
         private ViewHolder(View view) {
@@ -17,6 +17,8 @@ package com.gh4a.adapter;
 
 import android.content.Context;
 import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -25,10 +27,16 @@ import android.view.ViewGroup;
 import android.widget.Filter;
 import android.widget.Filterable;
 
+import com.gh4a.utils.AppSchedulers;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+
 /**
  * The Root adapter.
  *
@@ -43,6 +51,9 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     public interface OnScrolledToFooterListener {
         void onScrolledToFooter();
     }
+    public interface OnScrolledToHeaderListener {
+        void onScrolledToHeader();
+    }
 
     /**
      * The objects.
@@ -59,10 +70,15 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     private boolean mContextMenuSupported;
 
     private View mHeaderView;
+    private OnScrolledToHeaderListener mHeaderListener;
     private View mFooterView;
     private OnScrolledToFooterListener mFooterListener;
     private int mHighlightPosition = -1;
     private boolean mHolderCreated = false;
+    private boolean mIsFiltered;
+    // incremented on every change of the items, used to detect stale prepared updates
+    private int mModificationCount;
+    private PreparedUpdate<T> mPreparedUpdate;
 
     private static final int VIEW_TYPE_HEADER = 0;
     private static final int VIEW_TYPE_FOOTER = 1;
@@ -70,6 +86,9 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
 
     protected static final int CUSTOM_VIEW_TYPE_START = VIEW_TYPE_ITEM;
 
+    // larger lists are only diffed if prepared in the background
+    private static final int MAX_SYNCHRONOUS_DIFF_SIZE = 200;
+
     private final Filter mFilter = new Filter() {
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
@@ -94,6 +113,8 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
             mObjects = (List<T>) results.values;
+            mIsFiltered = !TextUtils.isEmpty(constraint);
+            mModificationCount++;
             notifyDataSetChanged();
         }
     };
@@ -111,7 +132,12 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     }
 
     public void setHeaderView(View headerView) {
+        setHeaderView(headerView, null);
+    }
+
+    public void setHeaderView(View headerView, OnScrolledToHeaderListener headerListener) {
         mHeaderView = headerView;
+        mHeaderListener = headerListener;
         notifyDataSetChanged();
     }
 
@@ -176,12 +202,14 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     public void add(T object) {
         mUnfilteredObjects.add(object);
         mObjects.add(object);
+        mModificationCount++;
     }
 
     public void addAll(Collection<T> objects) {
         if (objects != null) {
             mUnfilteredObjects.addAll(objects);
             mObjects.addAll(objects);
+            mModificationCount++;
             notifyDataSetChanged();
         }
     }
@@ -189,15 +217,120 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
     public void remove(T object) {
         mUnfilteredObjects.remove(object);
         mObjects.remove(object);
+        mModificationCount++;
         notifyDataSetChanged();
     }
 
     public void clear() {
         mUnfilteredObjects.clear();
         mObjects.clear();
+        mModificationCount++;
         notifyDataSetChanged();
     }
 
+    /**
+     * Calculates the changes needed to replace the current items by the given ones in the
+     * background, so that a following {@link #setItems(Collection)} call with the same items
+     * doesn't need to do so on the UI thread. Must be called from the UI thread.
+     */
+    public Completable prepareItems(Collection<T> items) {
+        final List<T> oldItems = new ArrayList<>(mUnfilteredObjects);
+        final List<T> newItems = new ArrayList<>(items);
+        final int modificationCount = mModificationCount;
+        return Single.fromCallable(() -> calculateDiff(oldItems, newItems))
+                .subscribeOn(AppSchedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnSuccess(result -> {
+                    mPreparedUpdate = new PreparedUpdate<>(newItems, result, modificationCount);
+                })
+                .toCompletable();
+    }
+
+    /**
+     * Replaces the current items by the given ones, notifying about the inserted, removed,
+     * moved and changed items only, so unchanged items are neither rebound nor lose their
+     * state. Items are matched by {@link #getItemKey(Object)}.
+     */
+    public void setItems(Collection<T> items) {
+        List<T> newItems = new ArrayList<>(items);
+        PreparedUpdate<T> update = mPreparedUpdate;
+        mPreparedUpdate = null;
+
+        // while filtered, the displayed positions don't match the unfiltered items
+        DiffUtil.DiffResult result = null;
+        if (!mIsFiltered) {
+            if (update != null && update.mModificationCount == mModificationCount
+                    && update.mItems.equals(newItems)) {
+                result = update.mResult;
+            } else if (!mUnfilteredObjects.isEmpty() && !newItems.isEmpty()
+                    && mUnfilteredObjects.size() + newItems.size() <= MAX_SYNCHRONOUS_DIFF_SIZE) {
+                result = calculateDiff(mUnfilteredObjects, newItems);
+            }
+        }
+
+        mUnfilteredObjects.clear();
+        mUnfilteredObjects.addAll(newItems);
+        if (mObjects != mUnfilteredObjects) {
+            mObjects.clear();
+            mObjects.addAll(newItems);
+        }
+        mIsFiltered = false;
+        mModificationCount++;
+
+        if (result != null) {
+            final int offset = mHeaderView != null ? 1 : 0;
+            result.dispatchUpdatesTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    notifyItemRangeInserted(position + offset, count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    notifyItemRangeRemoved(position + offset, count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    notifyItemMoved(fromPosition + offset, toPosition + offset);
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    notifyItemRangeChanged(position + offset, count, payload);
+                }
+            });
+        } else {
+            notifyDataSetChanged();
+        }
+    }
+
+    private DiffUtil.DiffResult calculateDiff(final List<T> oldItems, final List<T> newItems) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                Object oldKey = getItemKey(oldItems.get(oldItemPosition));
+                Object newKey = getItemKey(newItems.get(newItemPosition));
+                return oldKey != null && oldKey.equals(newKey);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldItems.get(oldItemPosition).equals(newItems.get(newItemPosition));
+            }
+        });
+    }
+
     public void highlight(int position) {
         mHighlightPosition = position;
         notifyDataSetChanged();
@@ -230,7 +363,11 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
             if (mFooterListener != null) {
                 mFooterListener.onScrolledToFooter();
             }
-        } else if (!(holder instanceof HeaderViewHolder)) {
+        } else if (holder instanceof HeaderViewHolder) {
+            if (mHeaderListener != null) {
+                mHeaderListener.onScrolledToHeader();
+            }
+        } else {
             onBindViewHolder((VH) holder, getItemFromAdapterPosition(position));
             if (position == mHighlightPosition) {
                 final View v = holder.itemView;
@@ -267,6 +404,16 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         return VIEW_TYPE_ITEM;
     }
 
+    /**
+     * Returns a key identifying the given item across reloads, e.g. its ID. Items with equal
+     * keys are considered the same item in {@link #setItems(Collection)}, and are rebound
+     * only if they're not equal. Defaults to the item itself. May be called from
+     * background threads.
+     */
+    protected Object getItemKey(T item) {
+        return item;
+    }
+
     @Override
     public Filter getFilter() {
         return mFilter;
@@ -276,6 +423,18 @@ public abstract class RootAdapter<T, VH extends RecyclerView.ViewHolder>
         return false;
     }
 
+    private static class PreparedUpdate<T> {
+        private final List<T> mItems;
+        private final DiffUtil.DiffResult mResult;
+        private final int mModificationCount;
+
+        PreparedUpdate(List<T> items, DiffUtil.DiffResult result, int modificationCount) {
+            mItems = items;
+            mResult = result;
+            mModificationCount = modificationCount;
+        }
+    }
+
     private static class HeaderViewHolder extends RecyclerView.ViewHolder {
         public HeaderViewHolder(View v) {
             super(v);
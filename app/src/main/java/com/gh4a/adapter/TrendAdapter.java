@@ -62,6 +62,11 @@ public class TrendAdapter extends RootAdapter<Trend, TrendAdapter.ViewHolder> {
         holder.tvForks.setText(String.valueOf(trend.getForks()));
     }
 
+    @Override
+    protected Object getItemKey(Trend trend) {
+        return trend.getRepoOwner() + "/" + trend.getRepoName();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
@@ -60,6 +60,11 @@ public class UserAdapter extends RootAdapter<User, UserAdapter.ViewHolder> {
         }
     }
 
+    @Override
+    protected Object getItemKey(User user) {
+        return user.id();
+    }
+
     public static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(View view) {
             super(view);
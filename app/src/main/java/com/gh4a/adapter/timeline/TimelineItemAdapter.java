@@ -3,6 +3,7 @@ package com.gh4a.adapter.timeline;
 import android.content.Context;
 import android.content.Intent;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -17,6 +18,7 @@ import com.gh4a.widget.ReactionBar;
 import com.meisolsson.githubsdk.model.GitHubCommentBase;
 import com.meisolsson.githubsdk.model.Reaction;
 import com.meisolsson.githubsdk.model.Reactions;
+import com.meisolsson.githubsdk.model.Review;
 import com.meisolsson.githubsdk.model.User;
 
 import java.util.Collection;
@@ -24,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import io.reactivex.Completable;
 import io.reactivex.Single;
 
 public class TimelineItemAdapter
@@ -46,7 +49,6 @@ public class TimelineItemAdapter
             new ReactionBar.ReactionDetailsCache(this);
     private final OnCommentAction mActionCallback;
 
-    private boolean mDontClearCacheOnClear;
     private boolean mLocked;
 
     public interface OnCommentAction {
@@ -171,10 +173,6 @@ public class TimelineItemAdapter
         mImageGetter.resume();
     }
 
-    public void suppressCacheClearOnNextClear() {
-        mDontClearCacheOnClear = true;
-    }
-
     public Set<User> getUsers() {
         final HashSet<User> users = new HashSet<>();
         for (int i = 0; i < getCount(); i++) {
@@ -187,17 +185,30 @@ public class TimelineItemAdapter
     }
 
     @Override
-    public void clear() {
-        super.clear();
-        if (!mDontClearCacheOnClear) {
-            mImageGetter.clearHtmlCache();
-        }
+    public Completable prepareItems(Collection<TimelineItem> items) {
+        encodeInBackground(items);
+        return super.prepareItems(items);
     }
 
     @Override
-    public void addAll(Collection<TimelineItem> objects) {
-        mDontClearCacheOnClear = false;
-        super.addAll(objects);
+    public void setItems(Collection<TimelineItem> items) {
+        encodeInBackground(items);
+        super.setItems(items);
+    }
+
+    // does nothing for items whose HTML is already cached or being encoded
+    private void encodeInBackground(Collection<TimelineItem> items) {
+        for (TimelineItem item : items) {
+            if (item instanceof TimelineItem.TimelineComment) {
+                GitHubCommentBase comment = ((TimelineItem.TimelineComment) item).comment();
+                mImageGetter.encodeInBackground(mContext, comment.id(), comment.bodyHtml());
+            } else if (item instanceof TimelineItem.TimelineReview) {
+                Review review = ((TimelineItem.TimelineReview) item).review();
+                if (!TextUtils.isEmpty(review.body())) {
+                    mImageGetter.encodeInBackground(mContext, review.id(), review.bodyHtml());
+                }
+            }
+        }
     }
 
     @Override
@@ -254,6 +265,28 @@ public class TimelineItemAdapter
         return super.getItemViewType(item);
     }
 
+    @Override
+    protected Object getItemKey(TimelineItem item) {
+        if (item instanceof TimelineItem.TimelineComment) {
+            return "comment:" + ((TimelineItem.TimelineComment) item).comment().id();
+        }
+        if (item instanceof TimelineItem.TimelineEvent) {
+            return "event:" + ((TimelineItem.TimelineEvent) item).event.id();
+        }
+        if (item instanceof TimelineItem.TimelineReview) {
+            return "review:" + ((TimelineItem.TimelineReview) item).review().id();
+        }
+        // diff hunks and reply items have no ID of their own, so use the one of the
+        // comment they're derived from
+        if (item instanceof TimelineItem.Diff) {
+            return "diff:" + ((TimelineItem.Diff) item).getInitialComment().id();
+        }
+        if (item instanceof TimelineItem.Reply) {
+            return "reply:" + ((TimelineItem.Reply) item).timelineComment.comment().id();
+        }
+        return super.getItemKey(item);
+    }
+
     @Override
     public void onBindViewHolder(TimelineItemViewHolder holder, TimelineItem item) {
         switch (getItemViewType(item)) {
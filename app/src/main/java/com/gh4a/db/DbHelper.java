@@ -11,19 +11,36 @@ import java.net.URISyntaxException;
 
 public class DbHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "gh4adb.db";
-    private static final int DATABASE_VERSION = 4;
+    private static final int DATABASE_VERSION = 6;
 
     static final String BOOKMARKS_TABLE = "bookmarks";
     static final String SUGGESTIONS_TABLE = "suggestions";
+    static final String TIMELINE_CACHE_TABLE = "timeline_cache";
+    static final String REF_INDEX_TABLE = "ref_index";
+
+    private static DbHelper sInstance;
 
     public DbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    /**
+     * Returns a helper instance shared by all users of the database outside of the
+     * content providers, so they don't each keep their own connection open.
+     */
+    static synchronized DbHelper get(Context context) {
+        if (sInstance == null) {
+            sInstance = new DbHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         createBookmarksTable(db, BOOKMARKS_TABLE);
         createSuggestionsTable(db);
+        createTimelineCacheTable(db);
+        createRefIndexTable(db);
     }
 
     @Override
@@ -37,6 +54,12 @@ public class DbHelper extends SQLiteOpenHelper {
         if (oldVersion < 4) {
             addBookmarksOrderIdColumn(db);
         }
+        if (oldVersion < 5) {
+            createTimelineCacheTable(db);
+        }
+        if (oldVersion < 6) {
+            createRefIndexTable(db);
+        }
     }
 
     private void createBookmarksTable(SQLiteDatabase db, String tableName) {
@@ -58,6 +81,25 @@ public class DbHelper extends SQLiteOpenHelper {
                 + "unique (type, suggestion) on conflict replace);");
     }
 
+    private void createTimelineCacheTable(SQLiteDatabase db) {
+        db.execSQL("create table " + TIMELINE_CACHE_TABLE + " ("
+                + "_id integer primary key autoincrement, "
+                + "issue text not null, "
+                + "name text not null, "
+                + "data text not null, "
+                + "date long, "
+                + "unique (issue, name) on conflict replace);");
+    }
+
+    private void createRefIndexTable(SQLiteDatabase db) {
+        db.execSQL("create table " + REF_INDEX_TABLE + " ("
+                + "_id integer primary key autoincrement, "
+                + "repo text not null, "
+                + "refs text not null, "
+                + "date long, "
+                + "unique (repo) on conflict replace);");
+    }
+
     private void updateBookmarkUris(SQLiteDatabase db) {
         Cursor c = db.query(BOOKMARKS_TABLE, new String[] { "_id", "uri", "extra_data" },
                 null, null, null, null, null);
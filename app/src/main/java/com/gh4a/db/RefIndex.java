@@ -0,0 +1,149 @@
+package com.gh4a.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.util.LruCache;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.Pair;
+
+import com.gh4a.Gh4Application;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisted set of the branch and tag names of a repository, used to split
+ * 'ref/path' strings of URLs without listing all refs of the repository every time.
+ *
+ * All methods may access the database and thus must not be called from the UI thread.
+ */
+public class RefIndex {
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    private static final LruCache<String, RefIndex> sLoadedIndexes = new LruCache<>(10);
+
+    private final String mRepoKey;
+    private final HashSet<String> mRefs;
+    private final long mDate;
+
+    @VisibleForTesting
+    RefIndex(String repoKey, Collection<String> refs, long date) {
+        mRepoKey = repoKey;
+        mRefs = new HashSet<>(refs);
+        mDate = date;
+    }
+
+    /**
+     * @return The index of the given repository, or null if there's none
+     *         or it's too old to be used
+     */
+    public static RefIndex get(Context context, String repoOwner, String repoName) {
+        String repoKey = makeKey(repoOwner, repoName);
+        RefIndex index = sLoadedIndexes.get(repoKey);
+        if (index == null) {
+            index = load(context, repoKey);
+            if (index != null) {
+                sLoadedIndexes.put(repoKey, index);
+            }
+        }
+        if (index != null && index.mDate < System.currentTimeMillis() - MAX_AGE_MILLIS) {
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Creates and persists the index of the given repository, replacing
+     * the previous one.
+     */
+    public static RefIndex create(Context context, String repoOwner, String repoName,
+            Collection<String> refs) {
+        String repoKey = makeKey(repoOwner, repoName);
+        RefIndex index = new RefIndex(repoKey, refs, System.currentTimeMillis());
+        sLoadedIndexes.put(repoKey, index);
+        index.store(DbHelper.get(context));
+        return index;
+    }
+
+    /**
+     * Finds the longest ref that 'ref/path' starts with.
+     *
+     * @return Pair of ref and path, with the path being null if the input is a ref
+     *         by itself, or null if none of the refs matches
+     */
+    public synchronized Pair<String, String> findRef(String refAndPath) {
+        String candidate = refAndPath;
+        while (true) {
+            if (mRefs.contains(candidate)) {
+                String path = candidate.length() < refAndPath.length()
+                        ? refAndPath.substring(candidate.length() + 1) : null;
+                return Pair.create(candidate, path);
+            }
+            int slashPos = candidate.lastIndexOf('/');
+            if (slashPos <= 0) {
+                return null;
+            }
+            candidate = candidate.substring(0, slashPos);
+        }
+    }
+
+    /**
+     * Adds a ref that was found to be missing from the index.
+     */
+    public void addRef(Context context, String ref) {
+        synchronized (this) {
+            if (!mRefs.add(ref)) {
+                return;
+            }
+        }
+        store(DbHelper.get(context));
+    }
+
+    private void store(DbHelper dbHelper) {
+        String refs;
+        synchronized (this) {
+            refs = TextUtils.join("\n", mRefs);
+        }
+        try {
+            ContentValues cv = new ContentValues();
+            cv.put("repo", mRepoKey);
+            cv.put("refs", refs);
+            cv.put("date", mDate);
+            SQLiteDatabase db = dbHelper.getWritableDatabase();
+            db.insert(DbHelper.REF_INDEX_TABLE, null, cv);
+            db.delete(DbHelper.REF_INDEX_TABLE, "date < ?",
+                    new String[] { String.valueOf(System.currentTimeMillis() - MAX_AGE_MILLIS) });
+        } catch (RuntimeException e) {
+            // failing to persist only means the refs need to be loaded again next time
+            Log.w(Gh4Application.LOG_TAG, "Could not store ref index for " + mRepoKey, e);
+        }
+    }
+
+    private static RefIndex load(Context context, String repoKey) {
+        SQLiteDatabase db = DbHelper.get(context).getReadableDatabase();
+        Cursor c = db.query(DbHelper.REF_INDEX_TABLE, new String[] { "refs", "date" },
+                "repo = ?", new String[] { repoKey }, null, null, null);
+        try {
+            if (!c.moveToFirst()) {
+                return null;
+            }
+            String refs = c.getString(0);
+            return new RefIndex(repoKey,
+                    Arrays.asList(TextUtils.split(refs, "\n")), c.getLong(1));
+        } finally {
+            c.close();
+        }
+    }
+
+    private static String makeKey(String repoOwner, String repoName) {
+        // repository names are case insensitive
+        return (repoOwner + "/" + repoName).toLowerCase(Locale.US);
+    }
+}
@@ -0,0 +1,132 @@
+package com.gh4a.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.gh4a.Gh4Application;
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Types;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+
+/**
+ * Persists the API data an issue or pull request timeline is built from, so that the
+ * timeline of a previously opened issue can be shown before it's reloaded from the network.
+ *
+ * An instance either serves data from the network, storing it as a side effect, or,
+ * if created as cache only, exclusively from the persisted data. The data is stored per
+ * logged in user, as it may include private repositories and per-user pending reviews.
+ */
+public class TimelineCache {
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(14);
+    // keeps rows well below the cursor window size
+    private static final int MAX_DATA_LENGTH = 500 * 1024;
+
+    private final DbHelper mDbHelper;
+    private final String mIssueKey;
+    private final boolean mCacheOnly;
+    private volatile boolean mHasChanges;
+
+    public TimelineCache(Context context, String repoOwner, String repoName, int issueNumber,
+            boolean cacheOnly) {
+        String login = Gh4Application.get().getAuthLogin();
+        mDbHelper = DbHelper.get(context);
+        mIssueKey = String.format(Locale.US, "%s:%s/%s/%d",
+                login != null ? login : "", repoOwner, repoName, issueNumber);
+        mCacheOnly = cacheOnly;
+    }
+
+    /**
+     * Removes all persisted timelines. Accesses the database, so it must not be called
+     * from the UI thread.
+     */
+    public static void clear(Context context) {
+        try {
+            DbHelper.get(context).getWritableDatabase()
+                    .delete(DbHelper.TIMELINE_CACHE_TABLE, null, null);
+        } catch (RuntimeException e) {
+            Log.w(Gh4Application.LOG_TAG, "Could not clear timeline cache", e);
+        }
+    }
+
+    /**
+     * Wraps a single loading one of the lists a timeline is assembled from.
+     * If the instance is cache only, the returned single emits the persisted list instead,
+     * or fails with {@link NoSuchElementException} if there's none.
+     *
+     * @param name Identifier of the list, unique within the issue
+     * @param itemClass Type of the list items
+     * @param source Single loading the list from the network
+     */
+    public <T> Single<List<T>> list(String name, Class<T> itemClass, Single<List<T>> source) {
+        JsonAdapter<List<T>> adapter = ServiceGenerator.moshi.adapter(
+                Types.newParameterizedType(List.class, itemClass));
+        if (mCacheOnly) {
+            return Single.fromCallable(() -> {
+                String data = load(name);
+                if (data == null) {
+                    throw new NoSuchElementException("No cached data for " + name);
+                }
+                return adapter.fromJson(data);
+            });
+        }
+        return source.doOnSuccess(result -> store(name, adapter.toJson(result)));
+    }
+
+    /**
+     * Whether any of the lists loaded from the network differed from the persisted data.
+     * Only meaningful after all singles returned by {@link #list} completed.
+     */
+    public boolean hasChanges() {
+        return mHasChanges;
+    }
+
+    private String load(String name) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor c = db.query(DbHelper.TIMELINE_CACHE_TABLE, new String[] { "data" },
+                "issue = ? and name = ?", new String[] { mIssueKey, name }, null, null, null);
+        try {
+            return c.moveToFirst() ? c.getString(0) : null;
+        } finally {
+            c.close();
+        }
+    }
+
+    private void store(String name, String data) {
+        try {
+            if (!data.equals(load(name))) {
+                mHasChanges = true;
+            }
+
+            SQLiteDatabase db = mDbHelper.getWritableDatabase();
+            if (data.length() > MAX_DATA_LENGTH) {
+                db.delete(DbHelper.TIMELINE_CACHE_TABLE, "issue = ? and name = ?",
+                        new String[] { mIssueKey, name });
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            ContentValues cv = new ContentValues();
+            cv.put("issue", mIssueKey);
+            cv.put("name", name);
+            cv.put("data", data);
+            cv.put("date", now);
+            db.insert(DbHelper.TIMELINE_CACHE_TABLE, null, cv);
+            db.delete(DbHelper.TIMELINE_CACHE_TABLE, "date < ?",
+                    new String[] { String.valueOf(now - MAX_AGE_MILLIS) });
+        } catch (RuntimeException e) {
+            // failing to cache shouldn't fail the load
+            mHasChanges = true;
+            Log.w(Gh4Application.LOG_TAG, "Could not store timeline data for " + mIssueKey, e);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.gh4a.activities.EditCommitCommentActivity;
 import com.gh4a.adapter.CommitNoteAdapter;
 import com.gh4a.adapter.RootAdapter;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.FrameTimeTracker;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.widget.EditorBottomSheet;
@@ -79,6 +80,7 @@ public class CommitNoteFragment extends ListDataBaseFragment<GitComment> impleme
     private IntentUtils.InitialCommentMarker mInitialComment;
 
     private CommitNoteAdapter mAdapter;
+    private final FrameTimeTracker mFrameTimeTracker = new FrameTimeTracker("CommitNotes");
     private EditorBottomSheet mBottomSheet;
 
     @Override
@@ -143,12 +145,22 @@ public class CommitNoteFragment extends ListDataBaseFragment<GitComment> impleme
     public void onResume() {
         super.onResume();
         mAdapter.resume();
+        mFrameTimeTracker.start();
     }
 
     @Override
     public void onPause() {
         super.onPause();
         mAdapter.pause();
+        mFrameTimeTracker.stop();
+    }
+
+    @Override
+    public void onRefresh() {
+        if (mAdapter != null) {
+            mAdapter.clearCaches();
+        }
+        super.onRefresh();
     }
 
     @Override
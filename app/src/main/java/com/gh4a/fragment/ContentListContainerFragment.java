@@ -17,8 +17,11 @@ import com.gh4a.R;
 import com.gh4a.ServiceFactory;
 import com.gh4a.activities.FileViewerActivity;
 import com.gh4a.activities.RepositoryActivity;
+import com.gh4a.model.RepositoryTree;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.AppSchedulers;
 import com.gh4a.utils.Optional;
+import com.gh4a.utils.RepositoryTreeCache;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.utils.StringUtils;
 import com.gh4a.widget.PathBreadcrumbs;
@@ -34,14 +37,13 @@ import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
+import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.schedulers.Schedulers;
 
 public class ContentListContainerFragment extends Fragment implements
         ContentListFragment.ParentCallback, PathBreadcrumbs.SelectionCallback,
@@ -52,7 +54,7 @@ public class ContentListContainerFragment extends Fragment implements
     private static final int ID_LOADER_MODULEMAP = 100;
 
     private static final String STATE_KEY_DIR_STACK = "dir_stack";
-    private static final String STATE_KEY_CONTENT_CACHE_PREFIX = "content_cache_";
+    private static final String STATE_KEY_TREE_SHA = "tree_sha";
     private static final String STATE_KEY_INITIAL_PATH = "initial_path";
 
     private RxLoader mRxLoader;
@@ -65,16 +67,9 @@ public class ContentListContainerFragment extends Fragment implements
     private ArrayList<String> mInitialPathToLoad;
     private boolean mStateSaved;
     private CommitSelectionCallback mCommitCallback;
-    private final Map<String, ArrayList<Content>> mContentCache =
-            new LinkedHashMap<String, ArrayList<Content>>() {
-        private static final long serialVersionUID = -2379579224736389357L;
-        private static final int MAX_CACHE_ENTRIES = 100;
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, ArrayList<Content>> eldest) {
-            return size() > MAX_CACHE_ENTRIES;
-        }
-    };
+    private Single<Optional<RepositoryTree>> mTreeSingle;
+    // set from the background thread loading the tree
+    private volatile String mTreeSha;
 
     public static ContentListContainerFragment newInstance(Repository repository,
             String ref, String initialPath) {
@@ -99,18 +94,7 @@ public class ContentListContainerFragment extends Fragment implements
 
         if (savedInstanceState != null) {
             mDirStack.addAll(savedInstanceState.getStringArrayList(STATE_KEY_DIR_STACK));
-
-            int prefixLen = STATE_KEY_CONTENT_CACHE_PREFIX.length();
-            for (String key : savedInstanceState.keySet()) {
-                if (key.startsWith(STATE_KEY_CONTENT_CACHE_PREFIX)) {
-                    String cacheKey = key.substring(prefixLen);
-                    if (cacheKey.equals("/")) {
-                        cacheKey = null;
-                    }
-                    ArrayList<Content> content = savedInstanceState.getParcelableArrayList(key);
-                    mContentCache.put(cacheKey, content);
-                }
-            }
+            mTreeSha = savedInstanceState.getString(STATE_KEY_TREE_SHA);
             mInitialPathToLoad = savedInstanceState.getStringArrayList(STATE_KEY_INITIAL_PATH);
         } else {
             mDirStack.push("");
@@ -126,6 +110,7 @@ public class ContentListContainerFragment extends Fragment implements
                 mInitialPathToLoad.add(initialPath);
             }
         }
+        mTreeSingle = createTreeSingle();
     }
 
     @Override
@@ -163,7 +148,8 @@ public class ContentListContainerFragment extends Fragment implements
 
         mDirStack.clear();
         mDirStack.push("");
-        mContentCache.clear();
+        mTreeSha = null;
+        mTreeSingle = createTreeSingle();
         mContentListFragment = null;
         getChildFragmentManager().popBackStackImmediate(null,
                 FragmentManager.POP_BACK_STACK_INCLUSIVE);
@@ -204,10 +190,8 @@ public class ContentListContainerFragment extends Fragment implements
         super.onSaveInstanceState(outState);
         outState.putStringArrayList(STATE_KEY_DIR_STACK, new ArrayList<>(mDirStack));
         outState.putStringArrayList(STATE_KEY_INITIAL_PATH, mInitialPathToLoad);
-        for (Map.Entry<String, ArrayList<Content>> entry : mContentCache.entrySet()) {
-            String key = entry.getKey();
-            outState.putParcelableArrayList(STATE_KEY_CONTENT_CACHE_PREFIX + key, entry.getValue());
-        }
+        // the tree itself is persisted by RepositoryTreeCache
+        outState.putString(STATE_KEY_TREE_SHA, mTreeSha);
         mStateSaved = true;
     }
 
@@ -216,7 +200,6 @@ public class ContentListContainerFragment extends Fragment implements
         if (contents == null) {
             return;
         }
-        mContentCache.put(fragment.getPath(), new ArrayList<>(contents));
         if (fragment.getPath() == null) {
             for (Content content : contents) {
                 if (content.type() == ContentType.File && content.name().equals(".gitmodules")) {
@@ -285,6 +268,11 @@ public class ContentListContainerFragment extends Fragment implements
         return names;
     }
 
+    @Override
+    public Single<Optional<RepositoryTree>> getRepositoryTree() {
+        return mTreeSingle;
+    }
+
     @Override
     public void onCrumbSelection(String absolutePath, int index, int count) {
         FragmentManager fm = getChildFragmentManager();
@@ -303,8 +291,7 @@ public class ContentListContainerFragment extends Fragment implements
     private void addFragmentForTopOfStack() {
         String path = mDirStack.peek();
         mContentListFragment = ContentListFragment.newInstance(mRepository,
-                TextUtils.isEmpty(path) ? null : path,
-                mContentCache.get(path), mSelectedRef);
+                TextUtils.isEmpty(path) ? null : path, mSelectedRef);
 
         FragmentTransaction ft = getChildFragmentManager().beginTransaction();
         if (path != null) {
@@ -326,6 +313,15 @@ public class ContentListContainerFragment extends Fragment implements
         return mRepository.defaultBranch();
     }
 
+    private Single<Optional<RepositoryTree>> createTreeSingle() {
+        return RepositoryTreeCache.load(getActivity(), mRepository.owner().login(),
+                mRepository.name(), getCurrentRef(), mTreeSha, false)
+                .doOnSuccess(treeOpt -> mTreeSha = treeOpt.isPresent()
+                        ? treeOpt.get().getSha() : null)
+                // shared by all directories
+                .cache();
+    }
+
     private void loadModuleMap() {
         RepositoryContentService service = ServiceFactory.get(RepositoryContentService.class, false);
         String repoOwner = mRepository.owner().login();
@@ -337,7 +333,7 @@ public class ContentListContainerFragment extends Fragment implements
                 .compose(RxUtils.mapFailureToValue(HttpURLConnection.HTTP_NOT_FOUND, Optional.<Content>absent()))
                 .map(contentOpt -> contentOpt.map(content -> StringUtils.fromBase64(content.content())))
                 .map(this::parseModuleMap)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(AppSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .compose(mRxLoader.makeSingleTransformer(ID_LOADER_MODULEMAP, true))
                 .subscribe(resultOpt -> {
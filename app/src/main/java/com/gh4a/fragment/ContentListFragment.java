@@ -31,7 +31,9 @@ import com.gh4a.ServiceFactory;
 import com.gh4a.activities.CommitHistoryActivity;
 import com.gh4a.adapter.FileAdapter;
 import com.gh4a.adapter.RootAdapter;
+import com.gh4a.model.RepositoryTree;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.Optional;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.utils.StringUtils;
 import com.gh4a.widget.ContextMenuAwareRecyclerView;
@@ -82,17 +84,17 @@ public class ContentListFragment extends ListDataBaseFragment<Content> implement
         void onTreeSelected(Content content);
         void onCommitSelected(Commit commit);
         Set<String> getSubModuleNames(ContentListFragment fragment);
+        Single<Optional<RepositoryTree>> getRepositoryTree();
     }
 
     public static ContentListFragment newInstance(Repository repository,
-            String path, ArrayList<Content> contents, String ref) {
+            String path, String ref) {
         ContentListFragment f = new ContentListFragment();
 
         Bundle args = new Bundle();
         args.putString("path", path != null ? path : "");
         args.putString("ref", ref);
         args.putParcelable("repo", repository);
-        args.putParcelableArrayList("contents", contents);
         f.setArguments(args);
 
         return f;
@@ -209,11 +211,17 @@ public class ContentListFragment extends ListDataBaseFragment<Content> implement
 
     @Override
     protected Single<List<Content>> onCreateDataSingle(boolean bypassCache) {
-        ArrayList<Content> contents = getArguments().getParcelableArrayList("contents");
-        if (contents != null && !contents.isEmpty()) {
-            return Single.just(contents);
-        }
+        return mCallback.getRepositoryTree()
+                .flatMap(treeOpt -> {
+                    List<Content> contents = treeOpt.isPresent()
+                            ? treeOpt.get().getDirectoryContents(mPath) : null;
+                    return contents != null
+                            ? Single.just(contents) : loadDirectoryContents(bypassCache);
+                })
+                .compose(RxUtils.sortList(COMPARATOR));
+    }
 
+    private Single<List<Content>> loadDirectoryContents(boolean bypassCache) {
         RepositoryContentService contentService =
                 ServiceFactory.get(RepositoryContentService.class, bypassCache);
         String repoOwner = mRepository.owner().login();
@@ -222,7 +230,6 @@ public class ContentListFragment extends ListDataBaseFragment<Content> implement
 
         return ApiHelpers.PageIterator
                 .toSingle(page -> contentService.getDirectoryContents(repoOwner, repoName, mPath, ref, page))
-                .compose(RxUtils.mapFailureToValue(HttpURLConnection.HTTP_NOT_FOUND, new ArrayList<Content>()))
-                .compose(RxUtils.sortList(COMPARATOR));
+                .compose(RxUtils.mapFailureToValue(HttpURLConnection.HTTP_NOT_FOUND, new ArrayList<Content>()));
     }
 }
\ No newline at end of file
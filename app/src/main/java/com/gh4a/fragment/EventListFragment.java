@@ -108,6 +108,11 @@ public abstract class EventListFragment extends PagedDataBaseFragment<GitHubEven
         return mAdapter;
     }
 
+    @Override
+    protected int getMaxResidentPages() {
+        return 10;
+    }
+
     @Override
     protected int getEmptyTextResId() {
         return R.string.no_events_found;
@@ -0,0 +1,266 @@
+package com.gh4a.fragment;
+
+import android.os.Bundle;
+import android.support.annotation.StringRes;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.text.TextUtils;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+import com.gh4a.BuildConfig;
+import com.gh4a.Gh4Application;
+import com.gh4a.R;
+import com.gh4a.activities.FileViewerActivity;
+import com.gh4a.adapter.FilePathAdapter;
+import com.gh4a.adapter.RootAdapter;
+import com.gh4a.model.RepositoryTree;
+import com.gh4a.utils.AppSchedulers;
+import com.gh4a.utils.PathIndex;
+import com.gh4a.utils.RepositoryTreeCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
+public class FileFinderFragment extends ListDataBaseFragment<String> implements
+        RootAdapter.OnItemClickListener<String>, SearchView.OnQueryTextListener {
+    private static final int MAX_RESULTS = 100;
+    private static final String STATE_KEY_QUERY = "query";
+    private static final String STATE_KEY_TREE_SHA = "tree_sha";
+
+    public static FileFinderFragment newInstance(String repoOwner, String repoName, String ref) {
+        FileFinderFragment f = new FileFinderFragment();
+
+        Bundle args = new Bundle();
+        args.putString("owner", repoOwner);
+        args.putString("repo", repoName);
+        args.putString("ref", ref);
+        f.setArguments(args);
+
+        return f;
+    }
+
+    private String mRepoOwner;
+    private String mRepoName;
+    private String mRef;
+    private volatile String mQuery = "";
+    // query of the results emitted by the loader
+    private volatile String mLoadedQuery;
+    private volatile String mTreeSha;
+    private volatile PathIndex mIndex;
+    // set while the loaded tree is truncated and its missing parts weren't fetched yet
+    private volatile RepositoryTree mTruncatedTree;
+    private boolean mHintShown;
+    private FilePathAdapter mAdapter;
+    private TextView mHintView;
+    private Disposable mSearchSubscription;
+    private Disposable mCompleteSubscription;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        Bundle args = getArguments();
+        mRepoOwner = args.getString("owner");
+        mRepoName = args.getString("repo");
+        mRef = args.getString("ref");
+        if (savedInstanceState != null) {
+            mQuery = savedInstanceState.getString(STATE_KEY_QUERY, "");
+            mTreeSha = savedInstanceState.getString(STATE_KEY_TREE_SHA);
+        }
+        setHasOptionsMenu(true);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_KEY_QUERY, mQuery);
+        outState.putString(STATE_KEY_TREE_SHA, mTreeSha);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (mSearchSubscription != null) {
+            mSearchSubscription.dispose();
+        }
+        disposeCompleteSubscription();
+    }
+
+    @Override
+    public void onRefresh() {
+        disposeCompleteSubscription();
+        super.onRefresh();
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        inflater.inflate(R.menu.file_finder, menu);
+
+        MenuItem searchItem = menu.findItem(R.id.search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.find_file_hint));
+        searchView.setIconified(false);
+        searchView.setQuery(mQuery, false);
+        searchView.setOnQueryTextListener(this);
+
+        super.onCreateOptionsMenu(menu, inflater);
+    }
+
+    @Override
+    protected void onRecyclerViewInflated(RecyclerView view, LayoutInflater inflater) {
+        super.onRecyclerViewInflated(view, inflater);
+        mHintView = (TextView) inflater.inflate(R.layout.hint_view, view, false);
+    }
+
+    @Override
+    protected RootAdapter<String, ? extends RecyclerView.ViewHolder> onCreateAdapter() {
+        mAdapter = new FilePathAdapter(getActivity());
+        mAdapter.setOnItemClickListener(this);
+        return mAdapter;
+    }
+
+    @Override
+    protected int getEmptyTextResId() {
+        return R.string.no_files_found;
+    }
+
+    @Override
+    public void onItemClick(String path) {
+        startActivity(FileViewerActivity.makeIntent(getActivity(),
+                mRepoOwner, mRepoName, mRef, path));
+    }
+
+    @Override
+    public boolean onQueryTextSubmit(String query) {
+        return false;
+    }
+
+    @Override
+    public boolean onQueryTextChange(String newText) {
+        mQuery = newText;
+        startSearch();
+        return true;
+    }
+
+    @Override
+    protected void onAddData(RootAdapter<String, ?> adapter, List<String> data) {
+        updateEmptyText(mIndex == null ? R.string.file_finder_tree_unavailable
+                : R.string.no_files_found);
+        RepositoryTree truncatedTree = mTruncatedTree;
+        if (truncatedTree == null) {
+            updateHint(0);
+        } else if (mCompleteSubscription == null) {
+            completeTree(truncatedTree);
+        }
+        showResults(mLoadedQuery, data);
+    }
+
+    private void completeTree(RepositoryTree tree) {
+        // search the partial tree until the missing parts are fetched
+        updateHint(R.string.file_finder_loading_remaining_files);
+        mCompleteSubscription = RepositoryTreeCache.complete(getActivity(),
+                        mRepoOwner, mRepoName, tree)
+                .observeOn(AppSchedulers.computation())
+                .map(PathIndex::forTree)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(index -> {
+                    mCompleteSubscription = null;
+                    mIndex = index;
+                    mTruncatedTree = null;
+                    updateHint(tree.isTruncated() ? R.string.file_finder_tree_incomplete : 0);
+                    startSearch();
+                }, error -> Log.w(Gh4Application.LOG_TAG, "Completing file tree failed", error));
+    }
+
+    private void disposeCompleteSubscription() {
+        if (mCompleteSubscription != null) {
+            mCompleteSubscription.dispose();
+            mCompleteSubscription = null;
+        }
+    }
+
+    private void updateHint(@StringRes int hintResId) {
+        boolean showHint = hintResId != 0;
+        if (showHint) {
+            mHintView.setText(hintResId);
+        }
+        if (showHint != mHintShown) {
+            mHintShown = showHint;
+            mAdapter.setHeaderView(showHint ? mHintView : null);
+        }
+    }
+
+    private void startSearch() {
+        final PathIndex index = mIndex;
+        if (index == null || mAdapter == null) {
+            // the results for the new query will be shown once the index is loaded
+            return;
+        }
+
+        if (mSearchSubscription != null) {
+            mSearchSubscription.dispose();
+        }
+        final String query = mQuery;
+        mSearchSubscription = Single.fromCallable(() -> search(index, query))
+                .subscribeOn(AppSchedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(result -> showResults(query, result),
+                        error -> Log.w(Gh4Application.LOG_TAG, "Searching files failed", error));
+    }
+
+    // must be called on the main thread, so the query can't change meanwhile
+    private void showResults(String query, List<String> result) {
+        if (!TextUtils.equals(query, mQuery)) {
+            // the results are outdated, e.g. because the query changed while loading
+            startSearch();
+            return;
+        }
+        mAdapter.setItems(result);
+        updateEmptyState();
+    }
+
+    private void updateEmptyText(@StringRes int emptyTextResId) {
+        TextView emptyView = getView().findViewById(android.R.id.empty);
+        emptyView.setText(emptyTextResId);
+    }
+
+    @Override
+    protected Single<List<String>> onCreateDataSingle(boolean bypassCache) {
+        return RepositoryTreeCache.loadPartial(getActivity(), mRepoOwner, mRepoName, mRef,
+                        bypassCache ? null : mTreeSha, bypassCache)
+                .map(treeOpt -> {
+                    String query = mQuery;
+                    mLoadedQuery = query;
+                    if (!treeOpt.isPresent()) {
+                        mIndex = null;
+                        mTruncatedTree = null;
+                        return new ArrayList<String>();
+                    }
+                    RepositoryTree tree = treeOpt.get();
+                    mTreeSha = tree.getSha();
+                    // index what we have, the missing parts are fetched afterwards
+                    mTruncatedTree = tree.isTruncated() ? tree : null;
+                    PathIndex index = PathIndex.forTree(tree);
+                    mIndex = index;
+                    return search(index, query);
+                });
+    }
+
+    private static List<String> search(PathIndex index, String query) {
+        long startTime = System.currentTimeMillis();
+        List<String> result = index.search(query, MAX_RESULTS);
+        if (BuildConfig.DEBUG) {
+            Log.d(Gh4Application.LOG_TAG, "Searching " + index.size() + " files for '"
+                    + query + "' took " + (System.currentTimeMillis() - startTime) + " ms");
+        }
+        return result;
+    }
+}
@@ -9,12 +9,15 @@ import com.gh4a.R;
 import com.gh4a.ServiceFactory;
 import com.gh4a.activities.EditIssueCommentActivity;
 import com.gh4a.activities.PullRequestActivity;
+import com.gh4a.db.TimelineCache;
 import com.gh4a.model.TimelineItem;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.RxUtils;
+import com.meisolsson.githubsdk.model.GitHubComment;
 import com.meisolsson.githubsdk.model.GitHubCommentBase;
 import com.meisolsson.githubsdk.model.Issue;
+import com.meisolsson.githubsdk.model.IssueEvent;
 import com.meisolsson.githubsdk.model.IssueState;
 import com.meisolsson.githubsdk.service.issues.IssueCommentService;
 import com.meisolsson.githubsdk.service.issues.IssueEventService;
@@ -37,7 +40,7 @@ public class IssueFragment extends IssueFragmentBase {
     public void updateState(Issue issue) {
         mIssue = mIssue.toBuilder().state(issue.state()).build();
         assignHighlightColor();
-        reloadEvents(false);
+        reloadEvents();
     }
 
     @Override
@@ -71,17 +74,20 @@ public class IssueFragment extends IssueFragmentBase {
     }
 
     @Override
-    protected Single<List<TimelineItem>> onCreateDataSingle(boolean bypassCache) {
+    protected Single<List<TimelineItem>> onCreateTimelineSingle(TimelineCache cache,
+            boolean bypassCache) {
         final int issueNumber = mIssue.number();
         final IssueEventService eventService = ServiceFactory.get(IssueEventService.class, bypassCache);
         final IssueCommentService commentService =
                 ServiceFactory.get(IssueCommentService.class, bypassCache);
 
-        Single<List<TimelineItem>> commentSingle = ApiHelpers.PageIterator
-                .toSingle(page -> commentService.getIssueComments(mRepoOwner, mRepoName, issueNumber, page))
+        Single<List<TimelineItem>> commentSingle = cache.list("comments", GitHubComment.class,
+                ApiHelpers.PageIterator.toSingle(page ->
+                        commentService.getIssueComments(mRepoOwner, mRepoName, issueNumber, page)))
                 .compose(RxUtils.mapList(TimelineItem.TimelineComment::new));
-        Single<List<TimelineItem>> eventSingle = ApiHelpers.PageIterator
-                .toSingle(page -> eventService.getIssueEvents(mRepoOwner, mRepoName, issueNumber, page))
+        Single<List<TimelineItem>> eventSingle = cache.list("events", IssueEvent.class,
+                ApiHelpers.PageIterator.toSingle(page ->
+                        eventService.getIssueEvents(mRepoOwner, mRepoName, issueNumber, page)))
                 .compose(RxUtils.filter(event -> INTERESTING_EVENTS.contains(event.event())))
                 .compose((RxUtils.mapList(TimelineItem.TimelineEvent::new)));
 
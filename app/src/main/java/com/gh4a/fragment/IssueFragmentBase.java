@@ -40,9 +40,11 @@ import com.gh4a.ServiceFactory;
 import com.gh4a.activities.UserActivity;
 import com.gh4a.adapter.RootAdapter;
 import com.gh4a.adapter.timeline.TimelineItemAdapter;
+import com.gh4a.db.TimelineCache;
 import com.gh4a.model.TimelineItem;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.AvatarHandler;
+import com.gh4a.utils.FrameTimeTracker;
 import com.gh4a.utils.HttpImageGetter;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.RxUtils;
@@ -96,7 +98,9 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
             new ReactionBar.ReactionDetailsCache(this);
     private TimelineItemAdapter mAdapter;
     private HttpImageGetter mImageGetter;
+    private final FrameTimeTracker mFrameTimeTracker = new FrameTimeTracker("Timeline");
     private EditorBottomSheet mBottomSheet;
+    private TimelineCache mTimelineCache;
 
     protected static Bundle buildArgs(String repoOwner, String repoName,
             Issue issue, boolean isCollaborator, IntentUtils.InitialCommentMarker initialComment) {
@@ -209,6 +213,7 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
         super.onResume();
         mImageGetter.resume();
         mAdapter.resume();
+        mFrameTimeTracker.start();
     }
 
     @Override
@@ -216,6 +221,7 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
         super.onPause();
         mImageGetter.pause();
         mAdapter.pause();
+        mFrameTimeTracker.stop();
     }
 
     @Override
@@ -258,11 +264,8 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
         return super.onOptionsItemSelected(item);
     }
 
-    public void reloadEvents(boolean alsoClearCaches) {
-        if (mAdapter != null && !alsoClearCaches) {
-            // Don't clear adapter's cache, we're only interested in the new event
-            mAdapter.suppressCacheClearOnNextClear();
-        }
+    public void reloadEvents() {
+        // unlike onRefresh(), keep the caches; HTML of edited comments is re-encoded anyway
         super.onRefresh();
     }
 
@@ -274,6 +277,33 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
         return mAdapter;
     }
 
+    @Override
+    protected Single<List<TimelineItem>> onCreateDataSingle(boolean bypassCache) {
+        mTimelineCache = createTimelineCache(false);
+        return onCreateTimelineSingle(mTimelineCache, bypassCache);
+    }
+
+    @Override
+    protected Single<List<TimelineItem>> onCreateCachedDataSingle() {
+        return onCreateTimelineSingle(createTimelineCache(true), false);
+    }
+
+    @Override
+    protected boolean hasChangedSinceCachedData() {
+        return mTimelineCache == null || mTimelineCache.hasChanges();
+    }
+
+    private TimelineCache createTimelineCache(boolean cacheOnly) {
+        return new TimelineCache(getActivity(), mRepoOwner, mRepoName, mIssue.number(), cacheOnly);
+    }
+
+    /**
+     * Creates the single loading the timeline. All lists the timeline is built from
+     * are expected to be loaded through {@link TimelineCache#list}.
+     */
+    protected abstract Single<List<TimelineItem>> onCreateTimelineSingle(TimelineCache cache,
+            boolean bypassCache);
+
     @Override
     protected void onAddData(RootAdapter<TimelineItem, ?> adapter, List<TimelineItem> data) {
         super.onAddData(adapter, data);
@@ -500,7 +530,7 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         if (requestCode == REQUEST_EDIT) {
             if (resultCode == Activity.RESULT_OK) {
-                reloadEvents(true);
+                reloadEvents();
                 getActivity().setResult(Activity.RESULT_OK);
             }
         } else {
@@ -530,7 +560,7 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
     public void onEditorTextSent() {
         // reload comments
         if (isAdded()) {
-            reloadEvents(false);
+            reloadEvents();
         }
         getActivity().setResult(Activity.RESULT_OK);
     }
@@ -588,7 +618,7 @@ public abstract class IssueFragmentBase extends ListDataBaseFragment<TimelineIte
                 .compose(RxUtils.wrapForBackgroundTask(getBaseActivity(),
                         R.string.deleting_msg, R.string.error_delete_comment))
                 .subscribe(result -> {
-                    reloadEvents(false);
+                    reloadEvents();
                     getActivity().setResult(Activity.RESULT_OK);
                 }, error -> handleActionFailure("Deleting comment failed", error));
     }
@@ -6,6 +6,7 @@ import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 
 import com.gh4a.adapter.RootAdapter;
+import com.gh4a.utils.RxUtils;
 
 import io.reactivex.Single;
 import io.reactivex.disposables.Disposable;
@@ -13,6 +14,9 @@ import io.reactivex.disposables.Disposable;
 public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
     private RootAdapter<T, ? extends RecyclerView.ViewHolder> mAdapter;
     private Disposable mSubscription;
+    private Disposable mCachedDataSubscription;
+    private Disposable mFillSubscription;
+    private boolean mIsShowingCachedData;
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -28,10 +32,12 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
         if (mSubscription != null) {
             mSubscription.dispose();
         }
+        disposeCachedDataSubscription();
+        disposeFillSubscription();
+        // a forced reload always replaces whatever is shown, cached or not
+        mIsShowingCachedData = false;
+        // keep the current items, so the reloaded ones only cause changed rows to be rebound
         loadData(true);
-        if (mAdapter != null) {
-            mAdapter.clear();
-        }
     }
 
     @Override
@@ -40,8 +46,7 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
     }
 
     protected void onAddData(RootAdapter<T, ?> adapter, List<T> data) {
-        adapter.addAll(data);
-        adapter.notifyDataSetChanged();
+        adapter.setItems(data);
     }
 
     @Override
@@ -57,15 +62,85 @@ public abstract class ListDataBaseFragment<T> extends LoadingListFragmentBase {
         return mAdapter.isCardStyle();
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        disposeCachedDataSubscription();
+        disposeFillSubscription();
+    }
+
     private void loadData(boolean force) {
+        Single<List<T>> cachedSingle = force ? null : onCreateCachedDataSingle();
+        if (cachedSingle != null) {
+            mCachedDataSubscription = cachedSingle
+                    .compose(RxUtils::doInBackground)
+                    .subscribe(result -> {
+                        mCachedDataSubscription = null;
+                        mIsShowingCachedData = true;
+                        fillData(result);
+                    }, error -> mCachedDataSubscription = null);
+        }
+
         mSubscription = onCreateDataSingle(force)
                 .compose(makeLoaderSingle(0, force))
                 .subscribe(result -> {
-                    mAdapter.clear();
-                    onAddData(mAdapter, result);
+                    disposeCachedDataSubscription();
+                    boolean unchanged = mIsShowingCachedData && !hasChangedSinceCachedData();
+                    mIsShowingCachedData = false;
+                    if (unchanged) {
+                        setContentShown(true);
+                        updateEmptyState();
+                    } else {
+                        fillData(result);
+                    }
+                }, error -> {
+                    mIsShowingCachedData = false;
+                    handleLoadFailure(error);
+                });
+    }
+
+    private void fillData(List<T> data) {
+        disposeFillSubscription();
+        // diff against the current items in the background, then apply the result
+        mFillSubscription = mAdapter.prepareItems(data)
+                .onErrorComplete()
+                .subscribe(() -> {
+                    mFillSubscription = null;
+                    onAddData(mAdapter, data);
                     setContentShown(true);
                     updateEmptyState();
-                }, this::handleLoadFailure);
+                });
+    }
+
+    private void disposeFillSubscription() {
+        if (mFillSubscription != null) {
+            mFillSubscription.dispose();
+            mFillSubscription = null;
+        }
+    }
+
+    private void disposeCachedDataSubscription() {
+        if (mCachedDataSubscription != null) {
+            mCachedDataSubscription.dispose();
+            mCachedDataSubscription = null;
+        }
+    }
+
+    /**
+     * Returns a single loading locally cached data, which is displayed until the
+     * single returned by {@link #onCreateDataSingle(boolean)} delivers the actual data.
+     * Returns null by default, meaning no cached data is available.
+     */
+    protected Single<List<T>> onCreateCachedDataSingle() {
+        return null;
+    }
+
+    /**
+     * Called when the actual data arrives while cached data is displayed. If this
+     * returns false, the cached data is kept instead of rebinding the whole list.
+     */
+    protected boolean hasChangedSinceCachedData() {
+        return true;
     }
 
     protected abstract Single<List<T>> onCreateDataSingle(boolean bypassCache);
@@ -40,6 +40,11 @@ public class OrganizationMemberListFragment extends PagedDataBaseFragment<User>
         return adapter;
     }
 
+    @Override
+    protected int getMaxResidentPages() {
+        return 10;
+    }
+
     @Override
     protected int getEmptyTextResId() {
         return R.string.no_org_members_found;
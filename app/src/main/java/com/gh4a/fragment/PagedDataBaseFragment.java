@@ -16,6 +16,7 @@
 package com.gh4a.fragment;
 
 import android.os.Bundle;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.Pair;
 import android.view.LayoutInflater;
@@ -31,7 +32,10 @@ import com.philosophicalhacker.lib.RxLoader;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 
 import io.reactivex.Single;
 import io.reactivex.disposables.Disposable;
@@ -40,13 +44,20 @@ import io.reactivex.subjects.Subject;
 import retrofit2.Response;
 
 public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase implements
-        RootAdapter.OnItemClickListener<T>, RootAdapter.OnScrolledToFooterListener {
+        RootAdapter.OnItemClickListener<T>, RootAdapter.OnScrolledToFooterListener,
+        RootAdapter.OnScrolledToHeaderListener {
     private RootAdapter<T, ? extends RecyclerView.ViewHolder> mAdapter;
+    private RecyclerView mRecyclerView;
     private RxLoader mRxLoader;
     private Subject<Integer> mPageSubject;
     private Integer mNextPage;
+    private Integer mPreviousPage;
+    // pages which were loaded before, and thus can be served from the HTTP cache
+    private final Set<Integer> mFetchedPages = new HashSet<>();
     private View mLoadingView;
+    private View mPreviousLoadingView;
     private Disposable mSubscription;
+    private Disposable mFillSubscription;
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -61,13 +72,12 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
 
     @Override
     public void onRefresh() {
-        if (mAdapter != null) {
-            mAdapter.clear();
-        }
+        // the current items are kept, so the reloaded ones only cause changed rows to be rebound
         if (mSubscription != null) {
             mSubscription.dispose();
             mSubscription = null;
         }
+        disposeFillSubscription();
         if (mRxLoader != null) {
             resetSubject();
             setContentShown(false);
@@ -82,11 +92,22 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
 
         mLoadingView = inflater.inflate(R.layout.list_loading_view, view, false);
         mAdapter.setFooterView(mLoadingView, this);
+        if (getMaxResidentPages() > 0) {
+            mPreviousLoadingView = inflater.inflate(R.layout.list_loading_view, view, false);
+            mAdapter.setHeaderView(mPreviousLoadingView, this);
+        }
         mAdapter.setOnItemClickListener(this);
         view.setAdapter(mAdapter);
+        mRecyclerView = view;
         updateEmptyState();
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        disposeFillSubscription();
+    }
+
     @Override
     protected boolean hasDividers() {
         return !mAdapter.isCardStyle();
@@ -99,60 +120,99 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
 
     protected void resetSubject() {
         mNextPage = null;
+        mPreviousPage = null;
+        mFetchedPages.clear();
         mPageSubject = BehaviorSubject.createDefault(1);
         mPageSubject.onNext(1);
     }
 
     private void load(boolean force) {
+        final int maxResidentPages = getMaxResidentPages();
         mSubscription = mPageSubject
-                .flatMap(page -> loadPage(page, force)
-                        .map(response -> {
-                            if (response.code() == HttpURLConnection.HTTP_NO_CONTENT) {
-                                return Response.success(new ApiHelpers.DummyPage<T>());
-                            }
-                            return response;
-                        })
-                        .map(ApiHelpers::throwOnFailure)
-                        .compose(RxUtils::doInBackground)
-                        .toObservable())
-                .scan(Pair.create(new ArrayList<T>(), 0), (pair, page) -> {
-                    pair.first.addAll(page.items());
-                    return Pair.create(pair.first, page.next());
+                .flatMap(page -> {
+                    // pages fetched before were evicted from the window, so the cached
+                    // response is good enough when scrolling back to them
+                    boolean bypassCache = force && !mFetchedPages.contains(page);
+                    mFetchedPages.add(page);
+                    return loadPage(page, bypassCache)
+                            .map(response -> {
+                                if (response.code() == HttpURLConnection.HTTP_NO_CONTENT) {
+                                    return Response.success(new ApiHelpers.DummyPage<T>());
+                                }
+                                return response;
+                            })
+                            .map(ApiHelpers::throwOnFailure)
+                            .map(result -> Pair.create(page, result))
+                            .compose(RxUtils::doInBackground)
+                            .toObservable();
                 })
-                // filter out initial value
-                .filter(pair -> pair.second == null || pair.second != 0)
+                .scan(new PageWindow<T>(), (window, pageResult) -> window.withPage(
+                        pageResult.first, pageResult.second, maxResidentPages))
+                // skip the initial, empty window
+                .skip(1)
                 .compose(mRxLoader.makeObservableTransformer(0, force))
-                .subscribe(result -> {
-                    fillData(result.first, result.second);
+                .subscribe(this::fillData, this::handleLoadFailure);
+    }
+
+    private void fillData(PageWindow<T> window) {
+        List<T> data = window.getItems();
+        disposeFillSubscription();
+        // diff against the current items in the background, so that items already
+        // shown keep their views and the scroll position is preserved
+        mFillSubscription = mAdapter.prepareItems(data)
+                .onErrorComplete()
+                .subscribe(() -> {
+                    mFillSubscription = null;
+                    mNextPage = window.mNextPage;
+                    mLoadingView.setVisibility(mNextPage != null ? View.VISIBLE : View.GONE);
+                    mPreviousPage = window.getPreviousPage();
+                    if (mPreviousLoadingView != null) {
+                        mPreviousLoadingView.setVisibility(
+                                mPreviousPage != null ? View.VISIBLE : View.GONE);
+                    }
+
+                    if (window.mPrependedCount > 0) {
+                        addDataKeepingPosition(data, window.mPrependedCount);
+                    } else {
+                        onAddData(mAdapter, data);
+                    }
                     setContentShown(true);
                     updateEmptyState();
-                }, this::handleLoadFailure);
+                });
     }
 
-    private void fillData(List<T> data, Integer nextPage) {
-        mNextPage = nextPage;
-        mLoadingView.setVisibility(nextPage != null ? View.VISIBLE : View.GONE);
+    private void addDataKeepingPosition(List<T> data, int prependedCount) {
+        LinearLayoutManager lm = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        // anchor to the first visible item, skipping the loading header
+        int anchorPosition = Math.max(lm.findFirstVisibleItemPosition(), 1);
+        View anchorView = lm.findViewByPosition(anchorPosition);
+        int anchorOffset = anchorView != null ? anchorView.getTop() : 0;
 
-        if (mAdapter.getCount() > 0 && !data.isEmpty() && data.iterator().next() == mAdapter.getItem(0)) {
-            // there are common items, preserve them in order to keep the scroll position
-            ArrayList<T> newData = new ArrayList<>();
-            int index = 0, count = mAdapter.getCount();
-            for (T item : data) {
-                if (index < count && item == mAdapter.getItem(index++)) {
-                    // we already know about the item
-                    continue;
-                }
-                newData.add(item);
-            }
-            onAddData(mAdapter, newData);
-        } else {
-            mAdapter.clear();
-            onAddData(mAdapter, data);
+        onAddData(mAdapter, data);
+        lm.scrollToPositionWithOffset(anchorPosition + prependedCount, anchorOffset);
+    }
+
+    private void disposeFillSubscription() {
+        if (mFillSubscription != null) {
+            mFillSubscription.dispose();
+            mFillSubscription = null;
         }
     }
 
+    /**
+     * Called with all items loaded so far whenever a page was loaded.
+     */
     protected void onAddData(RootAdapter<T, ? extends RecyclerView.ViewHolder> adapter, Collection<T> data) {
-        adapter.addAll(data);
+        adapter.setItems(data);
+    }
+
+    /**
+     * Returns the maximum number of pages kept in memory. If more pages are loaded, the
+     * pages farthest from the ones being loaded are dropped and loaded again when scrolling
+     * back to them. Returns 0 by default, meaning all pages are kept.
+     */
+    protected int getMaxResidentPages() {
+        return 0;
     }
 
     @Override
@@ -163,7 +223,67 @@ public abstract class PagedDataBaseFragment<T> extends LoadingListFragmentBase i
         }
     }
 
+    @Override
+    public void onScrolledToHeader() {
+        if (mPreviousPage != null && mPreviousLoadingView.getVisibility() == View.VISIBLE) {
+            mPageSubject.onNext(mPreviousPage);
+            mPreviousPage = null;
+        }
+    }
+
     protected abstract RootAdapter<T, ? extends RecyclerView.ViewHolder> onCreateAdapter();
     protected abstract Single<Response<Page<T>>> loadPage(int page, boolean bypassCache);
     public abstract void onItemClick(T item);
+
+    /**
+     * Immutable set of consecutive pages currently held in memory. Updating it only copies
+     * the page references, not the items of each page.
+     */
+    private static class PageWindow<T> {
+        private final TreeMap<Integer, List<T>> mPages;
+        private final Integer mNextPage;
+        // number of items added before the previously first page by the last update
+        private final int mPrependedCount;
+
+        PageWindow() {
+            this(new TreeMap<>(), null, 0);
+        }
+
+        private PageWindow(TreeMap<Integer, List<T>> pages, Integer nextPage, int prependedCount) {
+            mPages = pages;
+            mNextPage = nextPage;
+            mPrependedCount = prependedCount;
+        }
+
+        PageWindow<T> withPage(int pageNumber, Page<T> page, int maxPages) {
+            TreeMap<Integer, List<T>> pages = new TreeMap<>(mPages);
+            boolean prepended = !pages.isEmpty() && pageNumber < pages.firstKey();
+            boolean appended = pages.isEmpty() || pageNumber > pages.lastKey();
+            Integer nextPage = appended ? page.next() : mNextPage;
+
+            pages.put(pageNumber, page.items());
+            while (maxPages > 0 && pages.size() > maxPages) {
+                if (prepended) {
+                    // the user scrolls up, so drop the last page and load it again later
+                    nextPage = pages.lastKey();
+                    pages.remove(nextPage);
+                } else {
+                    pages.remove(pages.firstKey());
+                }
+            }
+            return new PageWindow<>(pages, nextPage, prepended ? page.items().size() : 0);
+        }
+
+        Integer getPreviousPage() {
+            return !mPages.isEmpty() && mPages.firstKey() > 1 ? mPages.firstKey() - 1 : null;
+        }
+
+        List<T> getItems() {
+            ArrayList<T> items = new ArrayList<>();
+            for (List<T> pageItems : mPages.values()) {
+                items.addAll(pageItems);
+            }
+            return items;
+        }
+    }
 }
@@ -12,6 +12,7 @@ import com.gh4a.activities.FileViewerActivity;
 import com.gh4a.activities.PullRequestDiffViewerActivity;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.FileUtils;
+import com.gh4a.utils.RequestCoalescer;
 import com.gh4a.utils.RxUtils;
 import com.meisolsson.githubsdk.model.GitHubFile;
 import com.meisolsson.githubsdk.model.ReviewComment;
@@ -131,7 +132,9 @@ public class PullRequestFilesFragment extends CommitFragment {
         final PullRequestService service = ServiceFactory.get(PullRequestService.class, force);
         ApiHelpers.PageIterator
                 .toSingle(page -> service.getPullRequestFiles(
-                        mRepoOwner, mRepoName, mPullRequestNumber, page))
+                        mRepoOwner, mRepoName, mPullRequestNumber, page),
+                        RequestCoalescer.makeKey("getPullRequestFiles", force,
+                                mRepoOwner, mRepoName, mPullRequestNumber))
                 .compose(makeLoaderSingle(ID_LOADER_FILES, force))
                 .subscribe(result -> {
                     mFiles = result;
@@ -144,7 +147,9 @@ public class PullRequestFilesFragment extends CommitFragment {
                 ServiceFactory.get(PullRequestReviewCommentService.class, force);
         ApiHelpers.PageIterator
                 .toSingle(page -> service.getPullRequestComments(
-                        mRepoOwner, mRepoName, mPullRequestNumber, page))
+                        mRepoOwner, mRepoName, mPullRequestNumber, page),
+                        RequestCoalescer.makeKey("getPullRequestComments", force,
+                                mRepoOwner, mRepoName, mPullRequestNumber))
                 .compose(RxUtils.filter(c -> c.position() != null && c.position() >= 0))
                 .compose(makeLoaderSingle(ID_LOADER_COMMENTS, force))
                 .subscribe(result -> {
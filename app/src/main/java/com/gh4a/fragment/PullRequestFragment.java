@@ -31,17 +31,21 @@ import com.gh4a.R;
 import com.gh4a.ServiceFactory;
 import com.gh4a.activities.EditIssueCommentActivity;
 import com.gh4a.activities.EditPullRequestCommentActivity;
+import com.gh4a.db.TimelineCache;
 import com.gh4a.model.TimelineItem;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.Optional;
+import com.gh4a.utils.RequestCoalescer;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.widget.PullRequestBranchInfoView;
 import com.gh4a.widget.CommitStatusBox;
 
+import com.meisolsson.githubsdk.model.GitHubComment;
 import com.meisolsson.githubsdk.model.GitHubCommentBase;
 import com.meisolsson.githubsdk.model.GitHubFile;
 import com.meisolsson.githubsdk.model.Issue;
+import com.meisolsson.githubsdk.model.IssueEvent;
 import com.meisolsson.githubsdk.model.IssueState;
 import com.meisolsson.githubsdk.model.PullRequest;
 import com.meisolsson.githubsdk.model.PullRequestMarker;
@@ -105,7 +109,7 @@ public class PullRequestFragment extends IssueFragmentBase {
 
         assignHighlightColor();
         loadCommitStatusesIfOpen(false);
-        reloadEvents(false);
+        reloadEvents();
     }
 
     @Override
@@ -189,7 +193,8 @@ public class PullRequestFragment extends IssueFragmentBase {
    }
 
     @Override
-    protected Single<List<TimelineItem>> onCreateDataSingle(boolean bypassCache) {
+    protected Single<List<TimelineItem>> onCreateTimelineSingle(TimelineCache cache,
+            boolean bypassCache) {
         final int issueNumber = mIssue.number();
         final IssueEventService eventService =
                 ServiceFactory.get(IssueEventService.class, bypassCache);
@@ -202,15 +207,21 @@ public class PullRequestFragment extends IssueFragmentBase {
         final PullRequestReviewCommentService prCommentService =
                 ServiceFactory.get(PullRequestReviewCommentService.class, bypassCache);
 
-        Single<List<TimelineItem>> issueCommentItemSingle = ApiHelpers.PageIterator
-                .toSingle(page -> commentService.getIssueComments(mRepoOwner, mRepoName, issueNumber, page))
+        Single<List<TimelineItem>> issueCommentItemSingle = cache.list(
+                "comments", GitHubComment.class,
+                ApiHelpers.PageIterator.toSingle(page ->
+                        commentService.getIssueComments(mRepoOwner, mRepoName, issueNumber, page)))
                 .compose(RxUtils.mapList(TimelineItem.TimelineComment::new));
-        Single<List<TimelineItem>> eventItemSingle = ApiHelpers.PageIterator
-                .toSingle(page -> eventService.getIssueEvents(mRepoOwner, mRepoName, issueNumber, page))
+        Single<List<TimelineItem>> eventItemSingle = cache.list("events", IssueEvent.class,
+                ApiHelpers.PageIterator.toSingle(page ->
+                        eventService.getIssueEvents(mRepoOwner, mRepoName, issueNumber, page)))
                 .compose(RxUtils.filter(event -> INTERESTING_EVENTS.contains(event.event())))
                 .compose((RxUtils.mapList(TimelineItem.TimelineEvent::new)));
-        Single<Map<String, GitHubFile>> filesByNameSingle = ApiHelpers.PageIterator
-                .toSingle(page -> prService.getPullRequestFiles(mRepoOwner, mRepoName, issueNumber, page))
+        Single<Map<String, GitHubFile>> filesByNameSingle = cache.list("files", GitHubFile.class,
+                ApiHelpers.PageIterator.toSingle(page ->
+                        prService.getPullRequestFiles(mRepoOwner, mRepoName, issueNumber, page),
+                        RequestCoalescer.makeKey("getPullRequestFiles", bypassCache,
+                                mRepoOwner, mRepoName, issueNumber)))
                 .map(files -> {
                     Map<String, GitHubFile> filesByName = new HashMap<>();
                     for (GitHubFile file : files) {
@@ -220,12 +231,16 @@ public class PullRequestFragment extends IssueFragmentBase {
                 })
                 .cache(); // single is used multiple times -> avoid refetching data
 
-        Single<List<Review>> reviewSingle = ApiHelpers.PageIterator
-                .toSingle(page -> reviewService.getReviews(mRepoOwner, mRepoName, issueNumber, page))
+        Single<List<Review>> reviewSingle = cache.list("reviews", Review.class,
+                ApiHelpers.PageIterator.toSingle(page ->
+                        reviewService.getReviews(mRepoOwner, mRepoName, issueNumber, page)))
                 .cache(); // single is used multiple times -> avoid refetching data
-        Single<List<ReviewComment>> prCommentSingle = ApiHelpers.PageIterator
-                .toSingle(page -> prCommentService.getPullRequestComments(
-                        mRepoOwner, mRepoName, issueNumber, page))
+        Single<List<ReviewComment>> prCommentSingle = cache.list(
+                "review_comments", ReviewComment.class,
+                ApiHelpers.PageIterator.toSingle(page -> prCommentService.getPullRequestComments(
+                        mRepoOwner, mRepoName, issueNumber, page),
+                        RequestCoalescer.makeKey("getPullRequestComments", bypassCache,
+                                mRepoOwner, mRepoName, issueNumber)))
                 .compose(RxUtils.sortList(ApiHelpers.COMMENT_COMPARATOR))
                 .cache(); // single is used multiple times -> avoid refetching data
 
@@ -235,9 +250,11 @@ public class PullRequestFragment extends IssueFragmentBase {
                 .flatMap(reviews -> {
                     List<Observable<Pair<Long, List<ReviewComment>>>> obsList = new ArrayList<>();
                     for (Review r : reviews) {
-                        Single<List<ReviewComment>> single = ApiHelpers.PageIterator
-                                .toSingle(page -> reviewService.getReviewComments(mRepoOwner,
-                                        mRepoName, issueNumber, r.id()));
+                        Single<List<ReviewComment>> single = cache.list(
+                                "pending_review_comments_" + r.id(), ReviewComment.class,
+                                ApiHelpers.PageIterator.toSingle(page ->
+                                        reviewService.getReviewComments(mRepoOwner,
+                                                mRepoName, issueNumber, r.id())));
                         obsList.add(Single.zip(Single.just(r.id()), single, Pair::create)
                                 .toObservable());
                     }
@@ -375,7 +392,7 @@ public class PullRequestFragment extends IssueFragmentBase {
 
     private void onHeadReferenceUpdated() {
         getActivity().invalidateOptionsMenu();
-        reloadEvents(false);
+        reloadEvents();
     }
 
     private void restorePullRequestBranch() {
@@ -15,8 +15,10 @@
  */
 package com.gh4a.fragment;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import android.os.Bundle;
@@ -109,16 +111,17 @@ public class RepositoryListFragment extends PagedDataBaseFragment<Repository> {
     protected void onAddData(RootAdapter<Repository, ? extends RecyclerView.ViewHolder> adapter,
             Collection<Repository> repositories) {
         if ("sources".equals(mRepoType) || "forks".equals(mRepoType)) {
+            List<Repository> filtered = new ArrayList<>();
             for (Repository repository : repositories) {
                 if ("sources".equals(mRepoType) && !repository.isFork()) {
-                    adapter.add(repository);
+                    filtered.add(repository);
                 } else if ("forks".equals(mRepoType) && repository.isFork()) {
-                    adapter.add(repository);
+                    filtered.add(repository);
                 }
             }
-            adapter.notifyDataSetChanged();
+            adapter.setItems(filtered);
         } else {
-            adapter.addAll(repositories);
+            adapter.setItems(repositories);
         }
     }
 
@@ -23,6 +23,7 @@ import com.gh4a.model.TimelineItem;
 import com.gh4a.utils.ApiHelpers;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.Optional;
+import com.gh4a.utils.RequestCoalescer;
 import com.gh4a.utils.RxUtils;
 import com.gh4a.widget.EditorBottomSheet;
 
@@ -165,7 +166,9 @@ public class ReviewFragment extends ListDataBaseFragment<TimelineItem>
 
         Single<List<ReviewComment>> reviewCommentsSingle = ApiHelpers.PageIterator
                 .toSingle(page -> reviewService.getReviewComments(
-                        mRepoOwner, mRepoName, mIssueNumber, mReview.id()))
+                        mRepoOwner, mRepoName, mIssueNumber, mReview.id()),
+                        RequestCoalescer.makeKey("getReviewComments", bypassCache,
+                                mRepoOwner, mRepoName, mIssueNumber, mReview.id()))
                 .compose(RxUtils.sortList(ApiHelpers.COMMENT_COMPARATOR))
                 .cache(); // single is used multiple times -> avoid refetching data
 
@@ -179,7 +182,9 @@ public class ReviewFragment extends ListDataBaseFragment<TimelineItem>
                     }
                     return ApiHelpers.PageIterator
                             .toSingle(page -> prService.getPullRequestFiles(
-                                    mRepoOwner, mRepoName, mIssueNumber, page))
+                                    mRepoOwner, mRepoName, mIssueNumber, page),
+                                    RequestCoalescer.makeKey("getPullRequestFiles", bypassCache,
+                                            mRepoOwner, mRepoName, mIssueNumber))
                             .map(Optional::of);
                 });
 
@@ -190,7 +195,9 @@ public class ReviewFragment extends ListDataBaseFragment<TimelineItem>
                     }
                     return ApiHelpers.PageIterator
                             .toSingle(page -> commentService.getPullRequestComments(
-                                    mRepoOwner, mRepoName, mIssueNumber, page))
+                                    mRepoOwner, mRepoName, mIssueNumber, page),
+                                    RequestCoalescer.makeKey("getPullRequestComments", bypassCache,
+                                            mRepoOwner, mRepoName, mIssueNumber))
                             .compose(RxUtils.sortList(ApiHelpers.COMMENT_COMPARATOR))
                             .map(Optional::of);
                 });
@@ -322,19 +329,14 @@ public class ReviewFragment extends ListDataBaseFragment<TimelineItem>
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         if (requestCode == REQUEST_EDIT) {
             if (resultCode == Activity.RESULT_OK) {
-                reloadComments(true);
+                reloadComments();
             }
         } else {
             super.onActivityResult(requestCode, resultCode, data);
         }
     }
 
-    private void reloadComments( boolean alsoClearCaches) {
-        if (mAdapter != null && !alsoClearCaches) {
-            // Don't clear adapter's cache, we're only interested in the new event
-            mAdapter.suppressCacheClearOnNextClear();
-        }
-
+    private void reloadComments() {
         onRefresh();
     }
 
@@ -472,7 +474,7 @@ public class ReviewFragment extends ListDataBaseFragment<TimelineItem>
                 .map(ApiHelpers::mapToBooleanOrThrowOnFailure)
                 .compose(RxUtils.wrapForBackgroundTask(getBaseActivity(),
                         R.string.deleting_msg, R.string.error_delete_comment))
-                .subscribe(result -> reloadComments(false),
+                .subscribe(result -> reloadComments(),
                         error -> handleActionFailure("Deleting comment failed", error));
     }
 }
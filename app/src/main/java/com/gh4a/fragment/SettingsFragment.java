@@ -20,6 +20,7 @@ import android.widget.TextView;
 
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
+import com.gh4a.activities.DiagnosticsActivity;
 import com.gh4a.activities.IssueListActivity;
 import com.gh4a.job.NotificationsJob;
 import com.gh4a.widget.IntegerListPreference;
@@ -148,6 +149,11 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
 
             TextView tvCopyright = findViewById(R.id.copyright);
             tvCopyright.setText(R.string.copyright_notice);
+            tvCopyright.setOnLongClickListener(v -> {
+                context.startActivity(DiagnosticsActivity.makeIntent(context));
+                dismiss();
+                return true;
+            });
 
             findViewById(R.id.btn_by_email).setOnClickListener(this);
 
@@ -58,6 +58,11 @@ public class StargazerListFragment extends PagedDataBaseFragment<User> {
         return new UserAdapter(getActivity());
     }
 
+    @Override
+    protected int getMaxResidentPages() {
+        return 10;
+    }
+
     @Override
     protected int getEmptyTextResId() {
         return R.string.no_stargazers_found;
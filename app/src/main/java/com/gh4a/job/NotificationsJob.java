@@ -33,8 +33,9 @@ import com.gh4a.activities.home.HomeActivity;
 import com.gh4a.adapter.NotificationAdapter;
 import com.gh4a.fragment.SettingsFragment;
 import com.gh4a.model.NotificationHolder;
-import com.gh4a.model.NotificationListLoadResult;
+import com.gh4a.model.NotificationPollResult;
 import com.gh4a.utils.AvatarHandler;
+import com.gh4a.utils.RateLimitTracker;
 import com.gh4a.utils.SingleFactory;
 import com.meisolsson.githubsdk.model.NotificationThread;
 import com.meisolsson.githubsdk.model.Repository;
@@ -54,6 +55,12 @@ public class NotificationsJob extends Job {
     private static final String KEY_LAST_NOTIFICATION_CHECK = "last_notification_check";
     private static final String KEY_LAST_NOTIFICATION_SEEN = "last_notification_seen";
     private static final String KEY_LAST_SHOWN_REPO_IDS = "last_notification_repo_ids";
+    private static final String KEY_LAST_REPO_STATES = "last_notification_repo_states";
+    private static final String KEY_LAST_MODIFIED = "notification_last_modified";
+    private static final String KEY_LAST_FULL_POLL = "notification_last_full_poll";
+    private static final String KEY_NEXT_POLL_TIME = "notification_next_poll_time";
+
+    private static final long FULL_POLL_INTERVAL = TimeUnit.HOURS.toMillis(1);
 
     private static final Object sPrefsLock = new Object();
 
@@ -125,11 +132,37 @@ public class NotificationsJob extends Job {
     @NonNull
     @Override
     protected Result onRunJob(Params params) {
+        SharedPreferences prefs = getContext().getSharedPreferences(SettingsFragment.PREF_NAME,
+                Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+        if (now < prefs.getLong(KEY_NEXT_POLL_TIME, 0)) {
+            // the server asked us to not poll that often
+            return Result.SUCCESS;
+        }
+
+        // Last-Modified isn't updated when notifications are marked as read, so don't
+        // rely on it forever and do an unconditional load every once in a while
+        String lastModified = now - prefs.getLong(KEY_LAST_FULL_POLL, 0) < FULL_POLL_INTERVAL
+                ? prefs.getString(KEY_LAST_MODIFIED, null) : null;
+
         List<List<NotificationThread>> notifsGroupedByRepo = new ArrayList<>();
         try {
-            NotificationListLoadResult result =
-                    SingleFactory.getNotifications(false, false, false).blockingGet();
-            for (NotificationHolder holder : result.notifications) {
+            NotificationPollResult pollResult = RateLimitTracker.withPriority(
+                    SingleFactory.pollNotifications(lastModified),
+                    RateLimitTracker.PRIORITY_BACKGROUND).blockingGet();
+            SharedPreferences.Editor editor = prefs.edit()
+                    .putLong(KEY_NEXT_POLL_TIME,
+                            now + TimeUnit.SECONDS.toMillis(pollResult.pollIntervalSeconds));
+            if (pollResult.result == null) {
+                // nothing changed since the last poll, so what's shown is still up to date
+                editor.apply();
+                return Result.SUCCESS;
+            }
+            editor.putString(KEY_LAST_MODIFIED, pollResult.lastModified)
+                    .putLong(KEY_LAST_FULL_POLL, now)
+                    .apply();
+
+            for (NotificationHolder holder : pollResult.result.notifications) {
                 if (holder.notification == null) {
                     notifsGroupedByRepo.add(new ArrayList<>());
                 } else {
@@ -143,12 +176,12 @@ public class NotificationsJob extends Job {
         }
 
         synchronized (sPrefsLock) {
-            SharedPreferences prefs = getContext().getSharedPreferences(SettingsFragment.PREF_NAME,
-                    Context.MODE_PRIVATE);
             long lastCheck = prefs.getLong(KEY_LAST_NOTIFICATION_CHECK, 0);
             long lastSeen = prefs.getLong(KEY_LAST_NOTIFICATION_SEEN, 0);
             Set<String> lastShownRepoIds = prefs.getStringSet(KEY_LAST_SHOWN_REPO_IDS, null);
+            Set<String> lastRepoStates = prefs.getStringSet(KEY_LAST_REPO_STATES, null);
             Set<String> newShownRepoIds = new HashSet<>();
+            Set<String> newRepoStates = new HashSet<>();
             boolean hasUnseenNotification = false, hasNewNotification = false;
 
             for (List<NotificationThread> list : notifsGroupedByRepo) {
@@ -165,17 +198,29 @@ public class NotificationsJob extends Job {
                 return Result.SUCCESS;
             }
 
-            NotificationManagerCompat nm =
-                    NotificationManagerCompat.from(getContext());
-
-            showSummaryNotification(nm, notifsGroupedByRepo, hasNewNotification);
+            // only (re-)post notifications of repos whose threads changed or whose
+            // notification isn't shown anymore
+            List<List<NotificationThread>> changedRepoNotifs = new ArrayList<>();
             for (List<NotificationThread> list : notifsGroupedByRepo) {
-                showRepoNotification(nm, list, lastCheck);
                 String repoId = String.valueOf(list.get(0).repository().id());
-                if (lastShownRepoIds != null) {
-                    lastShownRepoIds.remove(repoId);
+                String state = makeRepoState(list);
+                boolean wasShown = lastShownRepoIds != null && lastShownRepoIds.remove(repoId);
+                if (!wasShown || lastRepoStates == null || !lastRepoStates.contains(state)) {
+                    changedRepoNotifs.add(list);
                 }
                 newShownRepoIds.add(repoId);
+                newRepoStates.add(state);
+            }
+
+            boolean hasRemovedRepo = lastShownRepoIds != null && !lastShownRepoIds.isEmpty();
+            NotificationManagerCompat nm =
+                    NotificationManagerCompat.from(getContext());
+
+            if (!changedRepoNotifs.isEmpty() || hasRemovedRepo) {
+                showSummaryNotification(nm, notifsGroupedByRepo, hasNewNotification);
+            }
+            for (List<NotificationThread> list : changedRepoNotifs) {
+                showRepoNotification(nm, list, lastCheck);
             }
 
             // cancel sub-notifications for repos that no longer have notifications
@@ -188,12 +233,22 @@ public class NotificationsJob extends Job {
             prefs.edit()
                     .putLong(KEY_LAST_NOTIFICATION_CHECK, System.currentTimeMillis())
                     .putStringSet(KEY_LAST_SHOWN_REPO_IDS, newShownRepoIds)
+                    .putStringSet(KEY_LAST_REPO_STATES, newRepoStates)
                     .apply();
         }
 
         return Result.SUCCESS;
     }
 
+    private static String makeRepoState(List<NotificationThread> notifications) {
+        StringBuilder state = new StringBuilder();
+        state.append(notifications.get(0).repository().id());
+        for (NotificationThread n : notifications) {
+            state.append(':').append(n.id()).append('@').append(n.updatedAt().getTime());
+        }
+        return state.toString();
+    }
+
     private void showRepoNotification(NotificationManagerCompat nm,
             List<NotificationThread> notifications, long lastCheck) {
         Repository repository = notifications.get(0).repository();
@@ -0,0 +1,26 @@
+package com.gh4a.model;
+
+import io.reactivex.Single;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+import retrofit2.http.Streaming;
+
+public interface GitTreeService {
+    @GET("/repos/{owner}/{repo}/commits/{ref}")
+    @Headers("Accept: application/vnd.github.v3.sha")
+    Single<Response<String>> getCommitSha(@Path("owner") String owner,
+            @Path("repo") String repo, @Path("ref") String ref);
+
+    @Streaming
+    @GET("/repos/{owner}/{repo}/git/trees/{sha}?recursive=1")
+    Single<Response<ResponseBody>> getRecursiveTree(@Path("owner") String owner,
+            @Path("repo") String repo, @Path("sha") String sha);
+
+    @Streaming
+    @GET("/repos/{owner}/{repo}/git/trees/{sha}")
+    Single<Response<ResponseBody>> getTree(@Path("owner") String owner,
+            @Path("repo") String repo, @Path("sha") String sha);
+}
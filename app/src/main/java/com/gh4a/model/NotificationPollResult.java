@@ -0,0 +1,17 @@
+package com.gh4a.model;
+
+public class NotificationPollResult {
+    // null if the notifications weren't modified since the last poll
+    public final NotificationListLoadResult result;
+    // value to send as If-Modified-Since in the next poll
+    public final String lastModified;
+    // minimum time the server asks clients to wait before polling again
+    public final long pollIntervalSeconds;
+
+    public NotificationPollResult(NotificationListLoadResult result, String lastModified,
+            long pollIntervalSeconds) {
+        this.result = result;
+        this.lastModified = lastModified;
+        this.pollIntervalSeconds = pollIntervalSeconds;
+    }
+}
@@ -0,0 +1,20 @@
+package com.gh4a.model;
+
+import com.meisolsson.githubsdk.model.NotificationThread;
+import com.meisolsson.githubsdk.model.Page;
+
+import java.util.Map;
+
+import io.reactivex.Single;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Query;
+import retrofit2.http.QueryMap;
+
+public interface NotificationPollService {
+    @GET("/notifications")
+    Single<Response<Page<NotificationThread>>> getNotifications(
+            @Header("If-Modified-Since") String ifModifiedSince,
+            @QueryMap Map<String, Object> options, @Query("page") long page);
+}
@@ -0,0 +1,20 @@
+package com.gh4a.model;
+
+import io.reactivex.Single;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
+
+public interface RawContentService {
+    // unlike the JSON representation, the raw one is available for files of up to 100 MB
+    @Streaming
+    @GET("/repos/{owner}/{repo}/contents/{path}")
+    @Headers("Accept: application/vnd.github.v3.raw")
+    Single<Response<ResponseBody>> getRawContents(@Path("owner") String owner,
+            @Path("repo") String repo, @Path(value = "path", encoded = true) String path,
+            @Query("ref") String ref);
+}
@@ -0,0 +1,381 @@
+package com.gh4a.model;
+
+import com.meisolsson.githubsdk.core.ServiceGenerator;
+import com.meisolsson.githubsdk.model.Content;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.Types;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * All files and directories of a commit, as returned by the recursive Git Trees API,
+ * indexed by directory path.
+ *
+ * If the API truncated the tree, the missing parts can be filled in by fetching the
+ * subtrees returned by {@link #getMissingSubtree()} and passing them to
+ * {@link #addSubtree(Subtree, RepositoryTree)}.
+ */
+public class RepositoryTree {
+    private static final int FORMAT_VERSION = 1;
+    private static final byte TYPE_FILE = 0;
+    private static final byte TYPE_DIRECTORY = 1;
+
+    private static final JsonAdapter<List<Content>> CONTENT_LIST_ADAPTER =
+            ServiceGenerator.moshi.adapter(Types.newParameterizedType(List.class, Content.class));
+
+    private final String mSha;
+    private boolean mTruncated;
+    // directory path ("" for the root directory) -> entries
+    private final HashMap<String, ArrayList<Entry>> mDirectories;
+    // only kept while entries are missing: directory path -> tree SHA
+    private HashMap<String, String> mDirectoryShas;
+    // directories none of whose entries are known
+    private TreeSet<String> mMissingDirectories;
+    // directories only some of whose entries are known
+    private TreeSet<String> mPartialDirectories;
+
+    private RepositoryTree(String sha, boolean truncated,
+            HashMap<String, ArrayList<Entry>> directories) {
+        mSha = sha;
+        mTruncated = truncated;
+        mDirectories = directories;
+    }
+
+    /**
+     * A directory whose entries need to be fetched to complete a truncated tree.
+     */
+    public static class Subtree {
+        private final String mPath;
+        private final String mSha;
+        private final boolean mRecursive;
+
+        Subtree(String path, String sha, boolean recursive) {
+            mPath = path;
+            mSha = sha;
+            mRecursive = recursive;
+        }
+
+        public String getPath() {
+            return mPath;
+        }
+
+        public String getSha() {
+            return mSha;
+        }
+
+        /**
+         * Whether the subtree should be fetched recursively. If not, only the direct
+         * entries of the directory are missing, and fetching it recursively would run
+         * into the same limits again.
+         */
+        public boolean isRecursive() {
+            return mRecursive;
+        }
+    }
+
+    public String getSha() {
+        return mSha;
+    }
+
+    /**
+     * Whether entries are missing from the tree, because it exceeded the API limits
+     * and the missing parts weren't added yet, or because it wasn't loaded recursively.
+     */
+    public boolean isTruncated() {
+        return mTruncated;
+    }
+
+    /**
+     * @return A directory whose entries are missing from the tree,
+     *         or null if the tree isn't truncated
+     */
+    public Subtree getMissingSubtree() {
+        if (!mTruncated) {
+            return null;
+        }
+        // complete partial listings first, as they may reveal further missing directories
+        if (!mPartialDirectories.isEmpty()) {
+            String path = mPartialDirectories.first();
+            return new Subtree(path, mDirectoryShas.get(path), false);
+        }
+        String path = mMissingDirectories.first();
+        return new Subtree(path, mDirectoryShas.get(path), true);
+    }
+
+    /**
+     * Adds the entries of a subtree returned by {@link #getMissingSubtree()} to the tree.
+     *
+     * @param subtree Tree fetched for the subtree's SHA; it may be truncated itself
+     */
+    public void addSubtree(Subtree missing, RepositoryTree subtree) {
+        if (!mTruncated) {
+            return;
+        }
+        if (missing.isRecursive()) {
+            mMissingDirectories.remove(missing.getPath());
+        } else {
+            mPartialDirectories.remove(missing.getPath());
+        }
+
+        for (Map.Entry<String, ArrayList<Entry>> dir : subtree.mDirectories.entrySet()) {
+            String path = resolvePath(missing.getPath(), dir.getKey());
+            ArrayList<Entry> entries = mDirectories.get(path);
+            if (entries == null) {
+                entries = new ArrayList<>();
+                mDirectories.put(path, entries);
+            }
+            HashSet<String> names = new HashSet<>();
+            for (Entry entry : entries) {
+                names.add(entry.name);
+            }
+            for (Entry entry : dir.getValue()) {
+                if (names.add(entry.name)) {
+                    entries.add(entry);
+                }
+            }
+            if (entries.isEmpty()) {
+                mMissingDirectories.add(path);
+            }
+        }
+        if (subtree.mDirectoryShas != null) {
+            for (Map.Entry<String, String> dir : subtree.mDirectoryShas.entrySet()) {
+                mDirectoryShas.put(resolvePath(missing.getPath(), dir.getKey()), dir.getValue());
+            }
+            for (String path : subtree.mPartialDirectories) {
+                mPartialDirectories.add(resolvePath(missing.getPath(), path));
+            }
+        }
+
+        if (mMissingDirectories.isEmpty() && mPartialDirectories.isEmpty()) {
+            mTruncated = false;
+            mDirectoryShas = null;
+            mMissingDirectories = null;
+            mPartialDirectories = null;
+        }
+    }
+
+    /**
+     * @param path Path of the directory, null or empty for the root directory
+     * @return The contents of the directory, or null if there's no such directory
+     */
+    public List<Content> getDirectoryContents(String path) throws IOException {
+        String dirPath = path != null ? path : "";
+        List<Entry> entries = mDirectories.get(dirPath);
+        if (entries == null) {
+            return null;
+        }
+
+        // Content has no public constructor, so go through its JSON representation
+        Buffer buffer = new Buffer();
+        JsonWriter writer = JsonWriter.of(buffer);
+        writer.beginArray();
+        for (Entry entry : entries) {
+            writer.beginObject();
+            writer.name("name").value(entry.name);
+            writer.name("path").value(dirPath.isEmpty() ? entry.name : dirPath + "/" + entry.name);
+            // matches what the contents API returns for directory listings
+            writer.name("type").value(entry.type == TYPE_DIRECTORY ? "dir" : "file");
+            writer.name("size").value(entry.size);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.close();
+        return CONTENT_LIST_ADAPTER.fromJson(buffer);
+    }
+
+    /**
+     * @return The paths of all files in the tree, in no particular order
+     */
+    public List<String> getFilePaths() {
+        List<String> paths = new ArrayList<>();
+        for (Map.Entry<String, ArrayList<Entry>> dir : mDirectories.entrySet()) {
+            String dirPath = dir.getKey();
+            for (Entry entry : dir.getValue()) {
+                if (entry.type == TYPE_FILE) {
+                    paths.add(dirPath.isEmpty() ? entry.name : dirPath + "/" + entry.name);
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Parses a response of the Git Trees API without building an intermediate
+     * object for each entry.
+     */
+    public static RepositoryTree parse(String sha, BufferedSource source) throws IOException {
+        HashMap<String, ArrayList<Entry>> directories = new HashMap<>();
+        directories.put("", new ArrayList<>());
+        HashMap<String, String> directoryShas = new HashMap<>();
+        directoryShas.put("", sha);
+        String lastPath = null;
+        boolean truncated = false;
+
+        JsonReader reader = JsonReader.of(source);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "truncated":
+                    truncated = reader.nextBoolean();
+                    break;
+                case "tree":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String path = parseEntry(reader, directories, directoryShas);
+                        if (path != null) {
+                            lastPath = path;
+                        }
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        RepositoryTree tree = new RepositoryTree(sha, truncated, directories);
+        tree.collectMissingDirectories(directoryShas, lastPath);
+        return tree;
+    }
+
+    /**
+     * Records the directories whose entries weren't listed: those without any entries,
+     * as Git doesn't store empty directories, and, if the tree was truncated, the
+     * directories of the last listed entry, as the entries are listed depth first.
+     */
+    private void collectMissingDirectories(HashMap<String, String> directoryShas,
+            String lastPath) {
+        TreeSet<String> missing = new TreeSet<>();
+        for (Map.Entry<String, ArrayList<Entry>> dir : mDirectories.entrySet()) {
+            if (dir.getValue().isEmpty() && !dir.getKey().isEmpty()) {
+                missing.add(dir.getKey());
+            }
+        }
+        TreeSet<String> partial = new TreeSet<>();
+        if (mTruncated) {
+            String path = lastPath != null ? lastPath : "";
+            do {
+                int slashPos = path.lastIndexOf('/');
+                path = slashPos > 0 ? path.substring(0, slashPos) : "";
+                partial.add(path);
+            } while (!path.isEmpty());
+        }
+
+        // listings of a single directory have no entries for its subdirectories either
+        mTruncated = !missing.isEmpty() || !partial.isEmpty();
+        if (mTruncated) {
+            mDirectoryShas = directoryShas;
+            mMissingDirectories = missing;
+            mPartialDirectories = partial;
+        }
+    }
+
+    private static String resolvePath(String dirPath, String relativePath) {
+        if (dirPath.isEmpty()) {
+            return relativePath;
+        }
+        return relativePath.isEmpty() ? dirPath : dirPath + "/" + relativePath;
+    }
+
+    private static String parseEntry(JsonReader reader, HashMap<String, ArrayList<Entry>> directories,
+            HashMap<String, String> directoryShas) throws IOException {
+        String path = null, type = null, sha = null;
+        long size = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "path": path = reader.nextString(); break;
+                case "type": type = reader.nextString(); break;
+                case "sha": sha = reader.nextString(); break;
+                case "size": size = reader.nextLong(); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+
+        if (path == null) {
+            return null;
+        }
+        byte entryType = "tree".equals(type) ? TYPE_DIRECTORY : TYPE_FILE;
+        if (entryType == TYPE_DIRECTORY) {
+            if (!directories.containsKey(path)) {
+                directories.put(path, new ArrayList<>());
+            }
+            directoryShas.put(path, sha);
+        }
+
+        int slashPos = path.lastIndexOf('/');
+        String dirPath = slashPos > 0 ? path.substring(0, slashPos) : "";
+        ArrayList<Entry> entries = directories.get(dirPath);
+        if (entries == null) {
+            // entries are ordered by path, so this shouldn't happen, but be safe
+            entries = new ArrayList<>();
+            directories.put(dirPath, entries);
+        }
+        entries.add(new Entry(path.substring(slashPos + 1), entryType, size));
+        return path;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(mSha);
+        out.writeInt(mDirectories.size());
+        for (Map.Entry<String, ArrayList<Entry>> dir : mDirectories.entrySet()) {
+            out.writeUTF(dir.getKey());
+            out.writeInt(dir.getValue().size());
+            for (Entry entry : dir.getValue()) {
+                out.writeUTF(entry.name);
+                out.writeByte(entry.type);
+                out.writeLong(entry.size);
+            }
+        }
+    }
+
+    public static RepositoryTree readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported tree format");
+        }
+        String sha = in.readUTF();
+        int dirCount = in.readInt();
+        HashMap<String, ArrayList<Entry>> directories = new HashMap<>(dirCount * 4 / 3 + 1);
+        for (int i = 0; i < dirCount; i++) {
+            String path = in.readUTF();
+            int entryCount = in.readInt();
+            ArrayList<Entry> entries = new ArrayList<>(entryCount);
+            for (int j = 0; j < entryCount; j++) {
+                entries.add(new Entry(in.readUTF(), in.readByte(), in.readLong()));
+            }
+            directories.put(path, entries);
+        }
+        // truncated trees are never persisted
+        return new RepositoryTree(sha, false, directories);
+    }
+
+    private static class Entry {
+        final String name;
+        final byte type;
+        final long size;
+
+        Entry(String name, byte type, long size) {
+            this.name = name;
+            this.type = type;
+            this.size = size;
+        }
+    }
+}
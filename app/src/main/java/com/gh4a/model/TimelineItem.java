@@ -119,6 +119,25 @@ public abstract class TimelineItem {
 
             return null;
         }
+
+        // the parent diff is left out, as it refers back to this comment
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TimelineComment)) {
+                return false;
+            }
+            TimelineComment other = (TimelineComment) o;
+            return comment.equals(other.comment)
+                    && (file != null ? file.equals(other.file) : other.file == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * comment.hashCode() + (file != null ? file.hashCode() : 0);
+        }
     }
 
     public static class TimelineEvent extends TimelineItem {
@@ -142,6 +161,16 @@ public abstract class TimelineItem {
         public Date getCreatedAt() {
             return event.createdAt();
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TimelineEvent && event.equals(((TimelineEvent) o).event);
+        }
+
+        @Override
+        public int hashCode() {
+            return event.hashCode();
+        }
     }
 
     public static class TimelineReview extends TimelineItem {
@@ -220,6 +249,24 @@ public abstract class TimelineItem {
                 }
             }
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TimelineReview)) {
+                return false;
+            }
+            TimelineReview other = (TimelineReview) o;
+            return review.equals(other.review)
+                    && diffHunksBySpecialId.equals(other.diffHunksBySpecialId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * review.hashCode() + diffHunksBySpecialId.hashCode();
+        }
     }
 
     public static class Diff extends TimelineItem implements Comparable<Diff> {
@@ -334,6 +381,23 @@ public abstract class TimelineItem {
 
             return createdAt.compareTo(otherCreatedAt);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Diff)) {
+                return false;
+            }
+            Diff other = (Diff) o;
+            return mIsReply == other.mIsReply && comments.equals(other.comments);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * comments.hashCode() + (mIsReply ? 1 : 0);
+        }
     }
 
     public static class Reply extends TimelineItem {
@@ -354,6 +418,16 @@ public abstract class TimelineItem {
         public Date getCreatedAt() {
             return null;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Reply && timelineComment.equals(((Reply) o).timelineComment);
+        }
+
+        @Override
+        public int hashCode() {
+            return timelineComment.hashCode();
+        }
     }
 
     @Nullable
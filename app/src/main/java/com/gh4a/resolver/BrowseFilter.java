@@ -13,6 +13,8 @@ import com.gh4a.utils.IntentUtils;
 public class BrowseFilter extends AppCompatActivity {
     private static final String EXTRA_INITIAL_COMMENT = "initial_comment";
 
+    private UrlLoadTask mLoadTask;
+
     public static Intent makeRedirectionIntent(Context context, Uri uri,
             IntentUtils.InitialCommentMarker initialComment) {
         Intent intent = new Intent(context, BrowseFilter.class);
@@ -49,9 +51,18 @@ public class BrowseFilter extends AppCompatActivity {
             return;
         }
 
+        mLoadTask = result.loadTask;
         //noinspection ConstantConditions
-        result.loadTask.execute();
+        mLoadTask.execute();
 
         // Avoid finish() for now
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (mLoadTask != null) {
+            mLoadTask.cancel();
+        }
+    }
 }
@@ -2,9 +2,12 @@ package com.gh4a.resolver;
 
 import android.content.Intent;
 import android.support.v4.app.FragmentActivity;
+import android.util.Log;
 
+import com.gh4a.Gh4Application;
 import com.gh4a.activities.FileViewerActivity;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.AppSchedulers;
 import com.gh4a.utils.FileUtils;
 import com.gh4a.utils.Optional;
 import com.gh4a.utils.RxUtils;
@@ -32,15 +35,31 @@ public abstract class DiffLoadTask<C extends PositionalCommentBase> extends UrlL
     protected Single<Optional<Intent>> getSingle() {
         Single<Optional<GitHubFile>> fileSingle = getFiles()
                 .compose(RxUtils.filterAndMapToFirst(
-                        f -> ApiHelpers.md5(f.filename()).equalsIgnoreCase(mDiffId.fileHash)));
-        return Single.zip(getSha(), fileSingle, (sha, fileOpt) -> fileOpt.map(file -> {
+                        f -> ApiHelpers.md5(f.filename()).equalsIgnoreCase(mDiffId.fileHash)))
+                .subscribeOn(AppSchedulers.network());
+        Single<String> shaSingle = getSha()
+                .subscribeOn(AppSchedulers.network());
+        // Comments are loaded alongside the other data even though they're not needed
+        // for images. Don't let a failure doing so affect those.
+        Single<Optional<List<C>>> commentSingle = getComments()
+                .map(Optional::of)
+                .onErrorReturn(error -> {
+                    Log.w(Gh4Application.LOG_TAG, "Could not load comments of diff", error);
+                    return Optional.<List<C>>absent();
+                })
+                .subscribeOn(AppSchedulers.network());
+
+        return Single.zip(shaSingle, fileSingle, commentSingle, (sha, fileOpt, commentsOpt) -> {
+            if (!fileOpt.isPresent()) {
+                return Optional.<Intent>absent();
+            }
+            GitHubFile file = fileOpt.get();
             if (FileUtils.isImage(file.filename())) {
-                return FileViewerActivity.makeIntent(mActivity, mRepoOwner, mRepoName,
-                        sha, file.filename());
+                return Optional.of(FileViewerActivity.makeIntent(mActivity,
+                        mRepoOwner, mRepoName, sha, file.filename()));
             }
-
-            return getLaunchIntent(sha, file, getComments().blockingGet(), mDiffId);
-        }));
+            return commentsOpt.map(comments -> getLaunchIntent(sha, file, comments, mDiffId));
+        });
     }
 
     protected abstract Single<List<GitHubFile>> getFiles();
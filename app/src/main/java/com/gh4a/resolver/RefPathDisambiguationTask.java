@@ -3,19 +3,23 @@ package com.gh4a.resolver;
 import android.content.Intent;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.app.FragmentActivity;
-import android.text.TextUtils;
 import android.util.Pair;
 
 import com.gh4a.ApiRequestException;
 import com.gh4a.ServiceFactory;
 import com.gh4a.activities.FileViewerActivity;
 import com.gh4a.activities.RepositoryActivity;
+import com.gh4a.db.RefIndex;
 import com.gh4a.utils.ApiHelpers;
+import com.gh4a.utils.AppSchedulers;
 import com.gh4a.utils.Optional;
+import com.gh4a.utils.RxUtils;
 import com.meisolsson.githubsdk.model.Branch;
+import com.meisolsson.githubsdk.service.git.GitService;
 import com.meisolsson.githubsdk.service.repositories.RepositoryBranchService;
 import com.meisolsson.githubsdk.service.repositories.RepositoryService;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -96,23 +100,56 @@ public class RefPathDisambiguationTask extends UrlLoadTask {
                 });
     }
 
-    private Single<Optional<Pair<String, String>>> matchBranch(Single<List<Branch>> input) {
-        return input.map(branches -> {
-            for (Branch branch : branches) {
-                if (TextUtils.equals(mRefAndPath, branch.name())) {
-                    return Optional.of(Pair.create(branch.name(), null));
-                } else {
-                    String nameWithSlash = branch.name() + "/";
-                    if (mRefAndPath.startsWith(nameWithSlash)) {
-                        return Optional.of(Pair.create(branch.name(),
-                                mRefAndPath.substring(nameWithSlash.length())));
-                    }
-                }
-            }
-            return Optional.absent();
+    private Single<RefIndex> getRefIndex() {
+        return Single.fromCallable(() ->
+                Optional.ofWithNull(RefIndex.get(mActivity, mRepoOwner, mRepoName)))
+                .flatMap(indexOpt -> indexOpt.isPresent()
+                        ? Single.just(indexOpt.get()) : loadRefIndex());
+    }
+
+    private Single<RefIndex> loadRefIndex() {
+        final RepositoryBranchService branchService =
+                ServiceFactory.get(RepositoryBranchService.class, false);
+        final RepositoryService repoService = ServiceFactory.get(RepositoryService.class, false);
+
+        // Unchanged pages are revalidated by the HTTP cache, so refreshing an
+        // expired index mostly results in 'not modified' responses
+        Single<List<String>> branchSingle = ApiHelpers.PageIterator
+                .toParallelSingle(page -> branchService.getBranches(mRepoOwner, mRepoName, page))
+                .compose(RxUtils.mapList(Branch::name))
+                .subscribeOn(AppSchedulers.network());
+        Single<List<String>> tagSingle = ApiHelpers.PageIterator
+                .toParallelSingle(page -> repoService.getTags(mRepoOwner, mRepoName, page))
+                .compose(RxUtils.mapList(Branch::name))
+                .subscribeOn(AppSchedulers.network());
+
+        return Single.zip(branchSingle, tagSingle, (branches, tags) -> {
+            List<String> refs = new ArrayList<>(branches);
+            refs.addAll(tags);
+            return RefIndex.create(mActivity, mRepoOwner, mRepoName, refs);
         });
     }
 
+    // Checks whether the first path component is a branch created after the index
+    private Single<Optional<Pair<String, String>>> lookUpMissingRef(RefIndex index) {
+        int slashPos = mRefAndPath.indexOf('/');
+        final String ref = slashPos > 0 ? mRefAndPath.substring(0, slashPos) : mRefAndPath;
+        final String path = slashPos > 0 ? mRefAndPath.substring(slashPos + 1) : null;
+        if (SHA1_PATTERN.matcher(ref).matches()) {
+            return Single.just(Optional.absent());
+        }
+
+        final GitService service = ServiceFactory.get(GitService.class, false);
+        return service.getGitReference(mRepoOwner, mRepoName, "heads/" + ref)
+                .map(ApiHelpers::throwOnFailure)
+                .map(reference -> {
+                    index.addRef(mActivity, ref);
+                    return Optional.of(Pair.create(ref, path));
+                })
+                // the API returns a list of refs if there's no exact match, which fails parsing
+                .onErrorReturnItem(Optional.absent());
+    }
+
     // returns ref, path
     private Single<Optional<Pair<String, String>>> resolve() throws ApiRequestException {
         // first check whether the path redirects to HEAD
@@ -121,19 +158,15 @@ public class RefPathDisambiguationTask extends UrlLoadTask {
                     mRefAndPath.startsWith("HEAD/") ? mRefAndPath.substring(5) : null)));
         }
 
-        final RepositoryBranchService branchService =
-                ServiceFactory.get(RepositoryBranchService.class, false);
-        final RepositoryService repoService = ServiceFactory.get(RepositoryService.class, false);
-
-        // then look for matching branches
-        return ApiHelpers.PageIterator
-                .toSingle(page -> branchService.getBranches(mRepoOwner, mRepoName, page))
-                .compose(this::matchBranch)
-                // and tags after that
-                .flatMap(result -> result.orOptionalSingle(() -> ApiHelpers.PageIterator
-                        .toSingle(page -> repoService.getTags(mRepoOwner, mRepoName, page))
-                        .compose(this::matchBranch))
-                )
+        // then look for matching branches and tags
+        return getRefIndex()
+                .flatMap(index -> {
+                    Pair<String, String> refAndPath = index.findRef(mRefAndPath);
+                    if (refAndPath != null) {
+                        return Single.just(Optional.of(refAndPath));
+                    }
+                    return lookUpMissingRef(index);
+                })
                 .map(resultOpt -> resultOpt.orOptional(() -> {
                     // at this point, the first item may still be a SHA1 - check with a simple regex
                     int slashPos = mRefAndPath.indexOf('/');
@@ -1,52 +1,72 @@
 package com.gh4a.resolver;
 
-import android.app.Activity;
 import android.app.Dialog;
 import android.content.DialogInterface;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
 import android.support.v4.app.FragmentActivity;
 import android.util.Log;
 
+import com.gh4a.BuildConfig;
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
+import com.gh4a.utils.AppSchedulers;
 import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.Optional;
 import com.gh4a.utils.UiUtils;
 
+import java.util.HashMap;
+import java.util.Locale;
+
 import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
+public abstract class UrlLoadTask {
+    // task class name -> { resolution count, total resolution time in ms }
+    private static final HashMap<String, long[]> sResolutionTimes = new HashMap<>();
 
-public abstract class UrlLoadTask extends AsyncTask<Void, Void, Optional<Intent>> {
     protected final FragmentActivity mActivity;
     private ProgressDialogFragment mProgressDialog;
+    private Disposable mDisposable;
+    private long mStartTime;
 
     public UrlLoadTask(FragmentActivity activity) {
         super();
         mActivity = activity;
     }
 
-    @Override
-    protected void onPreExecute() {
-        super.onPreExecute();
+    public void execute() {
         mProgressDialog = new ProgressDialogFragment();
         mProgressDialog.show(mActivity.getSupportFragmentManager(), "progress");
+        mStartTime = SystemClock.uptimeMillis();
+
+        mDisposable = Single.defer(this::getSingle)
+                .subscribeOn(AppSchedulers.network())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::onLoadFinished, error -> {
+                    Log.e(Gh4Application.LOG_TAG, "Failure during intent resolving", error);
+                    onLoadFinished(Optional.absent());
+                });
     }
 
-    @Override
-    protected Optional<Intent> doInBackground(Void... params) {
-        try {
-            return getSingle().blockingGet();
-        } catch (Exception e) {
-            Log.e(Gh4Application.LOG_TAG, "Failure during intent resolving", e);
-            return Optional.absent();
+    /**
+     * Stops resolving, e.g. because the user backed out of it. The activity isn't
+     * finished by this.
+     */
+    public void cancel() {
+        if (mDisposable != null) {
+            mDisposable.dispose();
+            mDisposable = null;
         }
     }
 
-    @Override
-    protected void onPostExecute(Optional<Intent> result) {
+    private void onLoadFinished(Optional<Intent> result) {
+        mDisposable = null;
+        recordResolutionTime();
         if (mActivity.isFinishing()) {
             return;
         }
@@ -63,6 +83,39 @@ public abstract class UrlLoadTask extends AsyncTask<Void, Void, Optional<Intent>
         mActivity.finish();
     }
 
+    private void recordResolutionTime() {
+        String name = getClass().getSimpleName();
+        long duration = SystemClock.uptimeMillis() - mStartTime;
+        synchronized (sResolutionTimes) {
+            long[] times = sResolutionTimes.get(name);
+            if (times == null) {
+                times = new long[2];
+                sResolutionTimes.put(name, times);
+            }
+            times[0]++;
+            times[1] += duration;
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(Gh4Application.LOG_TAG, String.format(Locale.US,
+                    "%s resolved in %d ms", name, duration));
+        }
+    }
+
+    public static String getResolutionStatistics() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (sResolutionTimes) {
+            for (String name : sResolutionTimes.keySet()) {
+                long[] times = sResolutionTimes.get(name);
+                if (builder.length() > 0) {
+                    builder.append("\n");
+                }
+                builder.append(String.format(Locale.US, "%s: %d resolutions, avg %d ms",
+                        name, times[0], times[1] / times[0]));
+            }
+        }
+        return builder.toString();
+    }
+
     protected abstract Single<Optional<Intent>> getSingle();
 
     public static class ProgressDialogFragment extends DialogFragment {
@@ -71,5 +124,14 @@ public abstract class UrlLoadTask extends AsyncTask<Void, Void, Optional<Intent>
         public Dialog onCreateDialog(Bundle savedInstanceState) {
             return UiUtils.createProgressDialog(getActivity(), R.string.loading_msg);
         }
+
+        @Override
+        public void onCancel(DialogInterface dialog) {
+            super.onCancel(dialog);
+            // the owning activity cancels the load when being destroyed
+            if (getActivity() != null) {
+                getActivity().finish();
+            }
+        }
     }
 }
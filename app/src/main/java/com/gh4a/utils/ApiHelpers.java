@@ -273,9 +273,16 @@ public class ApiHelpers {
             Single<Response<Page<T>>> getPage(long page);
         }
 
+        public static final int DEFAULT_MAX_CONCURRENT_PAGES = 4;
+
         public static <T> Observable<List<T>> toObservable(PageProducer<T> producer) {
+            return toObservable(producer, 1);
+        }
+
+        private static <T> Observable<List<T>> toObservable(PageProducer<T> producer,
+                int firstPage) {
             BehaviorSubject<Optional<Integer>> pageControl =
-                    BehaviorSubject.createDefault(Optional.of(1));
+                    BehaviorSubject.createDefault(Optional.of(firstPage));
             return pageControl.concatMap(page -> {
                 if (page.isPresent()) {
                     return producer.getPage(page.get())
@@ -289,8 +296,54 @@ public class ApiHelpers {
             });
         }
 
+        /**
+         * Loads all pages, fetching up to {@code maxConcurrency} pages at the same time.
+         *
+         * Once the first page tells us the number of the last page, all remaining pages
+         * are requested in parallel, while still being emitted in page order. Endpoints
+         * which don't report the last page are iterated sequentially.
+         */
+        public static <T> Observable<List<T>> toParallelObservable(PageProducer<T> producer,
+                int maxConcurrency) {
+            return producer.getPage(1)
+                    .toObservable()
+                    .compose(PageIterator::evaluateError)
+                    .concatMap(firstPage -> {
+                        Observable<List<T>> first = Observable.just(firstPage.items());
+                        Integer next = firstPage.next();
+                        Integer last = firstPage.last();
+                        if (next == null) {
+                            return first;
+                        }
+                        if (last == null || last < next) {
+                            return first.concatWith(toObservable(producer, next));
+                        }
+                        // the remaining pages are fetched ahead of need, so leave some
+                        // budget to requests the user is actively waiting for
+                        int priority = Math.max(RateLimitTracker.getPriority(),
+                                RateLimitTracker.PRIORITY_PREFETCH);
+                        Observable<List<T>> remaining = Observable.range(next, last - next + 1)
+                                .concatMapEager(page -> RateLimitTracker.withPriority(
+                                                producer.getPage(page), priority,
+                                                AppSchedulers.network())
+                                        .toObservable()
+                                        .compose(PageIterator::evaluateError)
+                                        .map(responsePage -> responsePage.items()),
+                                        maxConcurrency, 1);
+                        return first.concatWith(remaining);
+                    });
+        }
+
         public static <T> Single<List<T>> toSingle(PageProducer<T> producer) {
-            return toObservable(producer)
+            return flatten(toObservable(producer));
+        }
+
+        public static <T> Single<List<T>> toParallelSingle(PageProducer<T> producer) {
+            return flatten(toParallelObservable(producer, DEFAULT_MAX_CONCURRENT_PAGES));
+        }
+
+        private static <T> Single<List<T>> flatten(Observable<List<T>> pages) {
+            return pages
                     .toList()
                     .map(lists -> {
                         List<T> result = new ArrayList<>();
@@ -301,6 +354,14 @@ public class ApiHelpers {
                     });
         }
 
+        /**
+         * Like {@link #toSingle(PageProducer)}, but shares the fetch with all concurrent
+         * subscribers using the same key, see {@link RequestCoalescer}.
+         */
+        public static <T> Single<List<T>> toSingle(PageProducer<T> producer, String requestKey) {
+            return RequestCoalescer.coalesce(requestKey, toSingle(producer));
+        }
+
         private static <T> Observable<Page<T>> evaluateError(Observable<Response<Page<T>>> upstream) {
             return upstream.map(response -> {
                 throwOnFailure(response);
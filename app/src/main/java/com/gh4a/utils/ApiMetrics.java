@@ -0,0 +1,393 @@
+package com.gh4a.utils;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Records timings, cache outcomes and transferred bytes of all HTTP calls, grouped by
+ * endpoint, as well as the API rate limit headroom. Collection is cheap enough to be
+ * always enabled, so slow screens can be attributed to specific calls in release builds.
+ */
+public class ApiMetrics {
+    private static final int MAX_ENDPOINTS = 100;
+    private static final String OTHER_ENDPOINTS = "(other)";
+
+    public static final EventListener.Factory EVENT_LISTENER_FACTORY = call -> new CallListener();
+
+    private static final HashMap<String, EndpointMetrics> sEndpoints = new HashMap<>();
+    private static int sRateLimit = -1;
+    private static int sRateLimitRemaining = -1;
+    private static int sMinRateLimitRemaining = -1;
+
+    private ApiMetrics() {
+    }
+
+    public static synchronized String getReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "Rate limit: %d of %d remaining (lowest %d)\n",
+                sRateLimitRemaining, sRateLimit, sMinRateLimitRemaining));
+
+        List<EndpointMetrics> endpoints = new ArrayList<>(sEndpoints.values());
+        // slowest endpoints in total first
+        Collections.sort(endpoints, (lhs, rhs) -> {
+            long lhsTotal = lhs.mTotal.mSum, rhsTotal = rhs.mTotal.mSum;
+            return lhsTotal > rhsTotal ? -1 : lhsTotal < rhsTotal ? 1 : 0;
+        });
+        for (EndpointMetrics endpoint : endpoints) {
+            builder.append('\n');
+            endpoint.appendTo(builder);
+        }
+        return builder.toString();
+    }
+
+    public static synchronized void reset() {
+        sEndpoints.clear();
+        sMinRateLimitRemaining = sRateLimitRemaining;
+    }
+
+    /**
+     * Maps a request URL to the endpoint it belongs to, replacing user, repository and
+     * object identifiers by placeholders, e.g. /repos/{owner}/{repo}/issues/{id}.
+     */
+    static String getEndpointTemplate(String method, HttpUrl url) {
+        StringBuilder builder = new StringBuilder(method).append(' ');
+        if (!"api.github.com".equals(url.host())) {
+            // avatars and other assets, their paths don't matter
+            return builder.append(url.host()).toString();
+        }
+
+        List<String> segments = url.pathSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            String previous = i > 0 ? segments.get(i - 1) : null;
+            builder.append('/');
+            if (i == 1 && ("users".equals(previous) || "orgs".equals(previous))) {
+                builder.append("{user}");
+            } else if (i == 1 && "repos".equals(previous)) {
+                builder.append("{owner}");
+            } else if (i == 2 && "repos".equals(segments.get(0))) {
+                builder.append("{repo}");
+            } else if ("contents".equals(previous) || "refs".equals(previous)
+                    || "compare".equals(previous)) {
+                // the remainder is a file path or ref name
+                builder.append("{path}");
+                break;
+            } else if (isNumber(segment)) {
+                builder.append("{id}");
+            } else if (isSha(segment)) {
+                builder.append("{sha}");
+            } else {
+                builder.append(segment);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isNumber(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSha(String segment) {
+        if (segment.length() < 7 || segment.length() > 40) {
+            return false;
+        }
+        boolean hasDigit = false;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c < 'a' || c > 'f') {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    private static synchronized void record(CallListener call) {
+        EndpointMetrics endpoint = sEndpoints.get(call.mEndpoint);
+        if (endpoint == null) {
+            String name = sEndpoints.size() < MAX_ENDPOINTS ? call.mEndpoint : OTHER_ENDPOINTS;
+            endpoint = sEndpoints.get(name);
+            if (endpoint == null) {
+                endpoint = new EndpointMetrics(name);
+                sEndpoints.put(name, endpoint);
+            }
+        }
+        endpoint.record(call);
+
+        if (call.mRateLimitRemaining >= 0) {
+            sRateLimit = call.mRateLimit;
+            sRateLimitRemaining = call.mRateLimitRemaining;
+            if (sMinRateLimitRemaining < 0 || call.mRateLimitRemaining < sMinRateLimitRemaining) {
+                sMinRateLimitRemaining = call.mRateLimitRemaining;
+            }
+        }
+    }
+
+    private static long elapsedMillis(long startNanos, long endNanos) {
+        return startNanos > 0 && endNanos >= startNanos ? (endNanos - startNanos) / 1000000 : -1;
+    }
+
+    private static class CallListener extends EventListener {
+        private String mEndpoint;
+        private long mCallStart;
+        private long mDnsStart;
+        private long mDnsEnd;
+        private long mConnectStart;
+        private long mConnectEnd;
+        private long mSecureConnectStart;
+        private long mSecureConnectEnd;
+        private long mRequestEnd;
+        private long mResponseHeadersStart;
+        private long mResponseBodyStart;
+        private long mResponseBodyEnd;
+        private long mCallEnd;
+        private long mRequestBytes;
+        private long mResponseBytes;
+        private int mNetworkResponseCode = -1;
+        private int mRateLimit = -1;
+        private int mRateLimitRemaining = -1;
+        private boolean mFailed;
+
+        @Override
+        public void callStart(Call call) {
+            mCallStart = System.nanoTime();
+            mEndpoint = getEndpointTemplate(call.request().method(), call.request().url());
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mDnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, @NonNull List<InetAddress> addresses) {
+            mDnsEnd = System.nanoTime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            mConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mSecureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            mSecureConnectEnd = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy,
+                Protocol protocol) {
+            mConnectEnd = System.nanoTime();
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            mRequestEnd = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            mRequestEnd = System.nanoTime();
+            mRequestBytes += byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            mResponseHeadersStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            // the network response; it's absent for responses served from the cache
+            mNetworkResponseCode = response.code();
+            mRateLimit = parseInt(response.header("X-RateLimit-Limit"));
+            mRateLimitRemaining = parseInt(response.header("X-RateLimit-Remaining"));
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            mResponseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            mResponseBodyEnd = System.nanoTime();
+            mResponseBytes += byteCount;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            mCallEnd = System.nanoTime();
+            record(this);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            mCallEnd = System.nanoTime();
+            mFailed = true;
+            record(this);
+        }
+
+        private static int parseInt(String value) {
+            if (value == null) {
+                return -1;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static class EndpointMetrics {
+        private final String mName;
+        private long mCount;
+        private long mFailures;
+        private long mCacheHits;
+        private long mConditionalHits;
+        private long mCacheMisses;
+        private long mRequestBytes;
+        private long mResponseBytes;
+        private final Histogram mDns = new Histogram();
+        private final Histogram mConnect = new Histogram();
+        private final Histogram mTls = new Histogram();
+        private final Histogram mTtfb = new Histogram();
+        private final Histogram mBody = new Histogram();
+        private final Histogram mTotal = new Histogram();
+
+        EndpointMetrics(String name) {
+            mName = name;
+        }
+
+        void record(CallListener call) {
+            mCount++;
+            if (call.mFailed) {
+                mFailures++;
+            } else if (call.mNetworkResponseCode < 0) {
+                mCacheHits++;
+            } else if (call.mNetworkResponseCode == 304) {
+                mConditionalHits++;
+            } else {
+                mCacheMisses++;
+            }
+            mRequestBytes += call.mRequestBytes;
+            mResponseBytes += call.mResponseBytes;
+
+            mDns.add(elapsedMillis(call.mDnsStart, call.mDnsEnd));
+            mConnect.add(elapsedMillis(call.mConnectStart, call.mConnectEnd));
+            mTls.add(elapsedMillis(call.mSecureConnectStart, call.mSecureConnectEnd));
+            mTtfb.add(elapsedMillis(call.mRequestEnd, call.mResponseHeadersStart));
+            mBody.add(elapsedMillis(call.mResponseBodyStart, call.mResponseBodyEnd));
+            mTotal.add(elapsedMillis(call.mCallStart, call.mCallEnd));
+        }
+
+        void appendTo(StringBuilder builder) {
+            builder.append(mName).append('\n');
+            builder.append(String.format(Locale.US,
+                    "  %d calls, %d failed; cache: %d hits, %d conditional hits, %d misses; "
+                            + "%d bytes sent, %d bytes received\n",
+                    mCount, mFailures, mCacheHits, mConditionalHits, mCacheMisses,
+                    mRequestBytes, mResponseBytes));
+            for (Map.Entry<String, Histogram> entry : getHistograms().entrySet()) {
+                if (entry.getValue().mCount > 0) {
+                    builder.append("  ").append(entry.getKey()).append(": ");
+                    entry.getValue().appendTo(builder);
+                    builder.append('\n');
+                }
+            }
+        }
+
+        private Map<String, Histogram> getHistograms() {
+            Map<String, Histogram> histograms = new LinkedHashMap<>();
+            histograms.put("total", mTotal);
+            histograms.put("dns", mDns);
+            histograms.put("connect", mConnect);
+            histograms.put("tls", mTls);
+            histograms.put("ttfb", mTtfb);
+            histograms.put("body", mBody);
+            return histograms;
+        }
+    }
+
+    private static class Histogram {
+        // upper bounds in milliseconds, the last bucket holds everything above
+        private static final long[] BUCKET_BOUNDS = {
+            10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+        };
+
+        private final long[] mBuckets = new long[BUCKET_BOUNDS.length + 1];
+        private long mCount;
+        private long mSum;
+        private long mMax;
+
+        void add(long millis) {
+            if (millis < 0) {
+                // phase didn't happen, e.g. no DNS lookup for a pooled connection
+                return;
+            }
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            mBuckets[bucket]++;
+            mCount++;
+            mSum += millis;
+            mMax = Math.max(mMax, millis);
+        }
+
+        /**
+         * @return Upper bound of the bucket containing the given percentile
+         */
+        long getPercentile(int percentile) {
+            long threshold = (mCount * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= threshold) {
+                    return Math.min(BUCKET_BOUNDS[i], mMax);
+                }
+            }
+            return mMax;
+        }
+
+        void appendTo(StringBuilder builder) {
+            builder.append(String.format(Locale.US,
+                    "n=%d avg=%d ms p50<=%d ms p90<=%d ms max=%d ms",
+                    mCount, mSum / mCount, getPercentile(50), getPercentile(90), mMax));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.gh4a.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Bounded schedulers for background work, split by the kind of work so that e.g. slow
+ * network requests can't starve parsing or disk access. Each pool has a fixed maximum
+ * thread count and queues work beyond it, so the number of threads stays flat regardless
+ * of the number of concurrent requests.
+ *
+ * Work scheduled on these pools must not block waiting for other work scheduled on
+ * the same pool.
+ */
+public class AppSchedulers {
+    private static final Pool sNetworkPool = new Pool("Network", 6);
+    private static final Pool sComputationPool = new Pool("Computation",
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private static final Pool sDiskPool = new Pool("Disk", 2);
+
+    private AppSchedulers() {
+    }
+
+    /** Scheduler for API requests and other network I/O. */
+    public static Scheduler network() {
+        return sNetworkPool.mScheduler;
+    }
+
+    /** Scheduler for CPU bound work like parsing JSON or encoding HTML. */
+    public static Scheduler computation() {
+        return sComputationPool.mScheduler;
+    }
+
+    /** Scheduler for database and file access. */
+    public static Scheduler disk() {
+        return sDiskPool.mScheduler;
+    }
+
+    public static String getStatistics() {
+        return sNetworkPool.getStatistics() + "\n"
+                + sComputationPool.getStatistics() + "\n"
+                + sDiskPool.getStatistics();
+    }
+
+    public static void resetStatistics() {
+        sNetworkPool.resetStatistics();
+        sComputationPool.resetStatistics();
+        sDiskPool.resetStatistics();
+    }
+
+    private static class Pool extends ThreadPoolExecutor {
+        private static final int KEEP_ALIVE_SECONDS = 30;
+
+        private final String mName;
+        private final Scheduler mScheduler;
+        private final ThreadLocal<Long> mTaskStartTime = new ThreadLocal<>();
+        private long mTaskCount;
+        private long mTotalWaitMillis;
+        private long mMaxWaitMillis;
+        private long mTotalRunMillis;
+        private int mMaxQueueDepth;
+
+        Pool(final String name, int threadCount) {
+            super(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new ThreadFactory() {
+                        private final AtomicInteger mCount = new AtomicInteger(1);
+                        @Override
+                        public Thread newThread(@NonNull Runnable r) {
+                            return new Thread(r, name + " #" + mCount.getAndIncrement());
+                        }
+                    });
+            allowCoreThreadTimeOut(true);
+            mName = name;
+            mScheduler = Schedulers.from(this);
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            super.execute(new TimedRunnable(command));
+            int queueDepth = getQueue().size();
+            synchronized (this) {
+                mMaxQueueDepth = Math.max(mMaxQueueDepth, queueDepth);
+            }
+        }
+
+        @Override
+        protected void beforeExecute(Thread t, Runnable r) {
+            super.beforeExecute(t, r);
+            long now = System.currentTimeMillis();
+            mTaskStartTime.set(now);
+            if (r instanceof TimedRunnable) {
+                long waitMillis = now - ((TimedRunnable) r).mEnqueueTime;
+                synchronized (this) {
+                    mTotalWaitMillis += waitMillis;
+                    mMaxWaitMillis = Math.max(mMaxWaitMillis, waitMillis);
+                }
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            Long startTime = mTaskStartTime.get();
+            if (startTime != null) {
+                long runMillis = System.currentTimeMillis() - startTime;
+                synchronized (this) {
+                    mTaskCount++;
+                    mTotalRunMillis += runMillis;
+                }
+            }
+        }
+
+        synchronized String getStatistics() {
+            return String.format(Locale.US,
+                    "%s: %d tasks, %d active, %d queued (max %d), "
+                            + "avg wait %d ms (max %d ms), avg run %d ms",
+                    mName, mTaskCount, getActiveCount(), getQueue().size(), mMaxQueueDepth,
+                    mTaskCount > 0 ? mTotalWaitMillis / mTaskCount : 0, mMaxWaitMillis,
+                    mTaskCount > 0 ? mTotalRunMillis / mTaskCount : 0);
+        }
+
+        synchronized void resetStatistics() {
+            mTaskCount = 0;
+            mTotalWaitMillis = 0;
+            mMaxWaitMillis = 0;
+            mTotalRunMillis = 0;
+            mMaxQueueDepth = 0;
+        }
+    }
+
+    private static class TimedRunnable implements Runnable {
+        private final Runnable mRunnable;
+        private final long mEnqueueTime = System.currentTimeMillis();
+
+        TimedRunnable(Runnable runnable) {
+            mRunnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.gh4a.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk store for already scaled avatar bitmaps, evicting the least recently used entries
+ * once the configured size is exceeded. Entries are keyed by the avatar URL in addition
+ * to the user ID, and expire a day after they were written, so that changed avatars are
+ * picked up eventually even if their URL stays the same. The write time is part of the
+ * file name, as the modification time is updated on every access. All methods may block
+ * on disk I/O and thus must not be called from the UI thread.
+ */
+class AvatarDiskCache {
+    private static final String TAG = "AvatarDiskCache";
+    private static final String SUFFIX = ".png";
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    // maps the entry keys to their current files, filled from the directory on first use
+    private final HashMap<String, File> mFiles = new HashMap<>();
+    private long mSize = -1;
+
+    AvatarDiskCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    Bitmap get(long userId, int sizePx, String url) {
+        File file;
+        synchronized (this) {
+            ensureInitialized();
+            file = mFiles.get(keyFor(userId, sizePx, url));
+        }
+        if (file == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - getWriteTime(file) > MAX_AGE_MILLIS) {
+            synchronized (this) {
+                remove(file);
+            }
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getAbsolutePath());
+        if (bitmap == null) {
+            // corrupt or concurrently removed entry
+            synchronized (this) {
+                remove(file);
+            }
+        } else {
+            // the modification time is the time of the last access, see trimToSize()
+            file.setLastModified(now);
+        }
+        return bitmap;
+    }
+
+    // the bitmap is encoded into a temporary file without holding the lock, only
+    // replacing the entry by it needs to be atomic
+    void put(long userId, int sizePx, String url, Bitmap bitmap) {
+        synchronized (this) {
+            ensureInitialized();
+        }
+
+        String key = keyFor(userId, sizePx, url);
+        File file = new File(mDirectory, String.format(Locale.US, "%s-%d%s",
+                key, System.currentTimeMillis(), SUFFIX));
+        File tempFile;
+        OutputStream os = null;
+        boolean success = false;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", mDirectory);
+        } catch (IOException e) {
+            Log.d(TAG, "Could not write avatar " + file, e);
+            return;
+        }
+        try {
+            os = new FileOutputStream(tempFile);
+            success = bitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
+        } catch (IOException e) {
+            Log.d(TAG, "Could not write avatar " + file, e);
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    success = false;
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (success) {
+                File oldFile = mFiles.get(key);
+                if (oldFile != null) {
+                    remove(oldFile);
+                }
+                success = tempFile.renameTo(file);
+            }
+            if (success) {
+                mFiles.put(key, file);
+                mSize += file.length();
+                trimToSize();
+            } else {
+                tempFile.delete();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mFiles.clear();
+        mSize = 0;
+    }
+
+    private void ensureInitialized() {
+        if (mSize >= 0) {
+            return;
+        }
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.d(TAG, "Could not create cache directory " + mDirectory);
+        }
+        mSize = 0;
+        File[] files = mDirectory.listFiles();
+        long now = System.currentTimeMillis();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().endsWith(SUFFIX)
+                        || now - getWriteTime(file) > MAX_AGE_MILLIS) {
+                    // left over from an interrupted write, expired or of an older format
+                    file.delete();
+                    continue;
+                }
+                String key = getKey(file);
+                File otherFile = mFiles.get(key);
+                if (otherFile != null && getWriteTime(otherFile) > getWriteTime(file)) {
+                    file.delete();
+                    continue;
+                }
+                if (otherFile != null) {
+                    remove(otherFile);
+                }
+                mFiles.put(key, file);
+                mSize += file.length();
+            }
+        }
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        if (mSize <= mMaxSize) {
+            return;
+        }
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (lhs, rhs) -> {
+            long lhsModified = lhs.lastModified(), rhsModified = rhs.lastModified();
+            return lhsModified < rhsModified ? -1 : lhsModified > rhsModified ? 1 : 0;
+        });
+        for (File file : files) {
+            if (mSize <= mMaxSize * 3 / 4) {
+                break;
+            }
+            if (!file.getName().endsWith(SUFFIX)) {
+                // being written
+                continue;
+            }
+            remove(file);
+        }
+    }
+
+    private void remove(File file) {
+        long length = file.length();
+        if (file.delete() && mSize >= 0) {
+            mSize -= length;
+        }
+        String key = getKey(file);
+        if (file.equals(mFiles.get(key))) {
+            mFiles.remove(key);
+        }
+    }
+
+    private static String keyFor(long userId, int sizePx, String url) {
+        return String.format(Locale.US, "%d-%d-%08x", userId, sizePx, url.hashCode());
+    }
+
+    // file names are made up of the key and the write time
+    private static String getKey(File file) {
+        String name = file.getName();
+        int pos = name.lastIndexOf('-');
+        return pos > 0 ? name.substring(0, pos) : name;
+    }
+
+    // returns 0 for names not containing a write time, making them count as expired
+    private static long getWriteTime(File file) {
+        String name = file.getName();
+        int pos = name.lastIndexOf('-');
+        if (pos < 0 || !name.endsWith(SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(pos + 1, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
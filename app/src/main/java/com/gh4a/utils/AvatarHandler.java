@@ -1,7 +1,14 @@
 package com.gh4a.utils;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.content.Context;
 import android.content.res.Resources;
@@ -17,9 +24,9 @@ import android.graphics.drawable.TransitionDrawable;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.os.Process;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -41,24 +48,43 @@ public class AvatarHandler {
     private static final String TAG = "GravatarHandler";
 
     private static final int MAX_CACHED_IMAGE_SIZE = 60; /* dp - maximum gravatar view size used */
+    private static final long MAX_DISK_CACHE_SIZE = 5 * 1024 * 1024;
 
     private static LruCache<Long, Bitmap> sCache;
+    private static AvatarDiskCache sDiskCache;
+    private static final CacheStatistics sStatistics = new CacheStatistics();
     private static int sNextRequestId = 1;
 
     private static class Request {
         long id;
         String url;
         ArrayList<ViewDelegate> views;
+        LoadTask task;
     }
     private static final LongSparseArray<Request> sRequests = new LongSparseArray<>();
     private static int sMaxImageSizePx = -1;
 
-    private static final int MSG_LOAD = 1;
-    private static final int MSG_LOADED = 2;
-    private static final int MSG_DESTROY = 3;
-
-    private static HandlerThread sWorkerThread = null;
-    private static Handler sWorkerHandler = null;
+    private static final int MSG_LOADED = 1;
+
+    private static final int LOADER_THREAD_COUNT = 4;
+    private static final int LOADER_KEEP_ALIVE_SECONDS = 3;
+
+    // Requests are served newest first: when scrolling, the most recently bound
+    // views are the ones currently on screen
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            LOADER_THREAD_COUNT, LOADER_THREAD_COUNT,
+            LOADER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(),
+            new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger(1);
+                @Override
+                public Thread newThread(@NonNull Runnable r) {
+                    return new Thread(r, "GravatarLoader #" + mCount.getAndIncrement());
+                }
+            });
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
 
     private static final Handler sHandler = new Handler(Looper.getMainLooper()) {
         @Override
@@ -66,12 +92,6 @@ public class AvatarHandler {
             switch (msg.what) {
                 case MSG_LOADED:
                     processResult(msg.arg1, (Bitmap) msg.obj);
-                    if (sRequests.size() == 0) {
-                        sendEmptyMessageDelayed(MSG_DESTROY, 3000);
-                    }
-                    break;
-                case MSG_DESTROY:
-                    shutdownWorker();
                     break;
             }
         }
@@ -118,7 +138,7 @@ public class AvatarHandler {
             return cachedBitmap;
         }
         try {
-            Bitmap bitmap = fetchBitmap(makeUrl(user.avatarUrl(), user.id()));
+            Bitmap bitmap = loadBitmap(user.id(), makeUrl(user.avatarUrl(), user.id()));
             if (bitmap != null) {
                 synchronized (AvatarHandler.class) {
                     sCache.put(user.id(), bitmap);
@@ -135,10 +155,16 @@ public class AvatarHandler {
             if (sCache == null) {
                 initialize(context);
             }
-            return sCache.get(id);
+            Bitmap bitmap = sCache.get(id);
+            sStatistics.recordMemoryLookup(bitmap != null);
+            return bitmap;
         }
     }
 
+    public static CacheStatistics getStatistics() {
+        return sStatistics;
+    }
+
     private static void assignAvatarInternal(ViewDelegate view,
             String userName, long userId, String url) {
         removeOldRequest(view);
@@ -166,16 +192,10 @@ public class AvatarHandler {
         request.url = makeUrl(url, userId);
         request.views = new ArrayList<>();
         request.views.add(view);
+        request.task = new LoadTask(requestId, request.id, request.url);
         sRequests.put(requestId, request);
 
-        sHandler.removeMessages(MSG_DESTROY);
-        if (sWorkerThread == null) {
-            sWorkerThread = new HandlerThread("GravatarLoader");
-            sWorkerThread.start();
-            sWorkerHandler = new WorkerHandler(sWorkerThread.getLooper());
-        }
-        Message msg = sWorkerHandler.obtainMessage(MSG_LOAD, requestId, 0, request.url);
-        msg.sendToTarget();
+        sExecutor.execute(request.task);
     }
 
     private static void initialize(Context context) {
@@ -204,6 +224,9 @@ public class AvatarHandler {
 
         Resources res = context.getResources();
         sMaxImageSizePx = Math.round(res.getDisplayMetrics().density * MAX_CACHED_IMAGE_SIZE);
+
+        File diskCacheDir = new File(context.getApplicationContext().getCacheDir(), "avatars");
+        sDiskCache = new AvatarDiskCache(diskCacheDir, MAX_DISK_CACHE_SIZE);
     }
 
     private static String makeUrl(String url, long userId) {
@@ -249,9 +272,9 @@ public class AvatarHandler {
             Request request = sRequests.valueAt(i);
             if (request.views.remove(view)) {
                 if (request.views.isEmpty()) {
-                    if (sWorkerHandler != null) {
-                        sWorkerHandler.removeMessages(MSG_LOAD, request.url);
-                    }
+                    // drops the task if it didn't start yet, a running load
+                    // still completes to populate the disk cache
+                    sExecutor.remove(request.task);
                     sRequests.delete(sRequests.keyAt(i));
                 }
                 return;
@@ -259,6 +282,22 @@ public class AvatarHandler {
         }
     }
 
+    private static Bitmap loadBitmap(long userId, String url) throws IOException {
+        long startTime = System.nanoTime();
+        Bitmap bitmap = sDiskCache.get(userId, sMaxImageSizePx, url);
+        if (bitmap != null) {
+            sStatistics.recordDiskLookup(true, System.nanoTime() - startTime);
+            return bitmap;
+        }
+        sStatistics.recordDiskLookup(false, 0);
+
+        bitmap = fetchBitmap(url);
+        if (bitmap != null) {
+            sDiskCache.put(userId, sMaxImageSizePx, url, bitmap);
+        }
+        return bitmap;
+    }
+
     private static Bitmap fetchBitmap(String url) throws IOException {
         OkHttpClient client = ServiceFactory.getImageHttpClient();
         okhttp3.Request request = new okhttp3.Request.Builder()
@@ -274,6 +313,7 @@ public class AvatarHandler {
             data = response.body().bytes();
         }
 
+        long startTime = System.nanoTime();
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
 
@@ -287,6 +327,7 @@ public class AvatarHandler {
 
         Bitmap unscaled = BitmapFactory.decodeByteArray(data, 0, data.length, options);
         if (unscaled == null) {
+            sStatistics.recordNetworkDecode(System.nanoTime() - startTime);
             return null;
         }
 
@@ -303,37 +344,108 @@ public class AvatarHandler {
         if (scaled != unscaled) {
             unscaled.recycle();
         }
+        sStatistics.recordNetworkDecode(System.nanoTime() - startTime);
         return scaled;
     }
 
-    private static void shutdownWorker() {
-        if (sWorkerThread != null) {
-            sWorkerThread.getLooper().quit();
-            sWorkerHandler = null;
-            sWorkerThread = null;
+    private static class LoadTask implements Runnable, Comparable<LoadTask> {
+        private final int mRequestId;
+        private final long mUserId;
+        private final String mUrl;
+
+        public LoadTask(int requestId, long userId, String url) {
+            mRequestId = requestId;
+            mUserId = userId;
+            mUrl = url;
         }
-    }
 
-    private static class WorkerHandler extends Handler {
-        public WorkerHandler(Looper looper) {
-            super(looper);
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Bitmap bitmap = null;
+            try {
+                bitmap = loadBitmap(mUserId, mUrl);
+            } catch (IOException e) {
+                Log.e(TAG, "Couldn't fetch gravatar from URL " + mUrl, e);
+            }
+            sHandler.obtainMessage(MSG_LOADED, mRequestId, 0, bitmap).sendToTarget();
         }
 
         @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what) {
-                case MSG_LOAD:
-                    String url = (String) msg.obj;
-                    Bitmap bitmap = null;
-                    try {
-                        bitmap = fetchBitmap(url);
-                    } catch (IOException e) {
-                        Log.e(TAG, "Couldn't fetch gravatar from URL " + url, e);
-                    }
-                    sHandler.obtainMessage(MSG_LOADED, msg.arg1, 0, bitmap).sendToTarget();
-                    break;
+        public int compareTo(@NonNull LoadTask other) {
+            // request IDs are increasing, so higher IDs are newer
+            return other.mRequestId - mRequestId;
+        }
+    }
+
+    public static class CacheStatistics {
+        private long mMemoryHits;
+        private long mMemoryMisses;
+        private long mDiskHits;
+        private long mDiskMisses;
+        private long mDiskDecodeTimeNanos;
+        private long mNetworkDecodes;
+        private long mNetworkDecodeTimeNanos;
+
+        private CacheStatistics() {
+        }
+
+        synchronized void recordMemoryLookup(boolean hit) {
+            if (hit) {
+                mMemoryHits++;
+            } else {
+                mMemoryMisses++;
             }
         }
+
+        synchronized void recordDiskLookup(boolean hit, long decodeTimeNanos) {
+            if (hit) {
+                mDiskHits++;
+                mDiskDecodeTimeNanos += decodeTimeNanos;
+            } else {
+                mDiskMisses++;
+            }
+        }
+
+        synchronized void recordNetworkDecode(long decodeTimeNanos) {
+            mNetworkDecodes++;
+            mNetworkDecodeTimeNanos += decodeTimeNanos;
+        }
+
+        public synchronized float getMemoryHitRate() {
+            return rate(mMemoryHits, mMemoryMisses);
+        }
+
+        public synchronized float getDiskHitRate() {
+            return rate(mDiskHits, mDiskMisses);
+        }
+
+        public synchronized float getAverageDiskDecodeTimeMs() {
+            return averageMs(mDiskDecodeTimeNanos, mDiskHits);
+        }
+
+        public synchronized float getAverageNetworkDecodeTimeMs() {
+            return averageMs(mNetworkDecodeTimeNanos, mNetworkDecodes);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US, "memory: %d hits, %d misses; "
+                    + "disk: %d hits, %d misses, %.2f ms avg decode; "
+                    + "network: %d decodes, %.2f ms avg decode",
+                    mMemoryHits, mMemoryMisses, mDiskHits, mDiskMisses,
+                    getAverageDiskDecodeTimeMs(), mNetworkDecodes,
+                    getAverageNetworkDecodeTimeMs());
+        }
+
+        private static float rate(long hits, long misses) {
+            long total = hits + misses;
+            return total > 0 ? (float) hits / total : 0;
+        }
+
+        private static float averageMs(long totalNanos, long count) {
+            return count > 0 ? (float) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+        }
     }
 
     public static class DefaultAvatarDrawable extends Drawable {
@@ -0,0 +1,194 @@
+package com.gh4a.utils;
+
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.gh4a.Gh4Application;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import io.reactivex.Single;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Holds data which is too large to be passed in intent extras, so that only a key needs
+ * to be passed instead. Strings evicted from memory are written to disk; other data and
+ * anything not found after the process was killed is expected to be loaded again by
+ * the receiver.
+ */
+public class BlobStore {
+    private static final String DIRECTORY_NAME = "blobs";
+    private static final int MAX_MEMORY_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_PERSISTED_BLOBS = 20;
+    // rough size assumed per element of collections, as their real size is unknown
+    private static final int ESTIMATED_ELEMENT_SIZE = 2048;
+
+    private static final LruCache<String, Object> sMemoryCache =
+            new LruCache<String, Object>(MAX_MEMORY_SIZE) {
+        @Override
+        protected int sizeOf(String key, Object value) {
+            if (value instanceof String) {
+                return 2 * ((String) value).length();
+            }
+            if (value instanceof Collection) {
+                return ESTIMATED_ELEMENT_SIZE * Math.max(1, ((Collection) value).size());
+            }
+            return ESTIMATED_ELEMENT_SIZE;
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, String key, Object oldValue,
+                Object newValue) {
+            if (evicted && oldValue instanceof String) {
+                synchronized (sPendingWrites) {
+                    sPendingWrites.put(key, (String) oldValue);
+                }
+                AppSchedulers.disk().scheduleDirect(() -> writeToDisk(key));
+            }
+        }
+    };
+    // strings evicted from memory which are not yet written to disk, guarded by itself
+    private static final Map<String, String> sPendingWrites = new HashMap<>();
+
+    private BlobStore() {
+    }
+
+    /**
+     * @return Key to retrieve the data with, or null if data is null
+     */
+    public static String put(Object data) {
+        if (data == null) {
+            return null;
+        }
+        String key = UUID.randomUUID().toString();
+        sMemoryCache.put(key, data);
+        return key;
+    }
+
+    /**
+     * Returns the data stored in memory with the given key. Strings spilled to disk are
+     * not returned, use {@link #loadString(String)} for those.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String key) {
+        if (key == null) {
+            return null;
+        }
+        Object data = sMemoryCache.get(key);
+        if (data == null) {
+            synchronized (sPendingWrites) {
+                data = sPendingWrites.get(key);
+            }
+        }
+        return (T) data;
+    }
+
+    /**
+     * Loads the string stored with the given key from memory or disk. The returned single
+     * emits an absent value if the string is gone, e.g. because the process was killed
+     * before it was spilled to disk.
+     */
+    public static Single<Optional<String>> loadString(String key) {
+        if (key == null) {
+            return Single.just(Optional.absent());
+        }
+        Object data = get(key);
+        if (data instanceof String) {
+            return Single.just(Optional.of((String) data));
+        }
+        return Single.fromCallable(() -> Optional.ofWithNull(readFromDisk(key)))
+                .subscribeOn(AppSchedulers.disk());
+    }
+
+    /**
+     * Drops the data stored with the given key once it's no longer needed.
+     */
+    public static void remove(String key) {
+        if (key == null) {
+            return;
+        }
+        sMemoryCache.remove(key);
+        synchronized (sPendingWrites) {
+            // makes a write that didn't start yet skip the key, and one that's running
+            // is finished before the deletion as both hold the class lock
+            sPendingWrites.remove(key);
+        }
+        AppSchedulers.disk().scheduleDirect(() -> deleteFromDisk(key));
+    }
+
+    private static synchronized void writeToDisk(String key) {
+        String data;
+        synchronized (sPendingWrites) {
+            data = sPendingWrites.get(key);
+        }
+        if (data == null) {
+            // removed meanwhile
+            return;
+        }
+
+        File dir = getDirectory();
+        if (dir.exists() || dir.mkdirs()) {
+            File file = new File(dir, key);
+            try (BufferedSink sink = Okio.buffer(Okio.sink(new FileOutputStream(file)))) {
+                sink.writeUtf8(data);
+            } catch (IOException e) {
+                Log.d(Gh4Application.LOG_TAG, "Could not write blob " + key, e);
+                file.delete();
+            }
+            trimDirectory(dir);
+        }
+
+        // only now readers need to go to the disk
+        synchronized (sPendingWrites) {
+            sPendingWrites.remove(key);
+        }
+    }
+
+    private static synchronized String readFromDisk(String key) {
+        File file = new File(getDirectory(), key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (BufferedSource source = Okio.buffer(Okio.source(new FileInputStream(file)))) {
+            // used for LRU ordering
+            file.setLastModified(System.currentTimeMillis());
+            return source.readUtf8();
+        } catch (IOException e) {
+            Log.d(Gh4Application.LOG_TAG, "Could not read blob " + key, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    private static synchronized void deleteFromDisk(String key) {
+        new File(getDirectory(), key).delete();
+    }
+
+    private static void trimDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_PERSISTED_BLOBS) {
+            return;
+        }
+        Arrays.sort(files, (lhs, rhs) -> {
+            long lhsModified = lhs.lastModified(), rhsModified = rhs.lastModified();
+            return lhsModified < rhsModified ? -1 : lhsModified > rhsModified ? 1 : 0;
+        });
+        for (int i = 0; i < files.length - MAX_PERSISTED_BLOBS; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static File getDirectory() {
+        return new File(Gh4Application.get().getCacheDir(), DIRECTORY_NAME);
+    }
+}
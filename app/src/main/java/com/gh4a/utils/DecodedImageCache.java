@@ -0,0 +1,91 @@
+package com.gh4a.utils;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+
+import java.util.Locale;
+
+/**
+ * Process wide memory cache for images loaded by {@link HttpImageGetter}, keyed by URL
+ * and the size the image was decoded for. Holds decoded bitmaps and, as GIFs are decoded
+ * frame by frame while playing, the raw GIF data.
+ *
+ * Cached bitmaps may be displayed by multiple views at once, so they must not be recycled.
+ */
+public class DecodedImageCache {
+    private static final LruCache<String, Object> sCache = new LruCache<String, Object>(
+            // Use 1/8 of the available memory, in KB
+            (int) (Runtime.getRuntime().maxMemory() / 1024 / 8)) {
+        @Override
+        protected int sizeOf(String key, Object value) {
+            final long sizeInBytes;
+            if (value instanceof byte[]) {
+                sizeInBytes = ((byte[]) value).length;
+            } else {
+                Bitmap bitmap = (Bitmap) value;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    sizeInBytes = bitmap.getAllocationByteCount();
+                } else {
+                    sizeInBytes = bitmap.getRowBytes() * bitmap.getHeight();
+                }
+            }
+            return (int) Math.max(1, sizeInBytes / 1024);
+        }
+    };
+
+    private static long sHits;
+    private static long sMisses;
+
+    private DecodedImageCache() {
+    }
+
+    /**
+     * @return Either the cached {@link Bitmap}, the cached GIF data as byte array,
+     *         or null if the image isn't cached
+     */
+    public static Object get(String url, int width, int height) {
+        Object value = sCache.get(makeKey(url, width, height));
+        synchronized (DecodedImageCache.class) {
+            if (value != null) {
+                sHits++;
+            } else {
+                sMisses++;
+            }
+        }
+        return value;
+    }
+
+    public static void putBitmap(String url, int width, int height, Bitmap bitmap) {
+        sCache.put(makeKey(url, width, height), bitmap);
+    }
+
+    public static void putGifData(String url, int width, int height, byte[] data) {
+        sCache.put(makeKey(url, width, height), data);
+    }
+
+    public static void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            sCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            sCache.trimToSize(sCache.size() / 2);
+        }
+    }
+
+    public static synchronized float getHitRate() {
+        long total = sHits + sMisses;
+        return total > 0 ? (float) sHits / total : 0;
+    }
+
+    public static synchronized String getStatistics() {
+        return String.format(Locale.US, "%d hits, %d misses, %d of %d KB used, %d evictions",
+                sHits, sMisses, sCache.size(), sCache.maxSize(), sCache.evictionCount());
+    }
+
+    private static String makeKey(String url, int width, int height) {
+        return width + "x" + height + ":" + url;
+    }
+}
@@ -0,0 +1,169 @@
+package com.gh4a.utils;
+
+import java.util.Arrays;
+
+/**
+ * Line based view of a unified diff which doesn't split it into separate strings upfront.
+ * Only the line offsets are determined when creating the index; the line numbers a diff
+ * line refers to are determined per hunk when first asked for.
+ */
+public class DiffLineIndex {
+    public static final int TYPE_CONTEXT = 0;
+    public static final int TYPE_HUNK_HEADER = 1;
+    public static final int TYPE_ADD = 2;
+    public static final int TYPE_REMOVE = 3;
+
+    private final String mDiff;
+    // start offset of each line in mDiff, followed by the end offset of the last line
+    private final int[] mLineOffsets;
+    // index of the first line of each hunk; the first entry is always 0
+    private final int[] mHunkStarts;
+    // line numbers of each line, filled for a hunk once it's parsed
+    private final int[] mLeftLines;
+    private final int[] mRightLines;
+    private final boolean[] mHunkParsed;
+
+    public DiffLineIndex(String diff) {
+        mDiff = diff != null ? diff : "";
+
+        int length = mDiff.length();
+        // like String.split(), an empty diff has a single empty line
+        int lineCount = diff != null ? 1 : 0;
+        for (int i = 0; i < length; i++) {
+            if (mDiff.charAt(i) == '\n') {
+                lineCount++;
+            }
+        }
+
+        int[] offsets = new int[lineCount + 1];
+        int[] hunkStarts = new int[lineCount + 1];
+        int hunkCount = 1;
+        int line = 0;
+        for (int i = 0; i < length; i++) {
+            if (mDiff.charAt(i) == '\n') {
+                offsets[++line] = i + 1;
+                if (mDiff.startsWith("@@", i + 1)) {
+                    hunkStarts[hunkCount++] = line;
+                }
+            }
+        }
+        if (lineCount > 0) {
+            offsets[lineCount] = length + 1;
+        }
+
+        // like String.split(), ignore trailing empty lines (hunks never start with one),
+        // unless the diff is empty altogether
+        int minLineCount = length > 0 ? 0 : lineCount;
+        while (lineCount > minLineCount && offsets[lineCount] - offsets[lineCount - 1] <= 1) {
+            lineCount--;
+        }
+
+        mLineOffsets = Arrays.copyOf(offsets, lineCount + 1);
+        mHunkStarts = Arrays.copyOf(hunkStarts, hunkCount);
+        mLeftLines = new int[lineCount];
+        mRightLines = new int[lineCount];
+        mHunkParsed = new boolean[hunkCount];
+    }
+
+    public int getLineCount() {
+        return mLeftLines.length;
+    }
+
+    public String getLine(int line) {
+        return mDiff.substring(mLineOffsets[line], mLineOffsets[line + 1] - 1);
+    }
+
+    public int getLineType(int line) {
+        int offset = mLineOffsets[line];
+        if (offset >= mDiff.length()) {
+            return TYPE_CONTEXT;
+        }
+        switch (mDiff.charAt(offset)) {
+            case '@': return mDiff.startsWith("@@", offset) ? TYPE_HUNK_HEADER : TYPE_CONTEXT;
+            case '+': return TYPE_ADD;
+            case '-': return TYPE_REMOVE;
+            default: return TYPE_CONTEXT;
+        }
+    }
+
+    /**
+     * @return Line number in the old file, counted the same way as for the
+     *         comment positions, i.e. -1 before the first hunk header
+     */
+    public int getLeftLine(int line) {
+        ensureHunkParsed(findHunk(line));
+        return mLeftLines[line];
+    }
+
+    /**
+     * @return Line number in the new file, see {@link #getLeftLine(int)}
+     */
+    public int getRightLine(int line) {
+        ensureHunkParsed(findHunk(line));
+        return mRightLines[line];
+    }
+
+    /**
+     * @return Index of the line referring to the given line number of the old or new
+     *         file, or -1 if the diff doesn't cover that line
+     */
+    public int findLine(int lineNumber, boolean isRight) {
+        for (int hunk = 0; hunk < mHunkStarts.length; hunk++) {
+            ensureHunkParsed(hunk);
+            int end = hunk + 1 < mHunkStarts.length ? mHunkStarts[hunk + 1] : getLineCount();
+            int[] lineNumbers = isRight ? mRightLines : mLeftLines;
+            for (int line = mHunkStarts[hunk]; line < end; line++) {
+                if (lineNumbers[line] == lineNumber) {
+                    return line;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int findHunk(int line) {
+        int index = Arrays.binarySearch(mHunkStarts, line);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void ensureHunkParsed(int hunk) {
+        if (mHunkParsed[hunk]) {
+            return;
+        }
+
+        int start = mHunkStarts[hunk];
+        int end = hunk + 1 < mHunkStarts.length ? mHunkStarts[hunk + 1] : getLineCount();
+        int leftLine = -1, rightLine = -1;
+        int[] lineNumbers = getLineType(start) == TYPE_HUNK_HEADER
+                ? StringUtils.extractDiffHunkLineNumbers(getLine(start)) : null;
+        if (lineNumbers != null) {
+            leftLine = lineNumbers[0];
+            rightLine = lineNumbers[1];
+        } else if (hunk > 0) {
+            // unparseable header, continue counting from the previous hunk
+            ensureHunkParsed(hunk - 1);
+            leftLine = mLeftLines[start - 1];
+            rightLine = mRightLines[start - 1];
+        }
+
+        for (int line = start; line < end; line++) {
+            switch (getLineType(line)) {
+                case TYPE_HUNK_HEADER:
+                    break;
+                case TYPE_ADD:
+                    ++rightLine;
+                    break;
+                case TYPE_REMOVE:
+                    ++leftLine;
+                    break;
+                default:
+                    ++leftLine;
+                    ++rightLine;
+                    break;
+            }
+            mLeftLines[line] = leftLine;
+            mRightLines[line] = rightLine;
+        }
+        mHunkParsed[hunk] = true;
+    }
+}
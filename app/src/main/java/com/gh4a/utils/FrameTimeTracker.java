@@ -0,0 +1,71 @@
+package com.gh4a.utils;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.gh4a.BuildConfig;
+import com.gh4a.Gh4Application;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts rendered and dropped frames while started, and logs a summary when stopped.
+ * Only active in debug builds.
+ */
+public class FrameTimeTracker implements Choreographer.FrameCallback {
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private final String mName;
+    private boolean mRunning;
+    private long mLastFrameTimeNanos;
+    private long mFrameCount;
+    private long mDroppedFrameCount;
+    private long mMaxFrameTimeNanos;
+
+    public FrameTimeTracker(String name) {
+        mName = name;
+    }
+
+    public void start() {
+        if (!BuildConfig.DEBUG || mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameTimeNanos = 0;
+        mFrameCount = 0;
+        mDroppedFrameCount = 0;
+        mMaxFrameTimeNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+        Log.d(Gh4Application.LOG_TAG, String.format(Locale.US,
+                "Frame stats for %s: %d frames, %d dropped, longest frame %d ms",
+                mName, mFrameCount, mDroppedFrameCount,
+                TimeUnit.NANOSECONDS.toMillis(mMaxFrameTimeNanos)));
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameTimeNanos != 0) {
+            long frameTime = frameTimeNanos - mLastFrameTimeNanos;
+            // ignore gaps caused by the process being stalled, e.g. by the debugger
+            if (frameTime < TimeUnit.SECONDS.toNanos(1)) {
+                mFrameCount++;
+                mDroppedFrameCount += Math.max(0, frameTime / FRAME_INTERVAL_NANOS - 1);
+                mMaxFrameTimeNanos = Math.max(mMaxFrameTimeNanos, frameTime);
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -24,7 +24,6 @@ import android.graphics.Canvas;
 import android.graphics.Point;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.v4.content.ContextCompat;
@@ -55,7 +54,15 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -117,13 +124,6 @@ public class HttpImageGetter {
         }
     }
 
-    // interface just used for tracking purposes
-    private static class LoadedBitmapDrawable extends BitmapDrawable {
-        public LoadedBitmapDrawable(Resources res, Bitmap bitmap) {
-            super(res, bitmap);
-        }
-    }
-
     private static class PlaceholderDrawable extends DrawableWrapper implements Runnable {
         private final String mUrl;
         private final ObjectInfo mInfo;
@@ -151,6 +151,7 @@ public class HttpImageGetter {
         public void run() {
             setWrappedDrawable(mLoadedImage);
             setBounds(0, 0, mLoadedImage.getIntrinsicWidth(), mLoadedImage.getIntrinsicHeight());
+            mInfo.onImageLoaded(mLoadedImage);
             mInfo.invalidateViewsForNewDrawable();
         }
     }
@@ -158,35 +159,44 @@ public class HttpImageGetter {
     private class ObjectInfo implements ImageGetter {
         private final ArrayList<WeakReference<TextView>> mViewRefs = new ArrayList<>();
         private final List<GifInfo> mGifs = new ArrayList<>();
-        private final List<WeakReference<Bitmap>> mBitmaps = new ArrayList<>();
 
         private CharSequence mHtml;
-        private ImageGetterAsyncTask mTask;
+        // the HTML mHtml is (being) encoded from
+        private String mSourceHtml;
+        private Disposable mEncodeDisposable;
+        private final List<PlaceholderDrawable> mPendingImages = new ArrayList<>();
         private boolean mHasStartedImageLoad;
         private boolean mResumed = true;
 
         void bind(TextView view, String html) {
             addView(view);
+            clearHtmlCacheIfChanged(html);
 
-            if (mHtml == null) {
+            if (mHtml == null && mEncodeDisposable == null) {
                 encode(view.getContext(), html);
             }
 
-            apply(mHtml);
+            if (mHtml != null) {
+                apply(mHtml);
+                startImageLoadIfNeeded();
+            } else {
+                // background encoding is still running, it'll apply the text once done
+                view.setText(R.string.loading_msg);
+                view.setVisibility(View.VISIBLE);
+            }
+        }
 
+        private void startImageLoadIfNeeded() {
             if (!mHasStartedImageLoad) {
-                ImageSpan[] spans = getImageSpans();
-                if (spans.length > 0) {
-                    ArrayList<PlaceholderDrawable> imagesToLoad = new ArrayList<>();
-                    for (ImageSpan span : spans) {
-                        Drawable d = span.getDrawable();
-                        if (d instanceof PlaceholderDrawable) {
-                            imagesToLoad.add((PlaceholderDrawable) d);
-                        }
+                // images of the previous content are no longer displayed at this point
+                discardLoadedImages();
+                for (ImageSpan span : getImageSpans()) {
+                    Drawable d = span.getDrawable();
+                    if (d instanceof PlaceholderDrawable) {
+                        PlaceholderDrawable placeholder = (PlaceholderDrawable) d;
+                        mPendingImages.add(placeholder);
+                        loadImage(placeholder);
                     }
-                    mTask = new ImageGetterAsyncTask(HttpImageGetter.this, this);
-                    mTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR,
-                            imagesToLoad.toArray(new PlaceholderDrawable[imagesToLoad.size()]));
                 }
                 mHasStartedImageLoad = true;
             }
@@ -196,31 +206,58 @@ public class HttpImageGetter {
         }
 
         void encode(Context context, String html) {
+            mSourceHtml = html;
             CharSequence encoded = HtmlUtils.encode(context, html, this);
             synchronized (this) {
                 mHtml = encoded;
             }
         }
 
-        void onImageLoadDone() {
-            discardLoadedImages();
+        void encodeInBackground(Context context, String html) {
+            clearHtmlCacheIfChanged(html);
+            if (mHtml != null || mEncodeDisposable != null) {
+                return;
+            }
+            mSourceHtml = html;
+            mEncodeDisposable = Single.fromCallable(() -> HtmlUtils.encode(context, html, this))
+                    .subscribeOn(AppSchedulers.computation())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(encoded -> {
+                        mEncodeDisposable = null;
+                        if (mDestroyed) {
+                            return;
+                        }
+                        synchronized (this) {
+                            mHtml = encoded;
+                        }
+                        if (!mViewRefs.isEmpty()) {
+                            apply(mHtml);
+                            startImageLoadIfNeeded();
+                        }
+                    }, error -> {
+                        mEncodeDisposable = null;
+                        if (!mViewRefs.isEmpty()) {
+                            encode(context, html);
+                            apply(mHtml);
+                            startImageLoadIfNeeded();
+                        }
+                    });
+        }
+
+        void cancelEncode() {
+            if (mEncodeDisposable != null) {
+                mEncodeDisposable.dispose();
+                mEncodeDisposable = null;
+            }
+        }
 
-            for (ImageSpan span : getImageSpans()) {
-                Drawable d = span.getDrawable();
-                if (d instanceof PlaceholderDrawable) {
-                    PlaceholderDrawable phd = (PlaceholderDrawable) d;
-                    d = phd.getWrappedDrawable();
-                }
-                if (d instanceof GifDrawable) {
-                    GifDrawable gd = (GifDrawable) d;
-                    if (mResumed) {
-                        gd.start();
-                    }
-                    mGifs.add(new GifInfo(gd, mViewRefs));
-                } else if (d instanceof LoadedBitmapDrawable) {
-                    BitmapDrawable bd = (BitmapDrawable) d;
-                    mBitmaps.add(new WeakReference<>(bd.getBitmap()));
+        void onImageLoaded(Drawable d) {
+            if (d instanceof GifDrawable) {
+                GifDrawable gd = (GifDrawable) d;
+                if (mResumed) {
+                    gd.start();
                 }
+                mGifs.add(new GifInfo(gd, mViewRefs));
             }
         }
 
@@ -258,13 +295,8 @@ public class HttpImageGetter {
         }
 
         private void discardLoadedImages() {
-            for (WeakReference<Bitmap> ref : mBitmaps) {
-                Bitmap bitmap = ref.get();
-                if (bitmap != null) {
-                    bitmap.recycle();
-                }
-            }
-            mBitmaps.clear();
+            cancelImageLoads();
+            // bitmaps are owned by DecodedImageCache, so only GIFs need to be released
             for (GifInfo info : mGifs) {
                 info.destroy();
             }
@@ -272,15 +304,28 @@ public class HttpImageGetter {
             mHasStartedImageLoad = false;
         }
 
-        void clearHtmlCache() {
-            if (mTask != null) {
-                mTask.cancel(true);
-                mTask = null;
+        private void cancelImageLoads() {
+            for (PlaceholderDrawable placeholder : mPendingImages) {
+                cancelImageLoad(placeholder);
             }
+            mPendingImages.clear();
+        }
+
+        void clearHtmlCache() {
+            cancelEncode();
+            cancelImageLoads();
             mHtml = null;
+            mSourceHtml = null;
             mHasStartedImageLoad = false;
         }
 
+        // e.g. when the comment the HTML belongs to was edited
+        private void clearHtmlCacheIfChanged(String html) {
+            if (mSourceHtml != null && !TextUtils.equals(mSourceHtml, html)) {
+                clearHtmlCache();
+            }
+        }
+
         private void apply(CharSequence text) {
             int visibility = TextUtils.isEmpty(text) ? View.GONE : View.VISIBLE;
             for (int i = 0; i < mViewRefs.size(); i++) {
@@ -322,8 +367,28 @@ public class HttpImageGetter {
         }
     }
 
+    private static final int LOADER_THREAD_COUNT = 4;
+    private static final int LOADER_KEEP_ALIVE_SECONDS = 3;
+    private static final long MAX_IN_MEMORY_DOWNLOAD_SIZE = 2 * 1024 * 1024;
+
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            LOADER_THREAD_COUNT, LOADER_THREAD_COUNT,
+            LOADER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger(1);
+                @Override
+                public Thread newThread(@NonNull Runnable r) {
+                    return new Thread(r, "ImageLoader #" + mCount.getAndIncrement());
+                }
+            });
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
     private final Handler mHandler = new Handler();
     private final Map<Object, ObjectInfo> mObjectInfos = new HashMap<>();
+    private final Map<String, ImageLoadTask> mRunningLoads = new HashMap<>();
     private final Drawable mLoadingDrawable;
     private final Drawable mErrorDrawable;
     private final OkHttpClient mClient;
@@ -380,16 +445,47 @@ public class HttpImageGetter {
 
     public void destroy() {
         for (ObjectInfo info : mObjectInfos.values()) {
+            info.cancelEncode();
             info.discardLoadedImages();
         }
         mObjectInfos.clear();
         mDestroyed = true;
     }
 
+    private void loadImage(PlaceholderDrawable placeholder) {
+        String url = placeholder.getUrl();
+        ImageLoadTask task = mRunningLoads.get(url);
+        if (task == null || !task.addPlaceholder(placeholder)) {
+            task = new ImageLoadTask(url);
+            task.addPlaceholder(placeholder);
+            mRunningLoads.put(url, task);
+            sExecutor.execute(task);
+        }
+    }
+
+    private void cancelImageLoad(PlaceholderDrawable placeholder) {
+        String url = placeholder.getUrl();
+        ImageLoadTask task = mRunningLoads.get(url);
+        if (task != null && task.removePlaceholder(placeholder)) {
+            sExecutor.remove(task);
+            mRunningLoads.remove(url);
+        }
+    }
+
     public void encode(final Context context, final Object id, final String html) {
         findOrCreateInfo(id).encode(context, html);
     }
 
+    /**
+     * Starts encoding the given HTML on a background thread, so that a later
+     * {@link #bind(TextView, String, Object)} call for the same id doesn't need to
+     * do that work on the UI thread. If the HTML cached for the id was encoded from
+     * different contents, it's dropped. Must be called from the UI thread.
+     */
+    public void encodeInBackground(final Context context, final Object id, final String html) {
+        findOrCreateInfo(id).encodeInBackground(context, html);
+    }
+
     public void bind(final TextView view, final String html, final Object id) {
         unbind(view);
         findOrCreateInfo(id).bind(view, html);
@@ -410,37 +506,106 @@ public class HttpImageGetter {
         return info;
     }
 
-    private static class ImageGetterAsyncTask extends AsyncTask<PlaceholderDrawable, Void, Void> {
-        private final HttpImageGetter mImageGetter;
-        private final ObjectInfo mInfo;
+    private class ImageLoadTask implements Runnable {
+        private final String mUrl;
+        private final List<PlaceholderDrawable> mPlaceholders = new ArrayList<>();
+        private boolean mDone;
 
-        public ImageGetterAsyncTask(HttpImageGetter getter, ObjectInfo info) {
-            mImageGetter = getter;
-            mInfo = info;
+        ImageLoadTask(String url) {
+            mUrl = url;
+        }
+
+        synchronized boolean addPlaceholder(PlaceholderDrawable placeholder) {
+            if (mDone) {
+                return false;
+            }
+            mPlaceholders.add(placeholder);
+            return true;
+        }
+
+        // returns true if the load isn't needed anymore
+        synchronized boolean removePlaceholder(PlaceholderDrawable placeholder) {
+            mPlaceholders.remove(placeholder);
+            return !mDone && mPlaceholders.isEmpty();
         }
 
         @Override
-        protected Void doInBackground(PlaceholderDrawable... params) {
-            for (PlaceholderDrawable placeholder : params) {
-                Drawable drawable = mImageGetter.loadImageForUrl(placeholder.getUrl());
+        public void run() {
+            synchronized (this) {
+                if (mPlaceholders.isEmpty()) {
+                    return;
+                }
+            }
+
+            LoadedImage image = loadImageForUrl(mUrl);
+
+            final List<PlaceholderDrawable> placeholders;
+            synchronized (this) {
+                mDone = true;
+                placeholders = new ArrayList<>(mPlaceholders);
+            }
+            mHandler.post(() -> {
+                if (mRunningLoads.get(mUrl) == this) {
+                    mRunningLoads.remove(mUrl);
+                }
+            });
+
+            for (PlaceholderDrawable placeholder : placeholders) {
+                Drawable drawable = image.createDrawable();
                 if (drawable != null) {
-                    placeholder.addLoadedImage(drawable, mImageGetter.mHandler);
+                    placeholder.addLoadedImage(drawable, mHandler);
                 }
             }
-            return null;
+            image.release();
         }
+    }
 
-        @Override
-        protected void onPostExecute(Void result) {
-            if (!isCancelled()) {
-                mInfo.onImageLoadDone();
+    private class LoadedImage {
+        private Bitmap mBitmap;
+        private byte[] mGifData;
+        private File mGifFile;
+
+        Drawable createDrawable() {
+            if (mGifData != null || mGifFile != null) {
+                try {
+                    GifDrawable d = mGifData != null
+                            ? new GifDrawable(mGifData) : new GifDrawable(mGifFile);
+                    d.setBounds(0, 0, d.getIntrinsicWidth(), d.getIntrinsicHeight());
+                    return d;
+                } catch (IOException e) {
+                    return mErrorDrawable;
+                }
+            }
+
+            if (mBitmap == null || mDestroyed) {
+                return mErrorDrawable;
+            }
+
+            BitmapDrawable drawable = new BitmapDrawable(mContext.getResources(), mBitmap);
+            drawable.setBounds(0, 0, mBitmap.getWidth(), mBitmap.getHeight());
+            return drawable;
+        }
+
+        void release() {
+            // GifDrawable keeps its own file descriptor open
+            if (mGifFile != null) {
+                mGifFile.delete();
             }
         }
     }
 
-    private Drawable loadImageForUrl(String source) {
+    private LoadedImage loadImageForUrl(String source) {
         HttpUrl url = HttpUrl.parse(source);
-        Bitmap bitmap = null;
+        LoadedImage image = new LoadedImage();
+
+        Object cached = DecodedImageCache.get(source, mWidth, mHeight);
+        if (cached instanceof Bitmap) {
+            image.mBitmap = (Bitmap) cached;
+            return image;
+        } else if (cached instanceof byte[]) {
+            image.mGifData = (byte[]) cached;
+            return image;
+        }
 
         if (!mDestroyed && url != null) {
             File output = null;
@@ -460,18 +625,28 @@ public class HttpImageGetter {
                         mime = URLConnection.guessContentTypeFromStream(is);
                     }
                     if (mime != null && mime.startsWith("image/svg")) {
-                        bitmap = renderSvgToBitmap(mContext.getResources(), is, mWidth, mHeight);
+                        image.mBitmap = renderSvgToBitmap(mContext.getResources(), is, mWidth, mHeight);
                     } else {
                         boolean isGif = mime != null && mime.startsWith("image/gif");
                         if (!isGif || canLoadGif()) {
-                            output = File.createTempFile("image", ".tmp", mCacheDir);
-                            if (FileUtils.save(output, is)) {
+                            long length = response.body().contentLength();
+                            if (length >= 0 && length <= MAX_IN_MEMORY_DOWNLOAD_SIZE) {
+                                // small enough to decode from memory without a temporary file
+                                byte[] data = response.body().bytes();
                                 if (isGif) {
-                                    GifDrawable d = new GifDrawable(output);
-                                    d.setBounds(0, 0, d.getIntrinsicWidth(), d.getIntrinsicHeight());
-                                    return d;
+                                    image.mGifData = data;
                                 } else {
-                                    bitmap = getBitmap(output, mWidth, mHeight);
+                                    image.mBitmap = getBitmap(data, mWidth, mHeight);
+                                }
+                            } else {
+                                output = File.createTempFile("image", ".tmp", mCacheDir);
+                                if (FileUtils.save(output, is)) {
+                                    if (isGif) {
+                                        image.mGifFile = output;
+                                        output = null;
+                                    } else {
+                                        image.mBitmap = getBitmap(output, mWidth, mHeight);
+                                    }
                                 }
                             }
                         }
@@ -493,20 +668,13 @@ public class HttpImageGetter {
             }
         }
 
-        synchronized (this) {
-            if (mDestroyed && bitmap != null) {
-                bitmap.recycle();
-                bitmap = null;
-            }
-        }
-
-        if (bitmap == null) {
-            return mErrorDrawable;
+        if (image.mBitmap != null) {
+            DecodedImageCache.putBitmap(source, mWidth, mHeight, image.mBitmap);
+        } else if (image.mGifData != null) {
+            DecodedImageCache.putGifData(source, mWidth, mHeight, image.mGifData);
         }
 
-        BitmapDrawable drawable = new LoadedBitmapDrawable(mContext.getResources(), bitmap);
-        drawable.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        return drawable;
+        return image;
     }
 
     private boolean canLoadGif() {
@@ -523,6 +691,28 @@ public class HttpImageGetter {
         }
     }
 
+    private static Bitmap getBitmap(final byte[] data, int width, int height) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+
+        options.inJustDecodeBounds = false;
+        options.inDither = false;
+        options.inSampleSize = calculateSampleSize(options, width, height);
+
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    private static int calculateSampleSize(BitmapFactory.Options options, int width, int height) {
+        int scale = 1;
+        while (options.outWidth >= width || options.outHeight >= height) {
+            options.outWidth /= 2;
+            options.outHeight /= 2;
+            scale *= 2;
+        }
+        return scale;
+    }
+
     private static Bitmap getBitmap(final File image, int width, int height) {
         final BitmapFactory.Options options = new BitmapFactory.Options();
         RandomAccessFile file = null;
@@ -534,16 +724,9 @@ public class HttpImageGetter {
             options.inJustDecodeBounds = true;
             BitmapFactory.decodeFileDescriptor(fd, null, options);
 
-            int scale = 1;
-            while (options.outWidth >= width || options.outHeight >= height) {
-                options.outWidth /= 2;
-                options.outHeight /= 2;
-                scale *= 2;
-            }
-
             options.inJustDecodeBounds = false;
             options.inDither = false;
-            options.inSampleSize = scale;
+            options.inSampleSize = calculateSampleSize(options, width, height);
 
             return BitmapFactory.decodeFileDescriptor(fd, null, options);
         } catch (IOException e) {
@@ -0,0 +1,180 @@
+package com.gh4a.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import com.gh4a.Gh4Application;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Image which may be too large to be decoded as a whole. It's written to a cache file
+ * while it's received, and only a downsampled preview is kept in memory; parts of the
+ * image are decoded from the file at the resolution they're needed at.
+ */
+public class LargeImageFile {
+    private static final String DIRECTORY_NAME = "large_images";
+    private static final int MAX_PERSISTED_FILES = 3;
+
+    private final File mFile;
+    private final BitmapRegionDecoder mDecoder;
+    private final Bitmap mPreview;
+    private final int mPreviewSampleSize;
+
+    private LargeImageFile(File file, BitmapRegionDecoder decoder, Bitmap preview,
+            int previewSampleSize) {
+        mFile = file;
+        mDecoder = decoder;
+        mPreview = preview;
+        mPreviewSampleSize = previewSampleSize;
+    }
+
+    /**
+     * Whether images of the given file name can be decoded in parts.
+     */
+    public static boolean isSupported(String fileName) {
+        String mime = FileUtils.getMimeTypeFor(fileName);
+        return "image/jpeg".equals(mime) || "image/png".equals(mime)
+                || "image/webp".equals(mime);
+    }
+
+    /**
+     * Reads the given source until it's exhausted, stores its contents and decodes the
+     * preview. Needs to be called on a background thread; the source is not closed.
+     *
+     * @param maxPreviewSize Maximum width and height of the preview
+     * @return The image, or null if the contents can't be decoded as image, e.g. because
+     *         they're a Git LFS pointer
+     */
+    public static LargeImageFile create(Source source, int maxPreviewSize) throws IOException {
+        File dir = getDirectory();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        trimDirectory(dir);
+
+        File file = File.createTempFile("image", null, dir);
+        boolean success = false;
+        try {
+            try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+                sink.writeAll(source);
+            }
+
+            BitmapRegionDecoder decoder = createDecoder(file);
+            if (decoder == null) {
+                return null;
+            }
+            int sampleSize = calculateSampleSize(decoder.getWidth(), decoder.getHeight(),
+                    maxPreviewSize);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            Bitmap preview = BitmapFactory.decodeFile(file.getPath(), options);
+            if (preview == null) {
+                decoder.recycle();
+                return null;
+            }
+
+            success = true;
+            return new LargeImageFile(file, decoder, preview, sampleSize);
+        } finally {
+            if (!success) {
+                file.delete();
+            }
+        }
+    }
+
+    private static BitmapRegionDecoder createDecoder(File file) {
+        try {
+            return BitmapRegionDecoder.newInstance(file.getPath(), false);
+        } catch (IOException e) {
+            // thrown for unsupported formats
+            return null;
+        }
+    }
+
+    public int getWidth() {
+        return mDecoder.getWidth();
+    }
+
+    public int getHeight() {
+        return mDecoder.getHeight();
+    }
+
+    public Bitmap getPreview() {
+        return mPreview;
+    }
+
+    /**
+     * @return Number of image pixels per preview pixel, a power of 2
+     */
+    public int getPreviewSampleSize() {
+        return mPreviewSampleSize;
+    }
+
+    /**
+     * Decodes the given part of the image. Needs to be called on a background thread.
+     *
+     * @param sampleSize Number of image pixels per decoded pixel, a power of 2
+     * @return The decoded bitmap, or null if the image was released or can't be decoded
+     */
+    public Bitmap decodeRegion(Rect rect, int sampleSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        // the decoder serializes decoding itself, but throws once it was recycled
+        synchronized (mDecoder) {
+            return mDecoder.isRecycled() ? null : mDecoder.decodeRegion(rect, options);
+        }
+    }
+
+    /**
+     * Decodes the whole image, downsampled to the given size. Needs to be called on
+     * a background thread.
+     */
+    public Bitmap decodeSampled(int maxSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateSampleSize(getWidth(), getHeight(), maxSize);
+        return BitmapFactory.decodeFile(mFile.getPath(), options);
+    }
+
+    public void release() {
+        synchronized (mDecoder) {
+            mDecoder.recycle();
+        }
+        mFile.delete();
+    }
+
+    private static int calculateSampleSize(int width, int height, int maxSize) {
+        int sampleSize = 1;
+        while (width / sampleSize > maxSize || height / sampleSize > maxSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static void trimDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length < MAX_PERSISTED_FILES) {
+            return;
+        }
+        Arrays.sort(files, (lhs, rhs) -> {
+            long lhsModified = lhs.lastModified(), rhsModified = rhs.lastModified();
+            return lhsModified < rhsModified ? -1 : lhsModified > rhsModified ? 1 : 0;
+        });
+        // leave space for the file about to be created
+        for (int i = 0; i <= files.length - MAX_PERSISTED_FILES; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static File getDirectory() {
+        return new File(Gh4Application.get().getCacheDir(), DIRECTORY_NAME);
+    }
+}
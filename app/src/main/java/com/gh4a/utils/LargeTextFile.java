@@ -0,0 +1,281 @@
+package com.gh4a.utils;
+
+import android.support.annotation.VisibleForTesting;
+
+import com.gh4a.Gh4Application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Text file which is too large to be kept in memory or rendered as a whole. Its contents
+ * are written to a cache file while they are received, and only the line offsets are
+ * kept in memory, so that ranges of lines can be read once they're needed.
+ *
+ * For rendering, the file is split into chunks which are limited both in lines and in
+ * bytes. Lines which are too long for a single chunk, e.g. in minified files, are split
+ * across multiple chunks.
+ */
+public class LargeTextFile {
+    private static final String DIRECTORY_NAME = "large_files";
+    private static final int MAX_PERSISTED_FILES = 5;
+    private static final long READ_SIZE = 64 * 1024;
+    private static final int SEARCH_CHUNK_LINES = 2000;
+    private static final int MAX_CHUNK_LINES = 500;
+    private static final int MAX_CHUNK_BYTES = 64 * 1024;
+
+    private final File mFile;
+    // length of the contents, excluding a trailing line break
+    private final long mLength;
+    // start offset of each line in mFile
+    private final int[] mLineOffsets;
+    // byte range of each chunk, excluding the line break ending it
+    private long[] mChunkStarts;
+    private long[] mChunkEnds;
+    // index of the line each chunk starts in, and the number of lines it (partially) covers
+    private int[] mChunkFirstLines;
+    private int[] mChunkLineCounts;
+    private int mChunkCount;
+
+    private LargeTextFile(File file, long length, int[] lineOffsets) {
+        mFile = file;
+        mLength = length;
+        mLineOffsets = lineOffsets;
+    }
+
+    /**
+     * Reads the given source until it's exhausted and stores its contents. Needs to be
+     * called on a background thread; the source is not closed.
+     */
+    public static LargeTextFile create(Source source) throws IOException {
+        return create(source, getDirectory(), MAX_CHUNK_LINES, MAX_CHUNK_BYTES);
+    }
+
+    @VisibleForTesting
+    static LargeTextFile create(Source source, File dir) throws IOException {
+        return create(source, dir, MAX_CHUNK_LINES, MAX_CHUNK_BYTES);
+    }
+
+    @VisibleForTesting
+    static LargeTextFile create(Source source, File dir, int maxChunkLines, int maxChunkBytes)
+            throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        trimDirectory(dir);
+
+        File file = File.createTempFile("file", null, dir);
+        int[] offsets = new int[1024];
+        int lineCount = 1;
+        long length = 0;
+        boolean success = false;
+
+        try (BufferedSink sink = Okio.buffer(Okio.sink(file))) {
+            Buffer buffer = new Buffer();
+            while (source.read(buffer, READ_SIZE) != -1) {
+                long index = -1;
+                while ((index = buffer.indexOf((byte) '\n', index + 1)) >= 0) {
+                    if (lineCount == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, lineCount * 2);
+                    }
+                    offsets[lineCount++] = (int) (length + index + 1);
+                }
+                length += buffer.size();
+                sink.write(buffer, buffer.size());
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                file.delete();
+            }
+        }
+
+        // a trailing line break doesn't start another line
+        if (lineCount > 1 && offsets[lineCount - 1] == length) {
+            lineCount--;
+            length--;
+        }
+        LargeTextFile result = new LargeTextFile(file, length, Arrays.copyOf(offsets, lineCount));
+        result.computeChunks(maxChunkLines, maxChunkBytes);
+        return result;
+    }
+
+    private void computeChunks(int maxLines, int maxBytes) throws IOException {
+        int capacity = getLineCount() / maxLines + (int) (mLength / maxBytes) + 1;
+        mChunkStarts = new long[capacity];
+        mChunkEnds = new long[capacity];
+        mChunkFirstLines = new int[capacity];
+        mChunkLineCounts = new int[capacity];
+
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "r")) {
+            int line = 0;
+            long start = 0;
+            while (line < getLineCount()) {
+                int firstLine = line;
+                long end = getLineEnd(line);
+                if (end - start > maxBytes) {
+                    // split the line, as the rest of it doesn't fit into a chunk
+                    end = findCharacterStart(file, start, start + maxBytes);
+                    addChunk(start, end, firstLine, 1);
+                    start = end;
+                    continue;
+                }
+                line++;
+                while (line < getLineCount() && line - firstLine < maxLines
+                        && getLineEnd(line) - start <= maxBytes) {
+                    end = getLineEnd(line);
+                    line++;
+                }
+                addChunk(start, end, firstLine, line - firstLine);
+                if (line < getLineCount()) {
+                    start = mLineOffsets[line];
+                }
+            }
+        }
+    }
+
+    private void addChunk(long start, long end, int firstLine, int lineCount) {
+        if (mChunkCount == mChunkStarts.length) {
+            int capacity = mChunkCount * 2;
+            mChunkStarts = Arrays.copyOf(mChunkStarts, capacity);
+            mChunkEnds = Arrays.copyOf(mChunkEnds, capacity);
+            mChunkFirstLines = Arrays.copyOf(mChunkFirstLines, capacity);
+            mChunkLineCounts = Arrays.copyOf(mChunkLineCounts, capacity);
+        }
+        mChunkStarts[mChunkCount] = start;
+        mChunkEnds[mChunkCount] = end;
+        mChunkFirstLines[mChunkCount] = firstLine;
+        mChunkLineCounts[mChunkCount] = lineCount;
+        mChunkCount++;
+    }
+
+    // moves the offset back to the start of the UTF-8 encoded character it points into
+    private static long findCharacterStart(RandomAccessFile file, long min, long offset)
+            throws IOException {
+        while (offset > min + 1) {
+            file.seek(offset);
+            // continuation bytes look like 10xxxxxx
+            if ((file.read() & 0xc0) != 0x80) {
+                break;
+            }
+            offset--;
+        }
+        return offset;
+    }
+
+    private long getLineEnd(int line) {
+        // don't include the line break
+        return line + 1 < getLineCount() ? mLineOffsets[line + 1] - 1 : mLength;
+    }
+
+    public int getLineCount() {
+        return mLineOffsets.length;
+    }
+
+    public int getChunkCount() {
+        return mChunkCount;
+    }
+
+    /**
+     * @return Index of the line the given chunk starts in, starting at 0
+     */
+    public int getChunkFirstLine(int chunk) {
+        return mChunkFirstLines[chunk];
+    }
+
+    /**
+     * @return Number of lines the given chunk covers, including partially covered ones
+     */
+    public int getChunkLineCount(int chunk) {
+        return mChunkLineCounts[chunk];
+    }
+
+    /**
+     * @return Whether the chunk starts in the middle of a line that began in the
+     *         previous chunk
+     */
+    public boolean isChunkContinuingLine(int chunk) {
+        return mChunkStarts[chunk] != mLineOffsets[mChunkFirstLines[chunk]];
+    }
+
+    /**
+     * Reads the contents of the given chunk. Needs to be called on a background thread.
+     */
+    public String readChunk(int chunk) throws IOException {
+        if (chunk < 0 || chunk >= mChunkCount) {
+            return "";
+        }
+        return read(mChunkStarts[chunk], mChunkEnds[chunk]);
+    }
+
+    /**
+     * Reads the given range of lines, separated by line breaks. Needs to be called on
+     * a background thread.
+     *
+     * @param firstLine Index of the first line to read, starting at 0
+     */
+    public String readLines(int firstLine, int count) throws IOException {
+        int lastLine = Math.min(firstLine + count, getLineCount()) - 1;
+        if (firstLine < 0 || lastLine < firstLine) {
+            return "";
+        }
+        return read(mLineOffsets[firstLine], getLineEnd(lastLine));
+    }
+
+    private String read(long start, long end) throws IOException {
+        byte[] data = new byte[(int) (end - start)];
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "r")) {
+            file.seek(start);
+            file.readFully(data);
+        }
+        return new String(data, "UTF-8");
+    }
+
+    /**
+     * Like {@link StringUtils#findMatchingLines(String, String)}, but without reading the
+     * whole file at once. Needs to be called on a background thread.
+     */
+    public int[] findMatchingLines(String match) throws IOException {
+        int matchLineCount = match.split("\n").length;
+        for (int start = 0; start < getLineCount(); start += SEARCH_CHUNK_LINES) {
+            // overlap with the previous chunk to find matches spanning both of them
+            int first = Math.max(0, start - matchLineCount);
+            String chunk = readLines(first, start + SEARCH_CHUNK_LINES - first);
+            int[] lines = StringUtils.findMatchingLines(chunk, match);
+            if (lines != null) {
+                return new int[] { lines[0] + first, lines[1] + first };
+            }
+        }
+        return null;
+    }
+
+    public void delete() {
+        mFile.delete();
+    }
+
+    private static void trimDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length < MAX_PERSISTED_FILES) {
+            return;
+        }
+        Arrays.sort(files, (lhs, rhs) -> {
+            long lhsModified = lhs.lastModified(), rhsModified = rhs.lastModified();
+            return lhsModified < rhsModified ? -1 : lhsModified > rhsModified ? 1 : 0;
+        });
+        // leave space for the file about to be created
+        for (int i = 0; i <= files.length - MAX_PERSISTED_FILES; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static File getDirectory() {
+        return new File(Gh4Application.get().getCacheDir(), DIRECTORY_NAME);
+    }
+}
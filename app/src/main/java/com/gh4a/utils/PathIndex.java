@@ -0,0 +1,182 @@
+package com.gh4a.utils;
+
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.util.LruCache;
+
+import com.gh4a.model.RepositoryTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Fuzzy searchable list of all file paths of a repository tree. The paths are packed
+ * into a single char array to keep the index small for repositories with many files.
+ */
+public class PathIndex {
+    private static final LruCache<String, PathIndex> sIndexes = new LruCache<>(2);
+
+    private final char[] mChars;
+    // start offset of each path in mChars, followed by the end offset of the last path
+    private final int[] mOffsets;
+
+    @VisibleForTesting
+    PathIndex(List<String> paths) {
+        Collections.sort(paths);
+
+        int totalLength = 0;
+        for (String path : paths) {
+            totalLength += path.length();
+        }
+
+        mChars = new char[totalLength];
+        mOffsets = new int[paths.size() + 1];
+        int offset = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            path.getChars(0, path.length(), mChars, offset);
+            mOffsets[i] = offset;
+            offset += path.length();
+        }
+        mOffsets[paths.size()] = offset;
+    }
+
+    /**
+     * Returns the index for the given tree, building it if needed. Must not be called
+     * from the UI thread.
+     */
+    public static PathIndex forTree(RepositoryTree tree) {
+        PathIndex index = sIndexes.get(tree.getSha());
+        if (index == null) {
+            index = new PathIndex(tree.getFilePaths());
+            sIndexes.put(tree.getSha(), index);
+        }
+        return index;
+    }
+
+    public int size() {
+        return mOffsets.length - 1;
+    }
+
+    /**
+     * Finds all paths containing the characters of the query in order, case insensitive.
+     * Matches at the start of path components, consecutive matches and matches within
+     * the file name rank higher, as do shorter paths.
+     *
+     * @return Up to maxResults matching paths, best match first
+     */
+    public List<String> search(String query, int maxResults) {
+        char[] queryChars = query.trim().toLowerCase(Locale.US).toCharArray();
+        if (queryChars.length == 0) {
+            return new ArrayList<>();
+        }
+
+        // holds the best matches, worst of them at the head
+        PriorityQueue<Match> bestMatches = new PriorityQueue<>(maxResults + 1);
+        for (int i = 0; i < size(); i++) {
+            int score = score(mOffsets[i], mOffsets[i + 1], queryChars);
+            if (score < 0) {
+                continue;
+            }
+            if (bestMatches.size() < maxResults) {
+                bestMatches.add(new Match(i, score));
+            } else if (score > bestMatches.peek().score) {
+                bestMatches.poll();
+                bestMatches.add(new Match(i, score));
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(bestMatches);
+        Collections.sort(matches, Collections.reverseOrder());
+        List<String> result = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            int start = mOffsets[match.index];
+            result.add(new String(mChars, start, mOffsets[match.index + 1] - start));
+        }
+        return result;
+    }
+
+    private int score(int start, int end, char[] query) {
+        int nameStart = start;
+        for (int i = end - 1; i >= start; i--) {
+            if (mChars[i] == '/') {
+                nameStart = i + 1;
+                break;
+            }
+        }
+
+        int score = 0;
+        int queryPos = 0;
+        int lastMatch = -2;
+        for (int i = start; i < end && queryPos < query.length; i++) {
+            if (toLowerCase(mChars[i]) != query[queryPos]) {
+                continue;
+            }
+            int charScore = 1;
+            if (i == lastMatch + 1) {
+                charScore += 5;
+            }
+            if (i == start || isSeparator(mChars[i - 1])) {
+                charScore += 8;
+            }
+            if (i >= nameStart) {
+                charScore += 2;
+            }
+            score += charScore;
+            lastMatch = i;
+            queryPos++;
+        }
+        if (queryPos < query.length) {
+            return -1;
+        }
+
+        // the greedy match above may have consumed characters in the directory part,
+        // so reward queries matching the file name alone separately
+        if (matchesSubsequence(nameStart, end, query)) {
+            score += 4 * query.length;
+        }
+        return score * 16 - (end - start);
+    }
+
+    private boolean matchesSubsequence(int start, int end, char[] query) {
+        int queryPos = 0;
+        for (int i = start; i < end && queryPos < query.length; i++) {
+            if (toLowerCase(mChars[i]) == query[queryPos]) {
+                queryPos++;
+            }
+        }
+        return queryPos == query.length;
+    }
+
+    private static char toLowerCase(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < 128 ? c : Character.toLowerCase(c);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '.' || c == '_' || c == '-' || c == ' ';
+    }
+
+    private static class Match implements Comparable<Match> {
+        final int index;
+        final int score;
+
+        Match(int index, int score) {
+            this.index = index;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (score != other.score) {
+                return score < other.score ? -1 : 1;
+            }
+            // paths are sorted, so prefer the earlier one on equal scores
+            return index > other.index ? -1 : index < other.index ? 1 : 0;
+        }
+    }
+}
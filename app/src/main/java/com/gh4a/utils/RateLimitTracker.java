@@ -0,0 +1,354 @@
+package com.gh4a.utils;
+
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.gh4a.BuildConfig;
+import com.gh4a.Gh4Application;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import okhttp3.Call;
+import okhttp3.Response;
+
+/**
+ * Tracks the remaining API rate limit budget as reported by the response headers, and
+ * holds back requests depending on their priority once the budget runs low.
+ *
+ * Foreground requests are only held back once the budget is exhausted, prefetch requests
+ * leave a small reserve for the foreground, and background requests leave a larger one,
+ * are spread out evenly over the rest of the rate limit window and wait for running
+ * foreground requests.
+ *
+ * Held back requests never block pool threads: foreground requests fail with
+ * {@link LimitExceededException}, so the user can retry them, and requests of lower
+ * priority wait on a timer, see {@link #withPriority(Single, int, Scheduler)}.
+ *
+ * The priority of a request is taken from the thread executing it, see
+ * {@link #withPriority(Single, int)}.
+ */
+public class RateLimitTracker {
+    public static final int PRIORITY_FOREGROUND = 0;
+    public static final int PRIORITY_PREFETCH = 1;
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    // fraction of the limit that is kept for requests of higher priority
+    private static final float[] RESERVED_FRACTIONS = { 0F, 0.05F, 0.2F };
+    // how long background requests wait for running foreground requests at most
+    private static final long MAX_FOREGROUND_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private static final ThreadLocal<Integer> sPriority = new ThreadLocal<>();
+    private static final ThreadLocal<Reservation> sReservation = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> sMayBlock = new ThreadLocal<>();
+    private static final Object sLock = new Object();
+    private static int sLimit = -1;
+    private static int sRemaining = -1;
+    private static long sResetTime;
+    private static long sNextBackgroundTime;
+    private static int sActiveForegroundRequests;
+
+    private RateLimitTracker() {
+    }
+
+    /**
+     * Makes all requests executed while subscribing to the given single use the given
+     * priority. As requests are executed synchronously, this includes all requests which
+     * are started on the subscribing thread.
+     *
+     * Held back requests block the subscribing thread, so this must only be used by
+     * callers which are blocked anyway, like jobs.
+     */
+    public static <T> Single<T> withPriority(final Single<T> source, final int priority) {
+        return withReservation(source, priority, null);
+    }
+
+    /**
+     * Like {@link #withPriority(Single, int)}, but waits for the budget of the first request
+     * without blocking a thread and then subscribes to the source on the given scheduler.
+     * If a request is held back nevertheless, e.g. because another client used up the
+     * budget, the source is resubscribed after waiting on a timer as well.
+     * Use this instead of {@link Single#subscribeOn(Scheduler)} for requests of lower
+     * priority, so that they don't block bounded pools like {@link AppSchedulers#network()}
+     * while being held back.
+     */
+    public static <T> Single<T> withPriority(final Single<T> source, final int priority,
+            final Scheduler scheduler) {
+        return Single.<T>defer(() -> {
+            long now = System.currentTimeMillis();
+            final Reservation reservation = reserve(priority, now);
+            Single<T> prioritized = withReservation(source, priority, reservation);
+            if (acquire(reservation, now) == 0) {
+                return prioritized.subscribeOn(scheduler);
+            }
+            return Observable.interval(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+                    .filter(tick -> acquire(reservation, System.currentTimeMillis()) == 0)
+                    .firstOrError()
+                    .observeOn(scheduler)
+                    .flatMap(tick -> prioritized);
+        }).retryWhen(errors -> errors.flatMap(error -> error instanceof LimitExceededException
+                ? Flowable.timer(((LimitExceededException) error).getRetryDelayMillis(),
+                        TimeUnit.MILLISECONDS)
+                : Flowable.<Long>error(error)));
+    }
+
+    private static <T> Single<T> withReservation(final Single<T> source, final int priority,
+            final Reservation reservation) {
+        return new Single<T>() {
+            @Override
+            protected void subscribeActual(SingleObserver<? super T> observer) {
+                Integer previous = sPriority.get();
+                Reservation previousReservation = sReservation.get();
+                Boolean previousMayBlock = sMayBlock.get();
+                sPriority.set(priority);
+                sReservation.set(reservation);
+                // only the variant without scheduler blocks its caller
+                sMayBlock.set(reservation == null);
+                try {
+                    source.subscribe(observer);
+                } finally {
+                    sPriority.set(previous);
+                    sReservation.set(previousReservation);
+                    sMayBlock.set(previousMayBlock);
+                    if (reservation != null && !reservation.mUsed) {
+                        release(reservation);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Priority of requests started on the current thread
+     */
+    public static int getPriority() {
+        Integer priority = sPriority.get();
+        return priority != null ? priority : PRIORITY_FOREGROUND;
+    }
+
+    /**
+     * Waits until a request of the current thread's priority may be executed, if the
+     * thread may be blocked, see {@link #withPriority(Single, int)}.
+     *
+     * @throws LimitExceededException if the request is held back and the thread must
+     *         not be blocked
+     * @throws IOException if the call is canceled while waiting
+     */
+    public static void awaitBudget(Call call) throws IOException {
+        Reservation reservation = sReservation.get();
+        if (reservation != null && !reservation.mUsed) {
+            // already acquired by withPriority(Single, int, Scheduler)
+            reservation.mUsed = true;
+            return;
+        }
+
+        reservation = reserve(getPriority(), System.currentTimeMillis());
+        boolean logged = false;
+        while (true) {
+            long delay = acquire(reservation, System.currentTimeMillis());
+            if (delay == 0) {
+                reservation.mUsed = true;
+                return;
+            }
+
+            if (!Boolean.TRUE.equals(sMayBlock.get())) {
+                throw new LimitExceededException(delay);
+            }
+            if (BuildConfig.DEBUG && !logged) {
+                Log.d(Gh4Application.LOG_TAG, "Holding back " + call.request().url()
+                        + " (priority " + reservation.mPriority + ") for " + delay + " ms");
+                logged = true;
+            }
+            try {
+                Thread.sleep(Math.min(delay, POLL_INTERVAL_MILLIS));
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted while waiting for rate limit reset");
+            }
+            if (call.isCanceled()) {
+                throw new IOException("Canceled");
+            }
+        }
+    }
+
+    /**
+     * Must be called after each request passed {@link #awaitBudget(Call)}, with the
+     * network response if there was one.
+     */
+    public static void onRequestFinished(Response networkResponse) {
+        synchronized (sLock) {
+            if (getPriority() == PRIORITY_FOREGROUND) {
+                sActiveForegroundRequests--;
+            }
+            if (networkResponse != null) {
+                update(networkResponse);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the request failed because the rate limit was exceeded
+     */
+    public static boolean isRateLimited(Response networkResponse) {
+        int code = networkResponse.code();
+        return (code == HttpURLConnection.HTTP_FORBIDDEN || code == 429)
+                && "0".equals(networkResponse.header("X-RateLimit-Remaining"));
+    }
+
+    public static String getStatistics() {
+        synchronized (sLock) {
+            long secondsToReset = sResetTime > 0
+                    ? (sResetTime - System.currentTimeMillis()) / 1000 : -1;
+            return sRemaining + " of " + sLimit + " remaining, reset in " + secondsToReset
+                    + " s, " + sActiveForegroundRequests + " foreground requests running";
+        }
+    }
+
+    /**
+     * Reserves the next free slot for a request of the given priority. Must be done once
+     * per request, as background requests get a slot later than the previous one.
+     */
+    @VisibleForTesting
+    static Reservation reserve(int priority, long now) {
+        long slotTime = now;
+        synchronized (sLock) {
+            if (priority == PRIORITY_BACKGROUND && sLimit > 0 && now < sResetTime) {
+                int reserve = getReserve(priority);
+                if (sRemaining > reserve) {
+                    long interval = (sResetTime - now) / (sRemaining - reserve);
+                    slotTime = Math.max(now, sNextBackgroundTime);
+                    sNextBackgroundTime = slotTime + interval;
+                }
+            }
+        }
+        return new Reservation(priority, slotTime, now + MAX_FOREGROUND_WAIT_MILLIS);
+    }
+
+    /**
+     * @return 0 if the request may be executed now, how long to wait before trying
+     * again otherwise
+     */
+    @VisibleForTesting
+    static long acquire(Reservation reservation, long now) {
+        synchronized (sLock) {
+            long delay = getDelayMillis(reservation, now);
+            if (delay == 0 && reservation.mPriority == PRIORITY_FOREGROUND) {
+                sActiveForegroundRequests++;
+            }
+            return delay;
+        }
+    }
+
+    private static void release(Reservation reservation) {
+        synchronized (sLock) {
+            if (reservation.mPriority == PRIORITY_FOREGROUND) {
+                sActiveForegroundRequests--;
+            }
+        }
+    }
+
+    private static long getDelayMillis(Reservation reservation, long now) {
+        int priority = reservation.mPriority;
+        if (sLimit > 0 && now < sResetTime) {
+            if (sRemaining <= getReserve(priority)) {
+                return sResetTime - now;
+            }
+            if (reservation.mSlotTime > now) {
+                return reservation.mSlotTime - now;
+            }
+        }
+        if (priority == PRIORITY_BACKGROUND && sActiveForegroundRequests > 0
+                && now < reservation.mForegroundWaitEnd) {
+            return Math.min(POLL_INTERVAL_MILLIS, reservation.mForegroundWaitEnd - now);
+        }
+        return 0;
+    }
+
+    private static int getReserve(int priority) {
+        return (int) (sLimit * RESERVED_FRACTIONS[priority]);
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        synchronized (sLock) {
+            sLimit = -1;
+            sRemaining = -1;
+            sResetTime = 0;
+            sNextBackgroundTime = 0;
+            sActiveForegroundRequests = 0;
+        }
+    }
+
+    @VisibleForTesting
+    static void update(Response response) {
+        if (response.request().url().encodedPath().startsWith("/search")) {
+            // the search API has its own, much smaller limit
+            return;
+        }
+        int limit = parseInt(response.header("X-RateLimit-Limit"));
+        int remaining = parseInt(response.header("X-RateLimit-Remaining"));
+        int reset = parseInt(response.header("X-RateLimit-Reset"));
+        if (limit < 0 || remaining < 0 || reset < 0) {
+            return;
+        }
+        long resetTime = TimeUnit.SECONDS.toMillis(reset);
+        // responses may arrive out of order, so only take the lowest value of each window
+        if (resetTime != sResetTime || remaining < sRemaining) {
+            sLimit = limit;
+            sRemaining = remaining;
+            sResetTime = resetTime;
+        }
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Thrown for requests which are held back, but must not block the executing thread.
+     */
+    public static class LimitExceededException extends IOException {
+        private final long mRetryDelayMillis;
+
+        LimitExceededException(long retryDelayMillis) {
+            super("API rate limit exceeded, retry in " + retryDelayMillis + " ms");
+            mRetryDelayMillis = retryDelayMillis;
+        }
+
+        /**
+         * @return How long to wait before the request is expected to succeed
+         */
+        public long getRetryDelayMillis() {
+            return mRetryDelayMillis;
+        }
+    }
+
+    @VisibleForTesting
+    static class Reservation {
+        final int mPriority;
+        // when the request may be executed at the earliest
+        final long mSlotTime;
+        // until when background requests wait for running foreground requests
+        final long mForegroundWaitEnd;
+        boolean mUsed;
+
+        Reservation(int priority, long slotTime, long foregroundWaitEnd) {
+            mPriority = priority;
+            mSlotTime = slotTime;
+            mForegroundWaitEnd = foregroundWaitEnd;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.gh4a.utils;
+
+import android.content.Context;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.gh4a.Gh4Application;
+import com.gh4a.ServiceFactory;
+import com.gh4a.model.GitTreeService;
+import com.gh4a.model.RepositoryTree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import io.reactivex.Single;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * Loads the full file tree of a repository at a given ref with a single request, and keeps
+ * it in memory and on disk, keyed by its commit SHA. As a commit's tree never changes,
+ * persisted trees never need to be revalidated.
+ *
+ * Trees truncated by the API are only kept once they were completed by
+ * {@link #complete(Context, String, String, RepositoryTree)}.
+ */
+public class RepositoryTreeCache {
+    private static final String DIRECTORY_NAME = "trees";
+    private static final int MAX_PERSISTED_TREES = 20;
+    // each subtree request may return as many entries as the initial one
+    private static final int MAX_SUBTREE_REQUESTS = 100;
+
+    private static final LruCache<String, RepositoryTree> sMemoryCache = new LruCache<>(3);
+
+    private RepositoryTreeCache() {
+    }
+
+    /**
+     * Loads the tree of the given ref. The returned single emits an absent value if the
+     * tree can't be provided, e.g. because it's too large for the API, in which case
+     * the caller is expected to load directory contents individually.
+     *
+     * @param sha Commit SHA the ref is known to point to, or null to resolve it
+     */
+    public static Single<Optional<RepositoryTree>> load(Context context, String repoOwner,
+            String repoName, String ref, String sha, boolean bypassCache) {
+        return loadPartial(context, repoOwner, repoName, ref, sha, bypassCache)
+                .map(treeOpt -> treeOpt.isPresent() && treeOpt.get().isTruncated()
+                        ? Optional.<RepositoryTree>absent() : treeOpt);
+    }
+
+    /**
+     * Like {@link #load}, but also emits trees truncated by the API. Those are incomplete
+     * and can be completed by {@link #complete(Context, String, String, RepositoryTree)}.
+     */
+    public static Single<Optional<RepositoryTree>> loadPartial(Context context,
+            String repoOwner, String repoName, String ref, String sha, boolean bypassCache) {
+        final Context appContext = context.getApplicationContext();
+        final GitTreeService service = ServiceFactory.get(GitTreeService.class, bypassCache);
+        Single<String> shaSingle = sha != null
+                ? Single.just(sha)
+                : service.getCommitSha(repoOwner, repoName, ref)
+                        .map(ApiHelpers::throwOnFailure)
+                        .map(String::trim);
+
+        return shaSingle
+                .flatMap(commitSha -> {
+                    RepositoryTree tree = getCachedTree(appContext, commitSha);
+                    if (tree != null) {
+                        return Single.just(Optional.of(tree));
+                    }
+                    return service.getRecursiveTree(repoOwner, repoName, commitSha)
+                            .map(response -> {
+                                RepositoryTree result = parseTree(commitSha,
+                                        ApiHelpers.throwOnFailure(response));
+                                // truncated trees are only cached once completed
+                                if (!result.isTruncated()) {
+                                    sMemoryCache.put(commitSha, result);
+                                    storeTree(appContext, result);
+                                }
+                                return Optional.of(result);
+                            });
+                })
+                .onErrorReturn(error -> {
+                    Log.w(Gh4Application.LOG_TAG, "Could not load tree of "
+                            + repoOwner + "/" + repoName + " at " + ref, error);
+                    return Optional.absent();
+                });
+    }
+
+    /**
+     * Fetches the parts of a truncated tree that are missing, one subtree at a time.
+     * The returned single emits the given tree after adding them, which is still truncated
+     * if there are too many parts missing or fetching one of them failed. Completed trees
+     * are cached like the ones returned by {@link #load}.
+     */
+    public static Single<RepositoryTree> complete(Context context, String repoOwner,
+            String repoName, RepositoryTree tree) {
+        final Context appContext = context.getApplicationContext();
+        final GitTreeService service = ServiceFactory.get(GitTreeService.class, false);
+        return addMissingSubtrees(service, repoOwner, repoName, tree, MAX_SUBTREE_REQUESTS)
+                .onErrorReturn(error -> {
+                    Log.w(Gh4Application.LOG_TAG, "Could not complete tree of "
+                            + repoOwner + "/" + repoName, error);
+                    return tree;
+                })
+                .doOnSuccess(result -> {
+                    if (!result.isTruncated()) {
+                        sMemoryCache.put(result.getSha(), result);
+                        storeTree(appContext, result);
+                    }
+                });
+    }
+
+    private static Single<RepositoryTree> addMissingSubtrees(GitTreeService service,
+            String repoOwner, String repoName, RepositoryTree tree, int remainingRequests) {
+        RepositoryTree.Subtree missing = tree.getMissingSubtree();
+        if (missing == null || remainingRequests == 0) {
+            return Single.just(tree);
+        }
+        Single<Response<ResponseBody>> request = missing.isRecursive()
+                ? service.getRecursiveTree(repoOwner, repoName, missing.getSha())
+                : service.getTree(repoOwner, repoName, missing.getSha());
+        return RateLimitTracker.withPriority(request, RateLimitTracker.PRIORITY_PREFETCH,
+                        AppSchedulers.network())
+                .map(response -> {
+                    RepositoryTree subtree = parseTree(missing.getSha(),
+                            ApiHelpers.throwOnFailure(response));
+                    tree.addSubtree(missing, subtree);
+                    return tree;
+                })
+                .flatMap(result -> addMissingSubtrees(service, repoOwner, repoName,
+                        result, remainingRequests - 1));
+    }
+
+    private static RepositoryTree getCachedTree(Context context, String sha) {
+        RepositoryTree tree = sMemoryCache.get(sha);
+        if (tree != null) {
+            return tree;
+        }
+
+        File file = new File(getDirectory(context), sha);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            tree = RepositoryTree.readFrom(in);
+            sMemoryCache.put(sha, tree);
+            // used for LRU ordering
+            file.setLastModified(System.currentTimeMillis());
+            return tree;
+        } catch (IOException e) {
+            Log.d(Gh4Application.LOG_TAG, "Could not read tree " + sha, e);
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static RepositoryTree parseTree(String sha, ResponseBody body) throws IOException {
+        try {
+            return RepositoryTree.parse(sha, body.source());
+        } finally {
+            body.close();
+        }
+    }
+
+    private static synchronized void storeTree(Context context, RepositoryTree tree) {
+        File dir = getDirectory(context);
+        if (!dir.exists() && !dir.mkdirs()) {
+            return;
+        }
+
+        File file = new File(dir, tree.getSha());
+        File tempFile = new File(dir, tree.getSha() + ".tmp");
+        DataOutputStream out = null;
+        boolean success = false;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            tree.writeTo(out);
+            out.close();
+            out = null;
+            success = tempFile.renameTo(file);
+        } catch (IOException e) {
+            Log.d(Gh4Application.LOG_TAG, "Could not write tree " + tree.getSha(), e);
+        } finally {
+            closeQuietly(out);
+            if (!success) {
+                tempFile.delete();
+            }
+        }
+
+        trimDirectory(dir);
+    }
+
+    private static void trimDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_PERSISTED_TREES) {
+            return;
+        }
+        Arrays.sort(files, (lhs, rhs) -> {
+            long lhsModified = lhs.lastModified(), rhsModified = rhs.lastModified();
+            return lhsModified < rhsModified ? -1 : lhsModified > rhsModified ? 1 : 0;
+        });
+        for (int i = 0; i < files.length - MAX_PERSISTED_TREES; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static File getDirectory(Context context) {
+        return new File(context.getCacheDir(), DIRECTORY_NAME);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
+}
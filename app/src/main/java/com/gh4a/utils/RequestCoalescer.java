@@ -0,0 +1,95 @@
+package com.gh4a.utils;
+
+import android.util.Log;
+
+import com.gh4a.BuildConfig;
+import com.gh4a.Gh4Application;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Single;
+
+/**
+ * Shares identical in-flight requests between all of their subscribers.
+ *
+ * As long as a request for a given key is running, further subscriptions for the same key
+ * attach to the running request instead of starting a new one, and all of them receive
+ * the same result once it arrives. Once the request terminates, the next subscription
+ * starts a fresh request.
+ */
+public class RequestCoalescer {
+    private static final HashMap<String, Single<?>> sInFlight = new HashMap<>();
+    private static final AtomicLong sHits = new AtomicLong();
+    private static final AtomicLong sMisses = new AtomicLong();
+
+    private RequestCoalescer() {
+    }
+
+    /**
+     * Builds a key for {@link #coalesce(String, Single)}.
+     *
+     * @param method Name of the service method that is called
+     * @param bypassCache Whether the request bypasses the HTTP cache
+     * @param args Arguments passed to the service method
+     */
+    public static String makeKey(String method, boolean bypassCache, Object... args) {
+        StringBuilder key = new StringBuilder(method);
+        key.append(bypassCache ? "!" : "?");
+        for (Object arg : args) {
+            key.append('/').append(arg);
+        }
+        return key.toString();
+    }
+
+    public static <T> Single<T> coalesce(final String key, final Single<T> source) {
+        return Single.defer(() -> {
+            synchronized (sInFlight) {
+                @SuppressWarnings("unchecked")
+                Single<T> shared = (Single<T>) sInFlight.get(key);
+                if (shared != null) {
+                    sHits.incrementAndGet();
+                    log("hit", key);
+                    return shared;
+                }
+
+                sMisses.incrementAndGet();
+                log("miss", key);
+
+                final Object[] holder = new Object[1];
+                shared = source
+                        .doFinally(() -> {
+                            synchronized (sInFlight) {
+                                if (sInFlight.get(key) == holder[0]) {
+                                    sInFlight.remove(key);
+                                }
+                            }
+                        })
+                        .cache();
+                holder[0] = shared;
+                sInFlight.put(key, shared);
+                return shared;
+            }
+        });
+    }
+
+    public static long getHitCount() {
+        return sHits.get();
+    }
+
+    public static long getMissCount() {
+        return sMisses.get();
+    }
+
+    public static void resetCounters() {
+        sHits.set(0);
+        sMisses.set(0);
+    }
+
+    private static void log(String outcome, String key) {
+        if (BuildConfig.DEBUG) {
+            Log.d(Gh4Application.LOG_TAG, "Request coalescer " + outcome + " for " + key
+                    + " (hits " + sHits.get() + ", misses " + sMisses.get() + ")");
+        }
+    }
+}
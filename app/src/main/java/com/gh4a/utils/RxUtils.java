@@ -26,7 +26,6 @@ import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
 import io.reactivex.processors.PublishProcessor;
-import io.reactivex.schedulers.Schedulers;
 import retrofit2.Response;
 
 public class RxUtils {
@@ -83,7 +82,7 @@ public class RxUtils {
     }
 
     public static <T> Single<T> doInBackground(Single<T> upstream) {
-        return upstream.subscribeOn(Schedulers.newThread())
+        return upstream.subscribeOn(AppSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread());
     }
 
@@ -6,6 +6,8 @@ import com.gh4a.model.Feed;
 import com.gh4a.model.GitHubFeedService;
 import com.gh4a.model.NotificationHolder;
 import com.gh4a.model.NotificationListLoadResult;
+import com.gh4a.model.NotificationPollResult;
+import com.gh4a.model.NotificationPollService;
 import com.gh4a.model.Trend;
 import com.gh4a.model.TrendService;
 import com.meisolsson.githubsdk.core.ServiceGenerator;
@@ -18,6 +20,7 @@ import org.simpleframework.xml.core.Persister;
 import org.simpleframework.xml.transform.RegistryMatcher;
 import org.simpleframework.xml.transform.Transform;
 
+import java.net.HttpURLConnection;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -64,10 +67,56 @@ public class SingleFactory {
         options.put("participating", participating);
 
         return ApiHelpers.PageIterator
-                .toSingle(page -> service.getNotifications(options, page))
+                .toParallelSingle(page -> service.getNotifications(options, page))
                 .map(SingleFactory::notificationsToResult);
     }
 
+    /**
+     * Loads the unread notifications, unless they weren't modified since a previous poll.
+     * Only the first page is requested conditionally; the remaining pages are only loaded
+     * if that one changed.
+     *
+     * @param lastModified Last-Modified value returned by the previous poll, or null
+     */
+    public static Single<NotificationPollResult> pollNotifications(String lastModified) {
+        final NotificationPollService service =
+                ServiceFactory.get(NotificationPollService.class, true);
+        final Map<String, Object> options = new HashMap<>();
+        options.put("all", false);
+        options.put("participating", false);
+
+        return service.getNotifications(lastModified, options, 1)
+                .flatMap(response -> {
+                    long pollIntervalSeconds =
+                            parsePollInterval(response.headers().get("X-Poll-Interval"));
+                    if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        return Single.just(new NotificationPollResult(null,
+                                lastModified, pollIntervalSeconds));
+                    }
+                    ApiHelpers.throwOnFailure(response);
+
+                    String newLastModified = response.headers().get("Last-Modified");
+                    return ApiHelpers.PageIterator
+                            .toParallelSingle(page -> page == 1
+                                    ? Single.just(response)
+                                    : service.getNotifications(null, options, page))
+                            .map(notifications -> new NotificationPollResult(
+                                    notificationsToResult(notifications),
+                                    newLastModified, pollIntervalSeconds));
+                });
+    }
+
+    private static long parsePollInterval(String header) {
+        if (header != null) {
+            try {
+                return Long.parseLong(header);
+            } catch (NumberFormatException e) {
+                // ignored, treat as not present
+            }
+        }
+        return 0;
+    }
+
     private static NotificationListLoadResult notificationsToResult(
             List<NotificationThread> notifications) {
         // group notifications by repo
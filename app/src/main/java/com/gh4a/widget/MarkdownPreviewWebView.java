@@ -2,29 +2,46 @@ package com.gh4a.widget;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
 import android.support.v4.view.NestedScrollingChild2;
 import android.support.v4.view.NestedScrollingChildHelper;
 import android.support.v4.view.ViewCompat;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
+import android.webkit.WebViewClient;
 import android.widget.EditText;
 
+import com.gh4a.BuildConfig;
 import com.gh4a.Gh4Application;
 import com.gh4a.R;
 import com.gh4a.activities.WebViewerActivity;
+import com.gh4a.utils.IntentUtils;
 import com.gh4a.utils.StringUtils;
 
-public class MarkdownPreviewWebView extends WebView implements NestedScrollingChild2 {
+/**
+ * Live preview of markdown text. The page is loaded once, and text changes are pushed
+ * into it at most once per frame, with the page only replacing the changed blocks.
+ */
+public class MarkdownPreviewWebView extends WebView implements NestedScrollingChild2,
+        Choreographer.FrameCallback {
     private final NestedScrollingChildHelper mChildHelper;
     private final int[] mScrollOffset = new int[2];
     private final int[] mScrollConsumed = new int[2];
     private int mNestedOffsetY;
     private int mLastY;
     private final String mCssTheme;
+    private boolean mPageLoaded;
+    private boolean mUpdateScheduled;
+    private boolean mUpdateInProgress;
+    // text not yet pushed into the page, or null if it's up to date
+    private String mPendingText;
 
     public MarkdownPreviewWebView(Context context) {
         this(context, null);
@@ -45,7 +62,23 @@ public class MarkdownPreviewWebView extends WebView implements NestedScrollingCh
 
         if (!isInEditMode()) {
             initWebViewSettings(getSettings());
-            setContent("");
+            setWebViewClient(new WebViewClient() {
+                @Override
+                public void onPageFinished(WebView view, String url) {
+                    mPageLoaded = true;
+                    scheduleUpdate();
+                }
+
+                @Override
+                @SuppressWarnings("deprecation")
+                public boolean shouldOverrideUrlLoading(WebView view, String url) {
+                    // navigating away would replace the preview page
+                    IntentUtils.launchBrowser(getContext(), Uri.parse(url));
+                    return true;
+                }
+            });
+            loadDataWithBaseURL("file:///android_asset/", generatePageShell(mCssTheme),
+                    null, "utf-8", null);
         }
     }
 
@@ -57,7 +90,8 @@ public class MarkdownPreviewWebView extends WebView implements NestedScrollingCh
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                setContent(s.toString());
+                mPendingText = s.toString();
+                scheduleUpdate();
             }
 
             @Override
@@ -66,6 +100,53 @@ public class MarkdownPreviewWebView extends WebView implements NestedScrollingCh
         });
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // push the text changed while detached, as its scheduled update was dropped
+        scheduleUpdate();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mUpdateScheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            mUpdateScheduled = false;
+        }
+    }
+
+    private void scheduleUpdate() {
+        if (mPageLoaded && mPendingText != null && !mUpdateScheduled && !mUpdateInProgress) {
+            Choreographer.getInstance().postFrameCallback(this);
+            mUpdateScheduled = true;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mUpdateScheduled = false;
+        if (mPendingText == null) {
+            return;
+        }
+
+        String script = "updatePreview('" + StringUtils.toBase64(mPendingText) + "')";
+        mPendingText = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // don't queue up further updates while the page is still busy with this one
+            mUpdateInProgress = true;
+            evaluateJavascript(script, result -> {
+                mUpdateInProgress = false;
+                if (BuildConfig.DEBUG) {
+                    Log.d(Gh4Application.LOG_TAG, "Rendering preview took " + result + " ms");
+                }
+                scheduleUpdate();
+            });
+        } else {
+            loadUrl("javascript:" + script);
+        }
+    }
+
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
         boolean result;
@@ -169,33 +250,18 @@ public class MarkdownPreviewWebView extends WebView implements NestedScrollingCh
         s.setUseWideViewPort(false);
     }
 
-    private void setContent(String content) {
-        String html = generateMarkdownHtml(StringUtils.toBase64(content), mCssTheme);
-        loadDataWithBaseURL("file:///android_asset/", html, null, "utf-8", null);
-    }
-
-    private String generateMarkdownHtml(String base64Data, String cssTheme) {
+    private String generatePageShell(String cssTheme) {
         StringBuilder content = new StringBuilder();
         content.append("<html><head>");
         writeScriptInclude(content, "showdown");
         writeScriptInclude(content, "base64");
+        writeScriptInclude(content, "mdpreview");
         writeCssInclude(content, "markdown", cssTheme);
         writeCssInclude(content, "mdpreview", cssTheme);
         content.append("</head>");
 
         content.append("<body>");
         content.append("<div id='content'></div>");
-
-        content.append("<script>");
-        content.append("var text = Base64.decode('");
-        content.append(base64Data);
-        content.append("');\n");
-        content.append("var converter = new showdown.Converter();\n");
-        content.append("converter.setFlavor('github');\n");
-        content.append("var html = converter.makeHtml(text);\n");
-        content.append("document.getElementById('content').innerHTML = html;");
-        content.append("</script>");
-
         content.append("</body></html>");
 
         return content.toString();
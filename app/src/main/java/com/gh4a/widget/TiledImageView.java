@@ -0,0 +1,388 @@
+package com.gh4a.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.v4.util.LruCache;
+import android.support.v4.view.ViewCompat;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.widget.OverScroller;
+
+import com.gh4a.utils.AppSchedulers;
+import com.gh4a.utils.LargeImageFile;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Shows a {@link LargeImageFile} with support for panning and zooming. The image preview
+ * is shown as long as it has enough resolution; beyond that, the visible part of the image
+ * is decoded in tiles, which are kept in a cache of bounded size.
+ */
+public class TiledImageView extends View {
+    // size of the decoded tiles in pixels
+    private static final int TILE_SIZE = 512;
+    private static final int MAX_TILE_CACHE_SIZE = 24 * 1024 * 1024;
+    // maximum number of screen pixels per image pixel
+    private static final float MAX_ZOOM = 4F;
+
+    private final LruCache<String, Bitmap> mTileCache;
+    // tiles which still need to be decoded, in the order they were requested
+    private final LinkedHashMap<String, Tile> mPendingTiles = new LinkedHashMap<>();
+    private Disposable mDecodeDisposable;
+
+    private final ScaleGestureDetector mScaleDetector;
+    private final GestureDetector mGestureDetector;
+    private final OverScroller mScroller;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mSourceRect = new Rect();
+    private final RectF mDestRect = new RectF();
+
+    private LargeImageFile mImage;
+    // screen pixels per image pixel
+    private float mScale;
+    private float mMinScale;
+    // position of the image origin in the view
+    private float mTranslateX;
+    private float mTranslateY;
+
+    public TiledImageView(Context context) {
+        this(context, null);
+    }
+
+    public TiledImageView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        mTileCache = new LruCache<String, Bitmap>(
+                (int) Math.min(MAX_TILE_CACHE_SIZE, maxMemory / 8)) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+
+        mScaleDetector = new ScaleGestureDetector(context,
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomTo(mScale * detector.getScaleFactor(),
+                        detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        mGestureDetector = new GestureDetector(context,
+                new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                mScroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2,
+                    float distanceX, float distanceY) {
+                mTranslateX -= distanceX;
+                mTranslateY -= distanceY;
+                onTransformChanged();
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2,
+                    float velocityX, float velocityY) {
+                int minX = Math.round(Math.min(0, getWidth() - getScaledWidth()));
+                int minY = Math.round(Math.min(0, getHeight() - getScaledHeight()));
+                mScroller.fling(Math.round(mTranslateX), Math.round(mTranslateY),
+                        Math.round(velocityX), Math.round(velocityY), minX, 0, minY, 0);
+                ViewCompat.postInvalidateOnAnimation(TiledImageView.this);
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                float targetScale = mScale > mMinScale * 1.01F
+                        ? mMinScale : Math.min(mMinScale * 3, getMaxScale());
+                zoomTo(targetScale, e.getX(), e.getY());
+                return true;
+            }
+        });
+        mScroller = new OverScroller(context);
+    }
+
+    public void setImage(LargeImageFile image) {
+        if (image == mImage) {
+            return;
+        }
+        mImage = image;
+        mTileCache.evictAll();
+        cancelDecoding();
+        resetTransform();
+        invalidate();
+    }
+
+    @Override
+    public boolean canScrollVertically(int direction) {
+        if (mImage == null) {
+            return false;
+        }
+        return direction < 0
+                ? mTranslateY < 0 : mTranslateY + getScaledHeight() > getHeight();
+    }
+
+    @Override
+    public boolean canScrollHorizontally(int direction) {
+        if (mImage == null) {
+            return false;
+        }
+        return direction < 0
+                ? mTranslateX < 0 : mTranslateX + getScaledWidth() > getWidth();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mImage == null) {
+            return super.onTouchEvent(event);
+        }
+        mScaleDetector.onTouchEvent(event);
+        if (!mScaleDetector.isInProgress()) {
+            mGestureDetector.onTouchEvent(event);
+        }
+        return true;
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            mTranslateX = mScroller.getCurrX();
+            mTranslateY = mScroller.getCurrY();
+            onTransformChanged();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (oldw == 0 || oldh == 0) {
+            resetTransform();
+        } else {
+            updateMinScale();
+            zoomTo(mScale, w / 2F, h / 2F);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelDecoding();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mImage == null || mScale == 0) {
+            return;
+        }
+
+        Bitmap preview = mImage.getPreview();
+        mSourceRect.set(0, 0, preview.getWidth(), preview.getHeight());
+        mDestRect.set(mTranslateX, mTranslateY,
+                mTranslateX + getScaledWidth(), mTranslateY + getScaledHeight());
+        canvas.drawBitmap(preview, mSourceRect, mDestRect, mPaint);
+
+        int sampleSize = getTileSampleSize();
+        if (sampleSize >= mImage.getPreviewSampleSize()) {
+            return;
+        }
+
+        // draw the visible tiles on top of the preview, decoding those which are missing
+        int tileImageSize = TILE_SIZE * sampleSize;
+        int firstColumn = Math.max(0, (int) (-mTranslateX / mScale) / tileImageSize);
+        int firstRow = Math.max(0, (int) (-mTranslateY / mScale) / tileImageSize);
+        int lastColumn = Math.min((mImage.getWidth() - 1) / tileImageSize,
+                (int) ((getWidth() - mTranslateX) / mScale) / tileImageSize);
+        int lastRow = Math.min((mImage.getHeight() - 1) / tileImageSize,
+                (int) ((getHeight() - mTranslateY) / mScale) / tileImageSize);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Tile tile = new Tile(sampleSize, column, row);
+                Bitmap bitmap = mTileCache.get(tile.key);
+                if (bitmap == null) {
+                    if (!mPendingTiles.containsKey(tile.key)) {
+                        mPendingTiles.put(tile.key, tile);
+                    }
+                    continue;
+                }
+                Rect region = tile.getRegion(mImage);
+                mSourceRect.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+                mDestRect.set(mTranslateX + region.left * mScale,
+                        mTranslateY + region.top * mScale,
+                        mTranslateX + region.right * mScale,
+                        mTranslateY + region.bottom * mScale);
+                canvas.drawBitmap(bitmap, mSourceRect, mDestRect, mPaint);
+            }
+        }
+        decodeNextTile();
+    }
+
+    private void decodeNextTile() {
+        if (mDecodeDisposable != null) {
+            return;
+        }
+
+        // skip tiles which were scrolled or zoomed out of view meanwhile
+        Tile tile = null;
+        Iterator<Tile> iter = mPendingTiles.values().iterator();
+        while (iter.hasNext() && tile == null) {
+            Tile candidate = iter.next();
+            iter.remove();
+            if (isTileVisible(candidate)) {
+                tile = candidate;
+            }
+        }
+        if (tile == null) {
+            return;
+        }
+
+        final LargeImageFile image = mImage;
+        final Tile decodedTile = tile;
+        mDecodeDisposable = Single.fromCallable(() -> {
+                    Bitmap bitmap = image.decodeRegion(decodedTile.getRegion(image),
+                            decodedTile.sampleSize);
+                    if (bitmap == null) {
+                        throw new IllegalStateException("Could not decode tile");
+                    }
+                    return bitmap;
+                })
+                .subscribeOn(AppSchedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(bitmap -> {
+                    mDecodeDisposable = null;
+                    if (image == mImage) {
+                        mTileCache.put(decodedTile.key, bitmap);
+                        invalidate();
+                    }
+                }, error -> {
+                    mDecodeDisposable = null;
+                    decodeNextTile();
+                });
+    }
+
+    private void cancelDecoding() {
+        if (mDecodeDisposable != null) {
+            mDecodeDisposable.dispose();
+            mDecodeDisposable = null;
+        }
+        mPendingTiles.clear();
+    }
+
+    private boolean isTileVisible(Tile tile) {
+        if (mImage == null || tile.sampleSize != getTileSampleSize()) {
+            return false;
+        }
+        Rect region = tile.getRegion(mImage);
+        return mTranslateX + region.right * mScale > 0
+                && mTranslateX + region.left * mScale < getWidth()
+                && mTranslateY + region.bottom * mScale > 0
+                && mTranslateY + region.top * mScale < getHeight();
+    }
+
+    private int getTileSampleSize() {
+        // use the lowest resolution that still has at least one pixel per screen pixel
+        int sampleSize = 1;
+        while (sampleSize * 2 * mScale <= 1F) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private void resetTransform() {
+        if (mImage == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        updateMinScale();
+        mScale = mMinScale;
+        mTranslateX = (getWidth() - getScaledWidth()) / 2;
+        mTranslateY = (getHeight() - getScaledHeight()) / 2;
+    }
+
+    private void updateMinScale() {
+        if (mImage == null) {
+            return;
+        }
+        // fit the image into the view, but don't enlarge small images
+        mMinScale = Math.min(1F, Math.min((float) getWidth() / mImage.getWidth(),
+                (float) getHeight() / mImage.getHeight()));
+    }
+
+    private float getMaxScale() {
+        return Math.max(MAX_ZOOM, mMinScale);
+    }
+
+    private void zoomTo(float scale, float focusX, float focusY) {
+        if (mImage == null || mScale == 0) {
+            return;
+        }
+        scale = Math.max(mMinScale, Math.min(scale, getMaxScale()));
+        // keep the image point below the focus in place
+        mTranslateX = focusX - (focusX - mTranslateX) * scale / mScale;
+        mTranslateY = focusY - (focusY - mTranslateY) * scale / mScale;
+        mScale = scale;
+        onTransformChanged();
+    }
+
+    private void onTransformChanged() {
+        mTranslateX = constrainTranslation(mTranslateX, getScaledWidth(), getWidth());
+        mTranslateY = constrainTranslation(mTranslateY, getScaledHeight(), getHeight());
+        ViewCompat.postInvalidateOnAnimation(this);
+    }
+
+    private static float constrainTranslation(float translation, float imageSize,
+            float viewSize) {
+        if (imageSize <= viewSize) {
+            // center images smaller than the view
+            return (viewSize - imageSize) / 2;
+        }
+        return Math.max(viewSize - imageSize, Math.min(0, translation));
+    }
+
+    private float getScaledWidth() {
+        return mImage != null ? mImage.getWidth() * mScale : 0;
+    }
+
+    private float getScaledHeight() {
+        return mImage != null ? mImage.getHeight() * mScale : 0;
+    }
+
+    private static class Tile {
+        final int sampleSize;
+        final int column;
+        final int row;
+        final String key;
+
+        Tile(int sampleSize, int column, int row) {
+            this.sampleSize = sampleSize;
+            this.column = column;
+            this.row = row;
+            this.key = sampleSize + "/" + column + "/" + row;
+        }
+
+        Rect getRegion(LargeImageFile image) {
+            int size = TILE_SIZE * sampleSize;
+            return new Rect(column * size, row * size,
+                    Math.min((column + 1) * size, image.getWidth()),
+                    Math.min((row + 1) * size, image.getHeight()));
+        }
+    }
+}
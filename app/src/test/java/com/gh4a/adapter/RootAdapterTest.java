@@ -0,0 +1,199 @@
+package com.gh4a.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.gh4a.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class RootAdapterTest {
+    private static final int ROW_COUNT = 1000;
+
+    private TestAdapter mAdapter;
+    private CountingObserver mObserver;
+
+    @Before
+    public void setup() {
+        // deliver prepared updates on the calling thread instead of the main looper
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        mAdapter = new TestAdapter();
+        mAdapter.setItems(createRows(ROW_COUNT, -1));
+        mObserver = new CountingObserver();
+        mAdapter.registerAdapterDataObserver(mObserver);
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void preparedReload_withoutChanges__notifiesNothing() {
+        List<Row> rows = createRows(ROW_COUNT, -1);
+        mAdapter.prepareItems(rows).blockingAwait();
+        mAdapter.setItems(rows);
+
+        assertThat(mObserver.mDataSetChanges, is(0));
+        assertThat(mObserver.mChangedRows, is(0));
+        assertThat(mAdapter.getCount(), is(ROW_COUNT));
+    }
+
+    @Test
+    public void preparedReload_withOneChangedRow__rebindsOnlyThatRow() {
+        List<Row> rows = createRows(ROW_COUNT, 500);
+        mAdapter.prepareItems(rows).blockingAwait();
+        mAdapter.setItems(rows);
+
+        assertThat(mObserver.mDataSetChanges, is(0));
+        assertThat(mObserver.mChangedRows, is(1));
+        assertThat(mObserver.mInsertedRows, is(0));
+        assertThat(mObserver.mRemovedRows, is(0));
+        assertThat(mAdapter.getItem(500).mContent, is("changed"));
+    }
+
+    @Test
+    public void preparedReload_withAppendedRow__insertsOnlyThatRow() {
+        List<Row> rows = createRows(ROW_COUNT + 1, -1);
+        mAdapter.prepareItems(rows).blockingAwait();
+        mAdapter.setItems(rows);
+
+        assertThat(mObserver.mDataSetChanges, is(0));
+        assertThat(mObserver.mChangedRows, is(0));
+        assertThat(mObserver.mInsertedRows, is(1));
+        assertThat(mAdapter.getCount(), is(ROW_COUNT + 1));
+    }
+
+    @Test
+    public void stalePreparedUpdate__isNotUsed() {
+        List<Row> rows = createRows(ROW_COUNT, 500);
+        mAdapter.prepareItems(rows).blockingAwait();
+        mAdapter.add(new Row(ROW_COUNT, "added"));
+        mAdapter.setItems(rows);
+
+        assertThat(mObserver.mDataSetChanges, is(1));
+        assertThat(mAdapter.getCount(), is(ROW_COUNT));
+    }
+
+    @Test
+    public void unpreparedLargeReload__fallsBackToFullRebind() {
+        mAdapter.setItems(createRows(ROW_COUNT, 500));
+
+        assertThat(mObserver.mDataSetChanges, is(1));
+        assertThat(mObserver.mChangedRows, is(0));
+    }
+
+    @Test
+    public void unpreparedSmallReload__isDiffedSynchronously() {
+        mAdapter.setItems(createRows(50, -1));
+        mObserver.reset();
+
+        mAdapter.setItems(createRows(50, 10));
+
+        assertThat(mObserver.mDataSetChanges, is(0));
+        assertThat(mObserver.mChangedRows, is(1));
+    }
+
+    private static List<Row> createRows(int count, int changedIndex) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Row(i, i == changedIndex ? "changed" : "row " + i));
+        }
+        return rows;
+    }
+
+    private static class Row {
+        private final int mId;
+        private final String mContent;
+
+        Row(int id, String content) {
+            mId = id;
+            mContent = content;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Row)) {
+                return false;
+            }
+            Row other = (Row) o;
+            return mId == other.mId && mContent.equals(other.mContent);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mId + mContent.hashCode();
+        }
+    }
+
+    private static class TestAdapter extends RootAdapter<Row, RecyclerView.ViewHolder> {
+        TestAdapter() {
+            super(RuntimeEnvironment.application);
+        }
+
+        @Override
+        protected RecyclerView.ViewHolder onCreateViewHolder(LayoutInflater inflater,
+                ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new View(parent.getContext())) {};
+        }
+
+        @Override
+        protected void onBindViewHolder(RecyclerView.ViewHolder holder, Row item) {
+        }
+
+        @Override
+        protected Object getItemKey(Row item) {
+            return item.mId;
+        }
+    }
+
+    private static class CountingObserver extends RecyclerView.AdapterDataObserver {
+        private int mDataSetChanges;
+        private int mChangedRows;
+        private int mInsertedRows;
+        private int mRemovedRows;
+
+        void reset() {
+            mDataSetChanges = mChangedRows = mInsertedRows = mRemovedRows = 0;
+        }
+
+        @Override
+        public void onChanged() {
+            mDataSetChanges++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            mChangedRows += itemCount;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mInsertedRows += itemCount;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mRemovedRows += itemCount;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.gh4a.db;
+
+import android.util.Pair;
+
+import com.gh4a.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class RefIndexTest {
+    private RefIndex mIndex;
+
+    @Before
+    public void createIndex() {
+        mIndex = new RefIndex("owner/repo", Arrays.asList(
+                "master", "feature", "feature/foo", "release/1.0"), 0);
+    }
+
+    @Test
+    public void refOnly__hasNoPath() {
+        assertRef(mIndex.findRef("master"), "master", null);
+        assertRef(mIndex.findRef("release/1.0"), "release/1.0", null);
+    }
+
+    @Test
+    public void refAndPath__areSplit() {
+        assertRef(mIndex.findRef("master/src/Foo.java"), "master", "src/Foo.java");
+        assertRef(mIndex.findRef("release/1.0/README.md"), "release/1.0", "README.md");
+    }
+
+    @Test
+    public void overlappingRefs__preferLongestRef() {
+        assertRef(mIndex.findRef("feature/foo/bar.txt"), "feature/foo", "bar.txt");
+        assertRef(mIndex.findRef("feature/foobar.txt"), "feature", "foobar.txt");
+        assertRef(mIndex.findRef("feature/foo"), "feature/foo", null);
+    }
+
+    @Test
+    public void unknownRef__isNotFound() {
+        assertThat(mIndex.findRef("develop/src/Foo.java"), is(nullValue()));
+        assertThat(mIndex.findRef("release/2.0/README.md"), is(nullValue()));
+        // only whole path components match
+        assertThat(mIndex.findRef("mast"), is(nullValue()));
+        assertThat(mIndex.findRef("masterpiece/file"), is(nullValue()));
+    }
+
+    private static void assertRef(Pair<String, String> result, String ref, String path) {
+        assertThat("Result is missing", result == null, is(false));
+        assertThat("Ref is incorrect", result.first, is(ref));
+        assertThat("Path is incorrect", result.second, is(path));
+    }
+}
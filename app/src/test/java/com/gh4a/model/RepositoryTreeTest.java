@@ -0,0 +1,214 @@
+package com.gh4a.model;
+
+import com.gh4a.BuildConfig;
+import com.meisolsson.githubsdk.model.Content;
+import com.meisolsson.githubsdk.model.ContentType;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okio.Buffer;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class RepositoryTreeTest {
+    private static final String TREE_JSON = "{"
+            + "\"sha\": \"abc\","
+            + "\"url\": \"https://api.github.com/repos/owner/repo/git/trees/abc\","
+            + "\"tree\": ["
+            + "{\"path\": \"README.md\", \"mode\": \"100644\", \"type\": \"blob\","
+            + " \"sha\": \"1\", \"size\": 1234, \"url\": \"https://example.com/1\"},"
+            + "{\"path\": \"app\", \"mode\": \"040000\", \"type\": \"tree\", \"sha\": \"2\","
+            + " \"url\": \"https://example.com/2\"},"
+            + "{\"path\": \"app/build.gradle\", \"mode\": \"100644\", \"type\": \"blob\","
+            + " \"sha\": \"3\", \"size\": 42, \"url\": \"https://example.com/3\"},"
+            + "{\"path\": \"app/src\", \"mode\": \"040000\", \"type\": \"tree\", \"sha\": \"4\"},"
+            + "{\"path\": \"app/src/Main.java\", \"mode\": \"100644\", \"type\": \"blob\","
+            + " \"sha\": \"5\", \"size\": 7}"
+            + "],"
+            + "\"truncated\": false"
+            + "}";
+
+    @Test
+    public void parse__collectsAllFilePaths() throws IOException {
+        RepositoryTree tree = parse(TREE_JSON);
+        List<String> paths = new ArrayList<>(tree.getFilePaths());
+        Collections.sort(paths);
+
+        assertThat(tree.getSha(), is("abc"));
+        assertThat(tree.isTruncated(), is(false));
+        assertThat(paths, is(Arrays.asList("README.md", "app/build.gradle", "app/src/Main.java")));
+    }
+
+    @Test
+    public void rootDirectory__containsTopLevelEntries() throws IOException {
+        RepositoryTree tree = parse(TREE_JSON);
+        List<Content> contents = tree.getDirectoryContents(null);
+
+        assertThat(contents.size(), is(2));
+        assertThat(contents.get(0).name(), is("README.md"));
+        assertThat(contents.get(0).path(), is("README.md"));
+        assertThat(contents.get(0).type(), is(ContentType.File));
+        assertThat((long) contents.get(0).size(), is(1234L));
+        assertThat(contents.get(1).name(), is("app"));
+        assertThat(contents.get(1).type(), is(ContentType.Directory));
+        assertThat(tree.getDirectoryContents("").size(), is(2));
+    }
+
+    @Test
+    public void subdirectory__containsItsEntriesWithFullPaths() throws IOException {
+        RepositoryTree tree = parse(TREE_JSON);
+        List<Content> contents = tree.getDirectoryContents("app");
+
+        assertThat(contents.size(), is(2));
+        assertThat(contents.get(0).name(), is("build.gradle"));
+        assertThat(contents.get(0).path(), is("app/build.gradle"));
+        assertThat(contents.get(1).name(), is("src"));
+        assertThat(contents.get(1).path(), is("app/src"));
+        assertThat(tree.getDirectoryContents("app/src").get(0).path(), is("app/src/Main.java"));
+    }
+
+    @Test
+    public void unknownDirectory__hasNoContents() throws IOException {
+        RepositoryTree tree = parse(TREE_JSON);
+
+        assertThat(tree.getDirectoryContents("docs"), is(nullValue()));
+        // files aren't directories
+        assertThat(tree.getDirectoryContents("README.md"), is(nullValue()));
+    }
+
+    @Test
+    public void truncatedFlag__isParsed() throws IOException {
+        RepositoryTree tree = parse(TREE_JSON.replace("\"truncated\": false",
+                "\"truncated\": true"));
+
+        assertThat(tree.isTruncated(), is(true));
+    }
+
+    @Test
+    public void persistedTree__equalsParsedTree() throws IOException {
+        RepositoryTree tree = parse(TREE_JSON);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tree.writeTo(new DataOutputStream(bytes));
+        RepositoryTree restored = RepositoryTree.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        List<String> paths = new ArrayList<>(tree.getFilePaths());
+        List<String> restoredPaths = new ArrayList<>(restored.getFilePaths());
+        Collections.sort(paths);
+        Collections.sort(restoredPaths);
+        assertThat(restored.getSha(), is("abc"));
+        assertThat(restoredPaths, is(paths));
+        assertThat(restored.getDirectoryContents("app").get(0).path(),
+                is("app/build.gradle"));
+    }
+
+    @Test
+    public void truncatedTree__isCompletedBySubtrees() throws IOException {
+        // cut off after the 'lib' directory entry
+        RepositoryTree tree = parse("{\"tree\": ["
+                + treeEntry("app", "sha-app") + ","
+                + blobEntry("app/Main.java") + ","
+                + treeEntry("lib", "sha-lib")
+                + "], \"truncated\": true}");
+        assertThat(tree.isTruncated(), is(true));
+
+        // the root directory may be listed partially, so it's fetched non recursively
+        RepositoryTree.Subtree missing = tree.getMissingSubtree();
+        assertThat(missing.getPath(), is(""));
+        assertThat(missing.getSha(), is("abc"));
+        assertThat(missing.isRecursive(), is(false));
+        tree.addSubtree(missing, RepositoryTree.parse(missing.getSha(), json(
+                treeEntry("app", "sha-app") + ","
+                + treeEntry("lib", "sha-lib") + ","
+                + treeEntry("tools", "sha-tools") + ","
+                + blobEntry("README.md"))));
+
+        // the directories without any entries are fetched recursively
+        missing = tree.getMissingSubtree();
+        assertThat(missing.getPath(), is("lib"));
+        assertThat(missing.getSha(), is("sha-lib"));
+        assertThat(missing.isRecursive(), is(true));
+        tree.addSubtree(missing, RepositoryTree.parse(missing.getSha(),
+                json(blobEntry("Lib.java"))));
+
+        missing = tree.getMissingSubtree();
+        assertThat(missing.getPath(), is("tools"));
+        assertThat(missing.getSha(), is("sha-tools"));
+        tree.addSubtree(missing, RepositoryTree.parse(missing.getSha(), json(
+                treeEntry("gen", "sha-gen") + "," + blobEntry("gen/Gen.java"))));
+
+        assertThat(tree.isTruncated(), is(false));
+        assertThat(tree.getMissingSubtree(), is(nullValue()));
+        List<String> paths = new ArrayList<>(tree.getFilePaths());
+        Collections.sort(paths);
+        assertThat(paths, is(Arrays.asList("README.md", "app/Main.java",
+                "lib/Lib.java", "tools/gen/Gen.java")));
+        assertThat(tree.getDirectoryContents("").size(), is(4));
+    }
+
+    @Test
+    public void truncatedSubtree__isCompletedNonRecursively() throws IOException {
+        RepositoryTree tree = parse("{\"tree\": [" + treeEntry("lib", "sha-lib")
+                + "], \"truncated\": true}");
+        tree.addSubtree(tree.getMissingSubtree(), RepositoryTree.parse("abc",
+                json(treeEntry("lib", "sha-lib"))));
+
+        RepositoryTree.Subtree missing = tree.getMissingSubtree();
+        tree.addSubtree(missing, RepositoryTree.parse(missing.getSha(),
+                new Buffer().writeUtf8("{\"tree\": [" + treeEntry("a", "sha-a") + ","
+                        + blobEntry("a/A.java") + "], \"truncated\": true}")));
+
+        // both the subtree root and the directory of its last entry may be listed partially
+        missing = tree.getMissingSubtree();
+        assertThat(missing.getPath(), is("lib"));
+        assertThat(missing.getSha(), is("sha-lib"));
+        assertThat(missing.isRecursive(), is(false));
+        tree.addSubtree(missing, RepositoryTree.parse(missing.getSha(),
+                json(treeEntry("a", "sha-a"))));
+
+        missing = tree.getMissingSubtree();
+        assertThat(missing.getPath(), is("lib/a"));
+        assertThat(missing.getSha(), is("sha-a"));
+        assertThat(missing.isRecursive(), is(false));
+        tree.addSubtree(missing, RepositoryTree.parse(missing.getSha(),
+                json(blobEntry("A.java") + "," + blobEntry("B.java"))));
+
+        assertThat(tree.isTruncated(), is(false));
+        List<String> paths = new ArrayList<>(tree.getFilePaths());
+        Collections.sort(paths);
+        assertThat(paths, is(Arrays.asList("lib/a/A.java", "lib/a/B.java")));
+    }
+
+    private static String treeEntry(String path, String sha) {
+        return "{\"path\": \"" + path + "\", \"type\": \"tree\", \"sha\": \"" + sha + "\"}";
+    }
+
+    private static String blobEntry(String path) {
+        return "{\"path\": \"" + path + "\", \"type\": \"blob\", \"size\": 1}";
+    }
+
+    private static Buffer json(String entries) {
+        return new Buffer().writeUtf8("{\"tree\": [" + entries + "], \"truncated\": false}");
+    }
+
+    private static RepositoryTree parse(String json) throws IOException {
+        return RepositoryTree.parse("abc", new Buffer().writeUtf8(json));
+    }
+}
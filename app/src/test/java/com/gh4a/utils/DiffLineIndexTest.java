@@ -0,0 +1,129 @@
+package com.gh4a.utils;
+
+import com.gh4a.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class DiffLineIndexTest {
+    private static final String DIFF = "@@ -1,4 +1,5 @@\n"
+            + " context\n"
+            + "-removed\n"
+            + "+added\n"
+            + "+added too\n"
+            + " context\n"
+            + "@@ -20,3 +21,2 @@ class Foo {\n"
+            + " context\n"
+            + "-removed\n"
+            + " context";
+
+    @Test
+    public void regularDiff__matchesSplitLines() {
+        assertMatchesSplitLines(DIFF);
+    }
+
+    @Test
+    public void trailingLineBreaks__areIgnoredLikeSplit() {
+        assertMatchesSplitLines(DIFF + "\n");
+        assertMatchesSplitLines(DIFF + "\n\n\n");
+    }
+
+    @Test
+    public void emptyLinesWithinDiff__areKept() {
+        assertMatchesSplitLines("@@ -1,3 +1,3 @@\n context\n\n-removed\n+added\n\n context");
+    }
+
+    @Test
+    public void emptyAndMissingDiffs__matchSplitLines() {
+        assertMatchesSplitLines("");
+        assertMatchesSplitLines("\n");
+        assertMatchesSplitLines("\n\n");
+        assertMatchesSplitLines(null);
+    }
+
+    @Test
+    public void linesBeforeFirstHunk__areCountedFromMinusOne() {
+        assertMatchesSplitLines(" context\n+added\n" + DIFF);
+    }
+
+    @Test
+    public void unparseableHunkHeader__continuesCounting() {
+        assertMatchesSplitLines(DIFF + "\n@@ garbage @@\n context\n+added");
+    }
+
+    @Test
+    public void lineStartingWithSingleAt__isContext() {
+        assertMatchesSplitLines("@@ -1,2 +1,2 @@\n@Override\n context");
+    }
+
+    @Test
+    public void findLine__returnsFirstLineWithNumber() {
+        DiffLineIndex index = new DiffLineIndex(DIFF);
+        // "+added" is line 2 of the new file
+        assertThat(index.findLine(2, true), is(3));
+        // "-removed" of the second hunk is line 21 of the old file
+        assertThat(index.findLine(21, false), is(8));
+        assertThat(index.findLine(100, true), is(-1));
+    }
+
+    @Test
+    public void lineNumbers__canBeQueriedInAnyOrder() {
+        String diff = DIFF + "\n" + DIFF;
+        DiffLineIndex forward = new DiffLineIndex(diff);
+        DiffLineIndex backward = new DiffLineIndex(diff);
+        int lineCount = forward.getLineCount();
+        int[] forwardLines = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            forwardLines[i] = forward.getRightLine(i);
+        }
+        for (int i = lineCount - 1; i >= 0; i--) {
+            assertThat("Line " + i, backward.getRightLine(i), is(forwardLines[i]));
+        }
+    }
+
+    /**
+     * Compares the index with the way diffs were processed before it existed: splitting
+     * them into lines and counting the line numbers from the hunk headers.
+     */
+    private static void assertMatchesSplitLines(String diff) {
+        String[] lines = diff != null ? diff.split("\n") : new String[0];
+        DiffLineIndex index = new DiffLineIndex(diff);
+        assertThat("Line count", index.getLineCount(), is(lines.length));
+
+        int leftLine = -1, rightLine = -1;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int expectedType;
+            if (line.startsWith("@@")) {
+                int[] lineNumbers = StringUtils.extractDiffHunkLineNumbers(line);
+                if (lineNumbers != null) {
+                    leftLine = lineNumbers[0];
+                    rightLine = lineNumbers[1];
+                }
+                expectedType = DiffLineIndex.TYPE_HUNK_HEADER;
+            } else if (line.startsWith("+")) {
+                ++rightLine;
+                expectedType = DiffLineIndex.TYPE_ADD;
+            } else if (line.startsWith("-")) {
+                ++leftLine;
+                expectedType = DiffLineIndex.TYPE_REMOVE;
+            } else {
+                ++leftLine;
+                ++rightLine;
+                expectedType = DiffLineIndex.TYPE_CONTEXT;
+            }
+
+            assertThat("Text of line " + i, index.getLine(i), is(line));
+            assertThat("Type of line " + i, index.getLineType(i), is(expectedType));
+            assertThat("Left number of line " + i, index.getLeftLine(i), is(leftLine));
+            assertThat("Right number of line " + i, index.getRightLine(i), is(rightLine));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.gh4a.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Source;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class LargeTextFileTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void lines__areSplitAtLineBreaks() throws IOException {
+        LargeTextFile file = create("first\nsecond\n\nfourth");
+        assertThat(file.getLineCount(), is(4));
+        assertThat(file.readLines(0, 1), is("first"));
+        assertThat(file.readLines(1, 1), is("second"));
+        assertThat(file.readLines(2, 1), is(""));
+        assertThat(file.readLines(3, 1), is("fourth"));
+        assertThat(file.readLines(1, 2), is("second\n"));
+        assertThat(file.readLines(0, 4), is("first\nsecond\n\nfourth"));
+    }
+
+    @Test
+    public void trailingLineBreak__doesNotStartLine() throws IOException {
+        LargeTextFile file = create("first\nsecond\n");
+        assertThat(file.getLineCount(), is(2));
+        assertThat(file.readLines(1, 1), is("second"));
+        assertThat(file.readLines(0, 2), is("first\nsecond"));
+    }
+
+    @Test
+    public void onlyLastTrailingLineBreak__isIgnored() throws IOException {
+        LargeTextFile file = create("first\n\n");
+        assertThat(file.getLineCount(), is(2));
+        assertThat(file.readLines(1, 1), is(""));
+    }
+
+    @Test
+    public void emptyFile__hasSingleEmptyLine() throws IOException {
+        LargeTextFile file = create("");
+        assertThat(file.getLineCount(), is(1));
+        assertThat(file.readLines(0, 1), is(""));
+    }
+
+    @Test
+    public void rangesBeyondEnd__areClipped() throws IOException {
+        LargeTextFile file = create("first\nsecond");
+        assertThat(file.readLines(1, 100), is("second"));
+        assertThat(file.readLines(2, 1), is(""));
+        assertThat(file.readLines(-1, 1), is(""));
+    }
+
+    @Test
+    public void offsets__areCountedInBytes() throws IOException {
+        LargeTextFile file = create("\u00e4\u00f6\u00fc\n\u20ac uro\nend");
+        assertThat(file.readLines(1, 1), is("\u20ac uro"));
+        assertThat(file.readLines(2, 1), is("end"));
+    }
+
+    @Test
+    public void linesSpanningReads__areSplitCorrectly() throws IOException {
+        String content = createNumberedLines(1000);
+        Buffer buffer = new Buffer().writeUtf8(content);
+        // deliver the content in small pieces not aligned with the lines
+        Source source = new ForwardingSource(buffer) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                return super.read(sink, Math.min(byteCount, 7));
+            }
+        };
+        LargeTextFile file = LargeTextFile.create(source, mFolder.getRoot());
+
+        assertThat(file.getLineCount(), is(1000));
+        assertThat(file.readLines(0, 1000), is(content));
+        assertThat(file.readLines(567, 2), is("line 567\nline 568"));
+    }
+
+    @Test
+    public void findMatchingLines__matchesWholeTextSearch() throws IOException {
+        String content = createNumberedLines(5000);
+        LargeTextFile file = create(content);
+
+        String[] matches = {
+            "line 0", "line 12\nline 13", "line 4321", "ine 4999",
+            // spanning the boundary of the chunks searched at once
+            "line 1999\nline 2000", "1999\nline 2000\nli", "line 3999\nline 4000\nline 4001",
+        };
+        for (String match : matches) {
+            int[] expected = StringUtils.findMatchingLines(content, match);
+            int[] actual = file.findMatchingLines(match);
+            assertThat(match, actual[0], is(expected[0]));
+            assertThat(match, actual[1], is(expected[1]));
+        }
+    }
+
+    @Test
+    public void findMatchingLines_withoutMatch__returnsNull() throws IOException {
+        LargeTextFile file = create(createNumberedLines(5000));
+        assertThat(file.findMatchingLines("line 5000"), is((int[]) null));
+        assertThat(file.findMatchingLines("line 2\nline 4"), is((int[]) null));
+    }
+
+    @Test
+    public void chunks__areLimitedInLines() throws IOException {
+        LargeTextFile file = create(createNumberedLines(25), 10, 1000);
+
+        assertThat(file.getChunkCount(), is(3));
+        assertChunk(file, 0, 0, 10, false);
+        assertChunk(file, 2, 20, 5, false);
+        assertThat(file.readChunk(1), is(file.readLines(10, 10)));
+    }
+
+    @Test
+    public void chunks__areLimitedInBytes() throws IOException {
+        // each line has 7 or 8 bytes including the line break
+        LargeTextFile file = create(createNumberedLines(30), 100, 50);
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < file.getChunkCount(); i++) {
+            String chunk = file.readChunk(i);
+            assertThat(chunk, chunk.length() <= 50, is(true));
+            assertThat(file.isChunkContinuingLine(i), is(false));
+            content.append(i > 0 ? "\n" : "").append(chunk);
+        }
+        assertThat(content.toString(), is(createNumberedLines(30)));
+    }
+
+    @Test
+    public void longLines__areSplitAcrossChunks() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            // multi byte characters must not be split
+            longLine.append("abc\u20ac");
+        }
+        LargeTextFile file = create("first\n" + longLine + "\nlast", 100, 40);
+
+        assertChunk(file, 0, 0, 1, false);
+        int chunk = 1;
+        StringBuilder content = new StringBuilder();
+        while (file.getChunkFirstLine(chunk) == 1 && file.getChunkLineCount(chunk) == 1) {
+            assertThat(file.isChunkContinuingLine(chunk), is(chunk > 1));
+            content.append(file.readChunk(chunk));
+            chunk++;
+        }
+        // the rest of the long line is followed by the next one
+        assertChunk(file, chunk, 1, 2, true);
+        assertThat(chunk, is(file.getChunkCount() - 1));
+        content.append(file.readChunk(chunk));
+        assertThat(content.toString(), is(longLine + "\nlast"));
+    }
+
+    @Test
+    public void emptyFile__hasSingleEmptyChunk() throws IOException {
+        LargeTextFile file = create("");
+        assertThat(file.getChunkCount(), is(1));
+        assertChunk(file, 0, 0, 1, false);
+        assertThat(file.readChunk(0), is(""));
+    }
+
+    private static void assertChunk(LargeTextFile file, int chunk, int firstLine, int lineCount,
+            boolean continuingLine) {
+        assertThat("First line of chunk " + chunk, file.getChunkFirstLine(chunk), is(firstLine));
+        assertThat("Line count of chunk " + chunk, file.getChunkLineCount(chunk), is(lineCount));
+        assertThat("Chunk " + chunk + " continues line", file.isChunkContinuingLine(chunk),
+                is(continuingLine));
+    }
+
+    private LargeTextFile create(String content, int maxChunkLines, int maxChunkBytes)
+            throws IOException {
+        return LargeTextFile.create(new Buffer().writeUtf8(content), mFolder.getRoot(),
+                maxChunkLines, maxChunkBytes);
+    }
+
+    private LargeTextFile create(String content) throws IOException {
+        return LargeTextFile.create(new Buffer().writeUtf8(content), mFolder.getRoot());
+    }
+
+    private static String createNumberedLines(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            builder.append("line ").append(i);
+        }
+        return builder.toString();
+    }
+}
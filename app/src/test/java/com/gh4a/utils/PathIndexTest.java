@@ -0,0 +1,90 @@
+package com.gh4a.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class PathIndexTest {
+    private static final PathIndex INDEX = createIndex(
+            "README.md",
+            "app/build.gradle",
+            "app/src/main/AndroidManifest.xml",
+            "app/src/main/java/com/gh4a/fragment/FileFinderFragment.java",
+            "app/src/main/java/com/gh4a/fragment/RepositoryFragment.java",
+            "app/src/main/java/com/gh4a/utils/PathIndex.java",
+            "app/src/main/res/values/strings.xml",
+            "app/src/test/java/com/gh4a/utils/PathIndexTest.java",
+            "docs/README.md",
+            "fragment/notes.txt");
+
+    @Test
+    public void emptyQuery__findsNothing() {
+        assertThat(INDEX.search("", 10), is(paths()));
+        assertThat(INDEX.search("  ", 10), is(paths()));
+    }
+
+    @Test
+    public void unmatchedQuery__findsNothing() {
+        assertThat(INDEX.search("xyzzy", 10), is(paths()));
+    }
+
+    @Test
+    public void query__matchesCharactersInOrderCaseInsensitively() {
+        assertThat(INDEX.search("fifi", 10),
+                is(paths("app/src/main/java/com/gh4a/fragment/FileFinderFragment.java")));
+        assertThat(INDEX.search("MANIFEST", 10),
+                is(paths("app/src/main/AndroidManifest.xml")));
+    }
+
+    @Test
+    public void fileNameMatches__rankAboveDirectoryMatches() {
+        List<String> result = INDEX.search("fragment", 10);
+        assertThat(result.size(), is(3));
+        assertThat(result.get(0), is("app/src/main/java/com/gh4a/fragment/FileFinderFragment.java"));
+        assertThat(result.get(1), is("app/src/main/java/com/gh4a/fragment/RepositoryFragment.java"));
+        // matches the directory only
+        assertThat(result.get(2), is("fragment/notes.txt"));
+    }
+
+    @Test
+    public void shorterPaths__rankAboveLongerOnes() {
+        assertThat(INDEX.search("readme", 10), is(paths("README.md", "docs/README.md")));
+    }
+
+    @Test
+    public void componentStartMatches__rankAboveMatchesWithinWords() {
+        List<String> result = INDEX.search("pi", 10);
+        assertThat(result.get(0), is("app/src/main/java/com/gh4a/utils/PathIndex.java"));
+    }
+
+    @Test
+    public void equalScores__rankInPathOrder() {
+        PathIndex index = createIndex("c/file.txt", "a/file.txt", "b/file.txt");
+        assertThat(index.search("file", 10), is(paths("a/file.txt", "b/file.txt", "c/file.txt")));
+    }
+
+    @Test
+    public void equalScores_beyondMaxResults__keepFirstPaths() {
+        PathIndex index = createIndex("d/file.txt", "c/file.txt", "a/file.txt", "b/file.txt");
+        assertThat(index.search("file", 2), is(paths("a/file.txt", "b/file.txt")));
+    }
+
+    @Test
+    public void maxResults__keepsBestMatches() {
+        PathIndex index = createIndex("x/y/z/file.txt", "file.txt", "x/file.txt", "x/y/file.txt");
+        assertThat(index.search("file", 2), is(paths("file.txt", "x/file.txt")));
+    }
+
+    private static PathIndex createIndex(String... paths) {
+        return new PathIndex(paths(paths));
+    }
+
+    private static List<String> paths(String... paths) {
+        return new ArrayList<>(Arrays.asList(paths));
+    }
+}
@@ -0,0 +1,138 @@
+package com.gh4a.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class RateLimitTrackerTest {
+    private static final long NOW = TimeUnit.SECONDS.toMillis(1500000000);
+    private static final long WINDOW = TimeUnit.HOURS.toMillis(1);
+
+    @Before
+    public void setup() {
+        RateLimitTracker.reset();
+    }
+
+    @Test
+    public void unknownLimit__doesNotHoldBack() {
+        assertDelay(RateLimitTracker.PRIORITY_FOREGROUND, 0);
+        assertDelay(RateLimitTracker.PRIORITY_PREFETCH, 0);
+        assertDelay(RateLimitTracker.PRIORITY_BACKGROUND, 0);
+    }
+
+    @Test
+    public void backgroundRequests__areSpreadOverWindow() {
+        // 1000 requests left after the reserve of 1000, so one every 3.6 seconds
+        setRateLimit(5000, 2000);
+
+        assertDelay(RateLimitTracker.PRIORITY_BACKGROUND, 0);
+        assertDelay(RateLimitTracker.PRIORITY_BACKGROUND, 3600);
+        assertDelay(RateLimitTracker.PRIORITY_BACKGROUND, 7200);
+    }
+
+    @Test
+    public void waitingBackgroundRequest__keepsItsSlot() {
+        setRateLimit(5000, 2000);
+        RateLimitTracker.Reservation first =
+                RateLimitTracker.reserve(RateLimitTracker.PRIORITY_BACKGROUND, NOW);
+        RateLimitTracker.Reservation second =
+                RateLimitTracker.reserve(RateLimitTracker.PRIORITY_BACKGROUND, NOW);
+
+        assertThat(RateLimitTracker.acquire(first, NOW), is(0L));
+        // polling repeatedly must neither push back its own slot nor the following ones
+        for (long time = NOW; time < NOW + 3600; time += 500) {
+            assertThat(RateLimitTracker.acquire(second, time), is(NOW + 3600 - time));
+        }
+        assertThat(RateLimitTracker.acquire(second, NOW + 3600), is(0L));
+
+        RateLimitTracker.Reservation third =
+                RateLimitTracker.reserve(RateLimitTracker.PRIORITY_BACKGROUND, NOW + 3600);
+        assertThat(RateLimitTracker.acquire(third, NOW + 3600), is(3600L));
+    }
+
+    @Test
+    public void backgroundRequests__waitForForegroundRequests() {
+        RateLimitTracker.Reservation foreground =
+                RateLimitTracker.reserve(RateLimitTracker.PRIORITY_FOREGROUND, NOW);
+        assertThat(RateLimitTracker.acquire(foreground, NOW), is(0L));
+
+        RateLimitTracker.Reservation background =
+                RateLimitTracker.reserve(RateLimitTracker.PRIORITY_BACKGROUND, NOW);
+        assertThat(RateLimitTracker.acquire(background, NOW), is(500L));
+        // but not forever
+        assertThat(RateLimitTracker.acquire(background, NOW + 10000), is(0L));
+
+        RateLimitTracker.onRequestFinished(null);
+        background = RateLimitTracker.reserve(RateLimitTracker.PRIORITY_BACKGROUND, NOW);
+        assertThat(RateLimitTracker.acquire(background, NOW), is(0L));
+    }
+
+    @Test
+    public void lowBudget__holdsBackLowerPrioritiesUntilReset() {
+        // below the prefetch reserve of 250
+        setRateLimit(5000, 200);
+
+        assertDelay(RateLimitTracker.PRIORITY_FOREGROUND, 0);
+        assertDelay(RateLimitTracker.PRIORITY_PREFETCH, WINDOW);
+        assertDelay(RateLimitTracker.PRIORITY_BACKGROUND, WINDOW);
+
+        RateLimitTracker.Reservation prefetch =
+                RateLimitTracker.reserve(RateLimitTracker.PRIORITY_PREFETCH, NOW);
+        assertThat(RateLimitTracker.acquire(prefetch, NOW + WINDOW), is(0L));
+    }
+
+    @Test
+    public void exhaustedBudget__holdsBackForegroundUntilReset() {
+        setRateLimit(5000, 0);
+
+        assertDelay(RateLimitTracker.PRIORITY_FOREGROUND, WINDOW);
+    }
+
+    @Test
+    public void responsesOutOfOrder__keepLowestRemainingCount() {
+        setRateLimit(5000, 200);
+        setRateLimit(5000, 300);
+
+        assertDelay(RateLimitTracker.PRIORITY_PREFETCH, WINDOW);
+    }
+
+    @Test
+    public void searchResponses__areIgnored() {
+        RateLimitTracker.update(createResponse("https://api.github.com/search/issues", 30, 0));
+
+        assertDelay(RateLimitTracker.PRIORITY_FOREGROUND, 0);
+    }
+
+    private static void assertDelay(int priority, long expectedDelay) {
+        RateLimitTracker.Reservation reservation = RateLimitTracker.reserve(priority, NOW);
+        assertThat(RateLimitTracker.acquire(reservation, NOW), is(expectedDelay));
+        if (expectedDelay == 0 && priority == RateLimitTracker.PRIORITY_FOREGROUND) {
+            RateLimitTracker.onRequestFinished(null);
+        }
+    }
+
+    private static void setRateLimit(int limit, int remaining) {
+        RateLimitTracker.update(createResponse("https://api.github.com/user", limit, remaining));
+    }
+
+    private static Response createResponse(String url, int limit, int remaining) {
+        return new Response.Builder()
+                .request(new Request.Builder().url(url).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .header("X-RateLimit-Limit", String.valueOf(limit))
+                .header("X-RateLimit-Remaining", String.valueOf(remaining))
+                .header("X-RateLimit-Reset",
+                        String.valueOf(TimeUnit.MILLISECONDS.toSeconds(NOW + WINDOW)))
+                .build();
+    }
+}